@@ -0,0 +1,733 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import utils.MiscUtils;
+import utils.Pair;
+import utils.SimpleMap;
+
+/**
+ * An adaptive radix trie (ART) over the UTF-8 bytes of its keys. Each node starts with room for
+ * four children and grows to 16, 48, and then 256 as its fan-out increases, so sparse nodes stay
+ * small and dense nodes stay fast.
+ *
+ * @author Chris Won
+ */
+public class AdaptiveRadixTrie implements SimpleMap<String, String> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * Keys are encoded byte by byte, and each edge is one byte. Nodes come in four sizes:
+   *
+   *   ArtNode4 and ArtNode16 keep parallel arrays of key bytes and children, sorted by key byte,
+   *     and search them linearly (a tight loop over a small byte array, which the JIT handles
+   *     well).
+   *   ArtNode48 maps each of the 256 possible bytes to a slot in an array of 48 children.
+   *   ArtNode256 indexes its children directly by byte.
+   *
+   * A node that fills up is replaced by a copy of the next size up; a node that empties past a
+   * threshold is replaced by the next size down. The thresholds leave a gap between growing and
+   * shrinking so that alternating set/remove at a boundary doesn't copy every time. Since a node
+   * can be replaced, the methods that change children return the node that should now be in the
+   * parent.
+   *
+   * We encode keys as UTF-8, except that an unpaired surrogate is encoded as its own three-byte
+   * sequence (as in WTF-8), so that every Java string, well-formed or not, round-trips exactly.
+   * Iteration is in order of the encoded bytes, which is code point order.
+   *
+   * Unlike RadixTrie, we don't compress paths; every byte of a key has its own node.
+   *
+   * Iterators throw a ConcurrentModificationException if the trie changes under them, and do not
+   * support remove.
+   */
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The root of the trie, which holds the empty key.
+   */
+  ArtNode root;
+
+  /**
+   * The number of pairs in the trie.
+   */
+  int size;
+
+  // for keeping track of concurrent modification
+  int mutation = 0;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, trie.
+   */
+  public AdaptiveRadixTrie() {
+    this.root = new ArtNode4();
+    this.size = 0;
+  } // AdaptiveRadixTrie()
+
+  // +-------------------+-----------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public String set(String key, String value) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    this.mutation++;
+    byte[] bytes = encode(key);
+    ArtNode parent = null;
+    int parentByte = -1;
+    ArtNode current = this.root;
+    for (int i = 0; i < bytes.length; i++) {
+      int b = bytes[i] & 0xFF;
+      ArtNode child = current.child(b);
+      if (child == null) {
+        child = new ArtNode4();
+        ArtNode updated = current.put(b, child);
+        if (updated != current) {
+          replace(parent, parentByte, updated);
+          current = updated;
+        } // if
+      } // if
+      parent = current;
+      parentByte = b;
+      current = child;
+    } // for
+
+    String result = current.value;
+    if (!current.hasValue) {
+      current.hasValue = true;
+      this.size++;
+    } // if
+    current.value = value;
+    return result;
+  } // set(String,String)
+
+  @Override
+  public String get(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    ArtNode node = this.find(key);
+    if ((node == null) || !node.hasValue)
+      throw new IndexOutOfBoundsException("key not found");
+
+    return node.value;
+  } // get(String)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public boolean containsKey(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    ArtNode node = this.find(key);
+    return (node != null) && node.hasValue;
+  } // containsKey(String)
+
+  @Override
+  public String remove(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    // Find the node, remembering the path so that we can prune it.
+    byte[] bytes = encode(key);
+    ArtNode[] path = new ArtNode[bytes.length + 1];
+    path[0] = this.root;
+    for (int i = 0; i < bytes.length; i++) {
+      path[i + 1] = path[i].child(bytes[i] & 0xFF);
+      if (path[i + 1] == null)
+        return null;
+    } // for
+
+    ArtNode node = path[bytes.length];
+    if (!node.hasValue)
+      return null;
+
+    this.mutation++;
+    String result = node.value;
+    node.hasValue = false;
+    node.value = null;
+    this.size--;
+
+    // Remove the nodes that no longer lead to any values.
+    for (int depth = bytes.length; depth > 0; depth--) {
+      node = path[depth];
+      if (node.hasValue || (node.count > 0)) {
+        break;
+      } // if
+      ArtNode parent = path[depth - 1];
+      ArtNode updated = parent.remove(bytes[depth - 1] & 0xFF);
+      if (updated != parent) {
+        if (depth == 1) {
+          replace(null, -1, updated);
+        } else {
+          replace(path[depth - 2], bytes[depth - 2] & 0xFF, updated);
+        } // if/else
+        path[depth - 1] = updated;
+      } // if
+    } // for
+    return result;
+  } // remove(String)
+
+  @Override
+  public Iterator<String> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public Iterator<String> values() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
+  } // values()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    dump(pen, this.root, "");
+  } // dump(PrintWriter)
+
+  // +------------------+--------------------------------------------
+  // | Iterable methods |
+  // +------------------+
+
+  /**
+   * Iterate all the key/value pairs in the trie, in code point order by key.
+   */
+  @Override
+  public Iterator<Pair<String, String>> iterator() {
+    return new Iterator<Pair<String, String>>() {
+      /**
+       * The nodes on the path to the current node; path[0] is the root.
+       */
+      ArtNode[] path = new ArtNode[16];
+
+      /**
+       * For each node on the path, the smallest byte whose child we haven't yet visited.
+       */
+      int[] cursors = new int[16];
+
+      /**
+       * The bytes on the path; bytes[i] leads from path[i] to path[i + 1].
+       */
+      byte[] bytes = new byte[16];
+
+      /**
+       * The depth of the current node, or -1 once we're done.
+       */
+      int depth = 0;
+
+      /**
+       * The next pair to return, or null if we haven't found it yet.
+       */
+      Pair<String, String> upcoming =
+          root.hasValue ? new Pair<String, String>("", root.value) : null;
+
+      int initialMutation = mutation;
+
+      {
+        path[0] = root;
+      }
+
+      @Override
+      public boolean hasNext() {
+        if (initialMutation != mutation)
+          throw new ConcurrentModificationException();
+
+        while ((upcoming == null) && (depth >= 0)) {
+          ArtNode node = path[depth];
+          int b = node.nextByte(cursors[depth]);
+          if (b < 0) {
+            depth--;
+          } else {
+            cursors[depth] = b + 1;
+            if (depth + 1 == path.length) {
+              grow();
+            } // if
+            bytes[depth] = (byte) b;
+            ArtNode child = node.child(b);
+            path[++depth] = child;
+            cursors[depth] = 0;
+            if (child.hasValue) {
+              upcoming = new Pair<String, String>(decode(bytes, depth), child.value);
+            } // if
+          } // if/else
+        } // while
+        return upcoming != null;
+      } // hasNext()
+
+      @Override
+      public Pair<String, String> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        Pair<String, String> result = upcoming;
+        upcoming = null;
+        return result;
+      } // next()
+
+      /**
+       * Make room for a deeper path.
+       */
+      void grow() {
+        int length = path.length * 2;
+        path = Arrays.copyOf(path, length);
+        cursors = Arrays.copyOf(cursors, length);
+        bytes = Arrays.copyOf(bytes, length);
+      } // grow()
+    }; // new Iterator
+  } // iterator()
+
+  // +------+------------------------------------------------------------
+  // | Misc |
+  // +------+
+
+  /**
+   * Count the nodes of each size, returned as { node4s, node16s, node48s, node256s }. Used
+   * mostly for experiments.
+   */
+  public int[] nodeCounts() {
+    int[] counts = new int[4];
+    nodeCounts(this.root, counts);
+    return counts;
+  } // nodeCounts()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Decode the first length bytes of an encoded key.
+   */
+  static String decode(byte[] bytes, int length) {
+    StringBuilder result = new StringBuilder(length);
+    int i = 0;
+    while (i < length) {
+      int b = bytes[i] & 0xFF;
+      if (b < 0x80) {
+        result.append((char) b);
+        i += 1;
+      } else if (b < 0xE0) {
+        result.append((char) (((b & 0x1F) << 6) | (bytes[i + 1] & 0x3F)));
+        i += 2;
+      } else if (b < 0xF0) {
+        result.append((char) (((b & 0x0F) << 12) | ((bytes[i + 1] & 0x3F) << 6)
+            | (bytes[i + 2] & 0x3F)));
+        i += 3;
+      } else {
+        result.appendCodePoint(((b & 0x07) << 18) | ((bytes[i + 1] & 0x3F) << 12)
+            | ((bytes[i + 2] & 0x3F) << 6) | (bytes[i + 3] & 0x3F));
+        i += 4;
+      } // if/else
+    } // while
+    return result.toString();
+  } // decode(byte[], int)
+
+  /**
+   * Dump the subtrie rooted at node, indented by the specified indent.
+   */
+  void dump(PrintWriter pen, ArtNode node, String indent) {
+    for (int b = node.nextByte(0); b >= 0; b = node.nextByte(b + 1)) {
+      ArtNode child = node.child(b);
+      String label = String.format("%02x", b);
+      if (child.hasValue) {
+        pen.println(indent + label + ": " + child.value);
+      } else {
+        pen.println(indent + label);
+      } // if/else
+      dump(pen, child, indent + "  -");
+    } // for
+  } // dump(PrintWriter, ArtNode, String)
+
+  /**
+   * Encode a key as bytes. Well-formed text becomes UTF-8; unpaired surrogates become three
+   * bytes each.
+   */
+  static byte[] encode(String key) {
+    int length = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char ch = key.charAt(i);
+      if (ch < 0x80) {
+        length += 1;
+      } else if (ch < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(ch) && (i + 1 < key.length())
+          && Character.isLowSurrogate(key.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      } // if/else
+    } // for
+
+    byte[] bytes = new byte[length];
+    int j = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char ch = key.charAt(i);
+      if (ch < 0x80) {
+        bytes[j++] = (byte) ch;
+      } else if (ch < 0x800) {
+        bytes[j++] = (byte) (0xC0 | (ch >> 6));
+        bytes[j++] = (byte) (0x80 | (ch & 0x3F));
+      } else if (Character.isHighSurrogate(ch) && (i + 1 < key.length())
+          && Character.isLowSurrogate(key.charAt(i + 1))) {
+        int cp = Character.toCodePoint(ch, key.charAt(++i));
+        bytes[j++] = (byte) (0xF0 | (cp >> 18));
+        bytes[j++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        bytes[j++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        bytes[j++] = (byte) (0x80 | (cp & 0x3F));
+      } else {
+        bytes[j++] = (byte) (0xE0 | (ch >> 12));
+        bytes[j++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+        bytes[j++] = (byte) (0x80 | (ch & 0x3F));
+      } // if/else
+    } // for
+    return bytes;
+  } // encode(String)
+
+  /**
+   * Find the node for a key. Returns null if there is no such node.
+   */
+  ArtNode find(String key) {
+    byte[] bytes = encode(key);
+    ArtNode current = this.root;
+    for (int i = 0; (i < bytes.length) && (current != null); i++) {
+      current = current.child(bytes[i] & 0xFF);
+    } // for
+    return current;
+  } // find(String)
+
+  /**
+   * Count the nodes of each size in a subtrie.
+   */
+  void nodeCounts(ArtNode node, int[] counts) {
+    if (node instanceof ArtNode4) {
+      counts[0]++;
+    } else if (node instanceof ArtNode16) {
+      counts[1]++;
+    } else if (node instanceof ArtNode48) {
+      counts[2]++;
+    } else {
+      counts[3]++;
+    } // if/else
+    for (int b = node.nextByte(0); b >= 0; b = node.nextByte(b + 1)) {
+      nodeCounts(node.child(b), counts);
+    } // for
+  } // nodeCounts(ArtNode, int[])
+
+  /**
+   * Install a resized node in place of the one that its parent reaches through b. A null parent
+   * means the node is the root.
+   */
+  void replace(ArtNode parent, int b, ArtNode node) {
+    if (parent == null) {
+      this.root = node;
+    } else {
+      // Replacing an existing child never resizes the parent.
+      parent.put(b, node);
+    } // if/else
+  } // replace(ArtNode, int, ArtNode)
+} // class AdaptiveRadixTrie
+
+
+/**
+ * Nodes for our adaptive radix tries.
+ */
+abstract class ArtNode {
+  /**
+   * The value, if hasValue is set.
+   */
+  String value;
+
+  /**
+   * Does this node hold a value? (We can't use value == null, since null is a legal value.)
+   */
+  boolean hasValue;
+
+  /**
+   * The number of children.
+   */
+  int count;
+
+  /**
+   * Get the child for byte b (0-255), or null if there is none.
+   */
+  abstract ArtNode child(int b);
+
+  /**
+   * Find the smallest byte at least from that has a child. Returns -1 if there is none.
+   */
+  abstract int nextByte(int from);
+
+  /**
+   * Set the child for byte b, returning the node that should replace this one (this one, unless
+   * we had to grow).
+   */
+  abstract ArtNode put(int b, ArtNode child);
+
+  /**
+   * Remove the child for byte b, which must exist, returning the node that should replace this
+   * one (this one, unless we shrank).
+   */
+  abstract ArtNode remove(int b);
+
+  /**
+   * Copy this node's value and children into another node, returning that node.
+   */
+  ArtNode copyInto(ArtNode other) {
+    other.value = this.value;
+    other.hasValue = this.hasValue;
+    for (int b = nextByte(0); b >= 0; b = nextByte(b + 1)) {
+      other.put(b, child(b));
+    } // for
+    return other;
+  } // copyInto(ArtNode)
+} // class ArtNode
+
+
+/**
+ * Nodes that keep their key bytes in a small sorted array.
+ */
+abstract class ArtListNode extends ArtNode {
+  /**
+   * The key bytes of the children, in increasing (unsigned) order.
+   */
+  byte[] keys;
+
+  /**
+   * The children, parallel to keys.
+   */
+  ArtNode[] children;
+
+  /**
+   * Create a node with room for capacity children.
+   */
+  ArtListNode(int capacity) {
+    this.keys = new byte[capacity];
+    this.children = new ArtNode[capacity];
+  } // ArtListNode(int)
+
+  /**
+   * Build the next size up, with our contents.
+   */
+  abstract ArtNode grow();
+
+  /**
+   * Build the next size down, with our contents, or return this if we're small enough.
+   */
+  abstract ArtNode shrink();
+
+  @Override
+  ArtNode child(int b) {
+    for (int i = 0; i < this.count; i++) {
+      int key = this.keys[i] & 0xFF;
+      if (key == b) {
+        return this.children[i];
+      } else if (key > b) {
+        return null;
+      } // if/else
+    } // for
+    return null;
+  } // child(int)
+
+  @Override
+  int nextByte(int from) {
+    for (int i = 0; i < this.count; i++) {
+      int key = this.keys[i] & 0xFF;
+      if (key >= from) {
+        return key;
+      } // if
+    } // for
+    return -1;
+  } // nextByte(int)
+
+  @Override
+  ArtNode put(int b, ArtNode child) {
+    int i = 0;
+    while ((i < this.count) && ((this.keys[i] & 0xFF) < b)) {
+      i++;
+    } // while
+    if ((i < this.count) && ((this.keys[i] & 0xFF) == b)) {
+      this.children[i] = child;
+      return this;
+    } // if
+    if (this.count == this.keys.length) {
+      return grow().put(b, child);
+    } // if
+    System.arraycopy(this.keys, i, this.keys, i + 1, this.count - i);
+    System.arraycopy(this.children, i, this.children, i + 1, this.count - i);
+    this.keys[i] = (byte) b;
+    this.children[i] = child;
+    this.count++;
+    return this;
+  } // put(int, ArtNode)
+
+  @Override
+  ArtNode remove(int b) {
+    int i = 0;
+    while ((this.keys[i] & 0xFF) != b) {
+      i++;
+    } // while
+    System.arraycopy(this.keys, i + 1, this.keys, i, this.count - i - 1);
+    System.arraycopy(this.children, i + 1, this.children, i, this.count - i - 1);
+    this.children[--this.count] = null;
+    return shrink();
+  } // remove(int)
+} // class ArtListNode
+
+
+/**
+ * Nodes with up to four children.
+ */
+class ArtNode4 extends ArtListNode {
+  ArtNode4() {
+    super(4);
+  } // ArtNode4()
+
+  @Override
+  ArtNode grow() {
+    return copyInto(new ArtNode16());
+  } // grow()
+
+  @Override
+  ArtNode shrink() {
+    return this;
+  } // shrink()
+} // class ArtNode4
+
+
+/**
+ * Nodes with up to 16 children.
+ */
+class ArtNode16 extends ArtListNode {
+  ArtNode16() {
+    super(16);
+  } // ArtNode16()
+
+  @Override
+  ArtNode grow() {
+    return copyInto(new ArtNode48());
+  } // grow()
+
+  @Override
+  ArtNode shrink() {
+    return (this.count <= 3) ? copyInto(new ArtNode4()) : this;
+  } // shrink()
+} // class ArtNode16
+
+
+/**
+ * Nodes with up to 48 children, found through a 256-entry index.
+ */
+class ArtNode48 extends ArtNode {
+  /**
+   * For each byte, one more than the slot of its child, or 0 if it has none.
+   */
+  byte[] index = new byte[256];
+
+  /**
+   * The children, in no particular order.
+   */
+  ArtNode[] children = new ArtNode[48];
+
+  @Override
+  ArtNode child(int b) {
+    int slot = this.index[b];
+    return (slot == 0) ? null : this.children[slot - 1];
+  } // child(int)
+
+  @Override
+  int nextByte(int from) {
+    for (int b = from; b < 256; b++) {
+      if (this.index[b] != 0) {
+        return b;
+      } // if
+    } // for
+    return -1;
+  } // nextByte(int)
+
+  @Override
+  ArtNode put(int b, ArtNode child) {
+    int slot = this.index[b];
+    if (slot != 0) {
+      this.children[slot - 1] = child;
+      return this;
+    } // if
+    if (this.count == this.children.length) {
+      return copyInto(new ArtNode256()).put(b, child);
+    } // if
+    // Removals leave holes, so look for one.
+    slot = 0;
+    while (this.children[slot] != null) {
+      slot++;
+    } // while
+    this.children[slot] = child;
+    this.index[b] = (byte) (slot + 1);
+    this.count++;
+    return this;
+  } // put(int, ArtNode)
+
+  @Override
+  ArtNode remove(int b) {
+    this.children[this.index[b] - 1] = null;
+    this.index[b] = 0;
+    this.count--;
+    return (this.count <= 12) ? copyInto(new ArtNode16()) : this;
+  } // remove(int)
+} // class ArtNode48
+
+
+/**
+ * Nodes with a slot for every byte.
+ */
+class ArtNode256 extends ArtNode {
+  /**
+   * The children, indexed by byte.
+   */
+  ArtNode[] children = new ArtNode[256];
+
+  @Override
+  ArtNode child(int b) {
+    return this.children[b];
+  } // child(int)
+
+  @Override
+  int nextByte(int from) {
+    for (int b = from; b < 256; b++) {
+      if (this.children[b] != null) {
+        return b;
+      } // if
+    } // for
+    return -1;
+  } // nextByte(int)
+
+  @Override
+  ArtNode put(int b, ArtNode child) {
+    if (this.children[b] == null) {
+      this.count++;
+    } // if
+    this.children[b] = child;
+    return this;
+  } // put(int, ArtNode)
+
+  @Override
+  ArtNode remove(int b) {
+    this.children[b] = null;
+    this.count--;
+    return (this.count <= 40) ? copyInto(new ArtNode48()) : this;
+  } // remove(int)
+} // class ArtNode256
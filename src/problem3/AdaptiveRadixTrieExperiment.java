@@ -0,0 +1,116 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Random;
+import utils.SimpleMap;
+
+/**
+ * Compare the heap used by, and the lookup throughput of, a Trie and an AdaptiveRadixTrie
+ * holding the same random words.
+ */
+public class AdaptiveRadixTrieExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of words we store.
+   */
+  static final int KEYS = 300000;
+
+  /**
+   * The number of lookups in each round.
+   */
+  static final int LOOKUPS = 3000000;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make a random lowercase word of three to twelve letters. (Trie folds case and lumps all
+   * non-letters together, so we give it keys it can store exactly.)
+   */
+  static String word(Random random) {
+    char[] chars = new char[3 + random.nextInt(10)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    } // for
+    return new String(chars);
+  } // word(Random)
+
+  /**
+   * Estimate the heap in use, in bytes, after encouraging a collection.
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    } // for
+    return runtime.totalMemory() - runtime.freeMemory();
+  } // usedHeap()
+
+  /**
+   * Look up every word, repeatedly, returning millions of lookups per second.
+   */
+  static double lookups(SimpleMap<String, String> map, String[] words) {
+    long found = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (map.get(words[i % words.length]) != null) {
+        found++;
+      } // if
+    } // for
+    long elapsed = System.nanoTime() - start;
+    if (found != LOOKUPS) {
+      throw new IllegalStateException("lost " + (LOOKUPS - found) + " words");
+    } // if
+    return LOOKUPS / (elapsed / 1e3);
+  } // lookups(SimpleMap, String[])
+
+  /**
+   * Fill a map, then report its heap use and lookup throughput.
+   */
+  static void measure(PrintWriter pen, String label, SimpleMap<String, String> map,
+      String[] words) {
+    long before = usedHeap();
+    for (String word : words) {
+      map.set(word, word);
+    } // for
+    long bytes = usedHeap() - before;
+    // Warm up, then measure.
+    lookups(map, words);
+    double rate = lookups(map, words);
+    pen.printf("%-18s %8.1f MB  %6.2f M lookups/s%n", label, bytes / 1e6, rate);
+  } // measure(PrintWriter, String, SimpleMap, String[])
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    String[] words = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      words[i] = word(random);
+    } // for
+    // Shuffle the lookup order so neither trie benefits from insertion order.
+    String[] shuffled = words.clone();
+    for (int i = shuffled.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      String tmp = shuffled[i];
+      shuffled[i] = shuffled[j];
+      shuffled[j] = tmp;
+    } // for
+
+    pen.println(KEYS + " random words");
+    measure(pen, "Trie", new Trie<String>(), shuffled);
+    AdaptiveRadixTrie art = new AdaptiveRadixTrie();
+    measure(pen, "AdaptiveRadixTrie", art, shuffled);
+    int[] counts = art.nodeCounts();
+    pen.println("ART nodes: " + counts[0] + " Node4, " + counts[1] + " Node16, " + counts[2]
+        + " Node48, " + counts[3] + " Node256");
+  } // main(String[])
+} // class AdaptiveRadixTrieExperiment
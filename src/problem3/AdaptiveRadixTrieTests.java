@@ -0,0 +1,89 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import utils.SimpleMapTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of adaptive radix tries.
+ */
+public class AdaptiveRadixTrieTests extends SimpleMapTests {
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupAdaptiveRadixTrieTests() {
+    stringMap = new AdaptiveRadixTrie();
+    runIteratorRemoveTests = false;
+  } // setupAdaptiveRadixTrieTests()
+
+  /**
+   * Keys that differ only in case, accents, or characters outside the BMP stay distinct, and
+   * even malformed strings come back exactly.
+   */
+  @Test
+  public void unicodeTest() {
+    String[] keys = { "a", "A", "\u00e9", "e\u0301", "\u4e2d\u6587", "\ud83d\ude00",
+        "\ud83d", "\ude00\ud83d", "a b/c", "" };
+    for (String key : keys) {
+      stringMap.set(key, "<" + key + ">");
+    } // for
+    assertEquals(keys.length, stringMap.size());
+    for (String key : keys) {
+      assertEquals("<" + key + ">", stringMap.get(key));
+    } // for
+    assertFalse(stringMap.containsKey("\ud83d\ude01"));
+
+    ArrayList<String> found = new ArrayList<String>();
+    for (Iterator<String> it = stringMap.keys(); it.hasNext(); ) {
+      found.add(it.next());
+    } // for
+    assertEquals(keys.length, found.size());
+    for (String key : keys) {
+      assertTrue(found.contains(key), () -> "missing " + key);
+    } // for
+    // Code point order puts the emoji after the CJK characters.
+    assertTrue(found.indexOf("\u4e2d\u6587") < found.indexOf("\ud83d\ude00"));
+  } // unicodeTest()
+
+  /**
+   * Nodes grow through every size as children arrive and shrink again as they leave.
+   */
+  @Test
+  public void growAndShrinkTest() {
+    AdaptiveRadixTrie trie = (AdaptiveRadixTrie) stringMap;
+    for (int i = 0; i < 128; i++) {
+      trie.set(Character.toString((char) i), Integer.toString(i));
+      int children = i + 1;
+      Class<?> expected = (children <= 4) ? ArtNode4.class
+          : (children <= 16) ? ArtNode16.class
+              : (children <= 48) ? ArtNode48.class : ArtNode256.class;
+      assertEquals(expected, trie.root.getClass(), "after " + children + " children");
+    } // for
+    for (int i = 127; i >= 0; i--) {
+      assertEquals(Integer.toString(i), trie.remove(Character.toString((char) i)));
+    } // for
+    assertEquals(0, trie.size());
+    // Only the root remains, shrunk back to its smallest size.
+    assertArrayEquals(new int[] { 1, 0, 0, 0 }, trie.nodeCounts());
+  } // growAndShrinkTest()
+
+  /**
+   * Removing a key prunes the nodes that only led to it, but not ones that lead elsewhere.
+   */
+  @Test
+  public void pruneTest() {
+    AdaptiveRadixTrie trie = (AdaptiveRadixTrie) stringMap;
+    trie.set("tent", "1");
+    trie.set("tea", "2");
+    trie.remove("tent");
+    // root, t, e, a
+    assertEquals(4, trie.nodeCounts()[0]);
+    assertFalse(trie.containsKey("te"));
+    trie.remove("tea");
+    assertEquals(1, trie.nodeCounts()[0]);
+  } // pruneTest()
+} // class AdaptiveRadixTrieTests
@@ -0,0 +1,240 @@
+package problem3;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An Aho-Corasick matcher, compiled from a Trie by Trie.matcher(). It finds every occurrence of
+ * every key of the trie in a stream of text, in one pass, reading each character once. Apart
+ * from the automaton, it uses a fixed amount of memory however long the stream. Characters fold
+ * just as they do in the trie, so in a trie of letters "Cat" matches the key "cat"; a character
+ * outside the trie's alphabet ends every match in progress.
+ *
+ * The empty key, if the trie has one, never matches.
+ *
+ * @author Chris Won
+ */
+public class AhoCorasick<V> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * The states are the nodes of the trie, numbered breadth first, so the root is 0 and every
+   * state's failure state (the state for the longest proper suffix of its key that is also a
+   * path in the trie) has a smaller number than it does. That lets us fill in everything in a
+   * single breadth-first pass.
+   *
+   * Rather than following failure links while scanning, we fold them into the transitions:
+   * next[s * width + slot] is the trie child if there is one, and otherwise the transition of
+   * s's failure state on the same slot. So each character costs one array read, at the price
+   * of one int per state for each character of the alphabet.
+   *
+   * output[s] is the nearest state along s's chain of failure links that ends a key, or -1; we
+   * follow it to report keys that end inside a longer match (e.g., "he" inside "she").
+   *
+   * A matcher never changes after construction, so any number of threads may scan with it.
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The start state.
+   */
+  static final int ROOT = 0;
+
+  /**
+   * The number of characters we read from a Reader at once.
+   */
+  static final int BUFFER_SIZE = 8192;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The characters of the trie we came from.
+   */
+  Alphabet alphabet;
+
+  /**
+   * The number of slots per state.
+   */
+  int width;
+
+  /**
+   * The transitions, width per state.
+   */
+  int[] next;
+
+  /**
+   * The output link of each state.
+   */
+  int[] output;
+
+  /**
+   * The length of the key that ends at each state, or -1 if none does.
+   */
+  int[] lengths;
+
+  /**
+   * The value of the key that ends at each state.
+   */
+  Object[] values;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a matcher for the keys of the trie over alphabet rooted at root.
+   */
+  AhoCorasick(Alphabet alphabet, TrieNode root) {
+    this.alphabet = alphabet;
+    this.width = root.width();
+    int width = this.width;
+    ArrayList<TrieNode> nodes = new ArrayList<TrieNode>();
+    nodes.add(root);
+    int[] fail = new int[16];
+    int[] depths = new int[16];
+    this.next = new int[16 * width];
+    this.output = new int[16];
+    this.output[ROOT] = -1;
+
+    for (int s = 0; s < nodes.size(); s++) {
+      TrieNode node = nodes.get(s);
+      for (int slot = 0; slot < width; slot++) {
+        TrieNode child = node.nextAt(slot);
+        if (child == null) {
+          // Borrow the failure state's transition (the root's missing ones go to the root).
+          this.next[s * width + slot] = (s == ROOT) ? ROOT : this.next[fail[s] * width + slot];
+          continue;
+        } // if
+        int c = nodes.size();
+        nodes.add(child);
+        if (c == fail.length) {
+          fail = Arrays.copyOf(fail, c * 2);
+          depths = Arrays.copyOf(depths, c * 2);
+          this.output = Arrays.copyOf(this.output, c * 2);
+          this.next = Arrays.copyOf(this.next, c * 2 * width);
+        } // if
+        this.next[s * width + slot] = c;
+        depths[c] = depths[s] + 1;
+        fail[c] = (s == ROOT) ? ROOT : this.next[fail[s] * width + slot];
+        int f = fail[c];
+        this.output[c] = ((f != ROOT) && nodes.get(f).hasKey()) ? f : this.output[f];
+      } // for
+    } // for
+
+    int states = nodes.size();
+    this.next = Arrays.copyOf(this.next, states * width);
+    this.output = Arrays.copyOf(this.output, states);
+    this.lengths = new int[states];
+    this.values = new Object[states];
+    for (int s = 0; s < states; s++) {
+      TrieNode node = nodes.get(s);
+      boolean key = (s != ROOT) && node.hasKey();
+      this.lengths[s] = key ? depths[s] : -1;
+      this.values[s] = key ? node.value() : null;
+    } // for
+  } // AhoCorasick(Alphabet, TrieNode)
+
+  // +---------+---------------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Report every match in the characters remaining in a buffer, consuming them. Returns the
+   * number of matches. Positions are relative to the buffer's position when we start.
+   */
+  public long scan(CharBuffer in, Listener<? super V> listener) {
+    int state = ROOT;
+    long position = 0;
+    long matches = 0;
+    while (in.hasRemaining()) {
+      state = step(state, in.get());
+      position++;
+      if ((this.lengths[state] >= 0) || (this.output[state] >= 0)) {
+        matches += report(state, position, listener);
+      } // if
+    } // while
+    return matches;
+  } // scan(CharBuffer, Listener)
+
+  /**
+   * Report every match in the rest of a stream. Returns the number of matches. Positions count
+   * characters from where we start reading.
+   */
+  public long scan(Reader in, Listener<? super V> listener) throws IOException {
+    char[] buffer = new char[BUFFER_SIZE];
+    int state = ROOT;
+    long position = 0;
+    long matches = 0;
+    int count;
+    while ((count = in.read(buffer)) >= 0) {
+      for (int i = 0; i < count; i++) {
+        state = step(state, buffer[i]);
+        position++;
+        if ((this.lengths[state] >= 0) || (this.output[state] >= 0)) {
+          matches += report(state, position, listener);
+        } // if
+      } // for
+    } // while
+    return matches;
+  } // scan(Reader, Listener)
+
+  /**
+   * Get the number of states.
+   */
+  public int stateCount() {
+    return this.lengths.length;
+  } // stateCount()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get the state after reading ch in state.
+   */
+  int step(int state, char ch) {
+    int slot = this.alphabet.index(ch);
+    return (slot < 0) ? ROOT : this.next[state * this.width + slot];
+  } // step(int, char)
+
+  /**
+   * Report the keys that end at a state, which we reached just before end. Returns the number
+   * of keys.
+   */
+  @SuppressWarnings("unchecked")
+  int report(int state, long end, Listener<? super V> listener) {
+    int count = 0;
+    for (int s = (this.lengths[state] >= 0) ? state : this.output[state]; s >= 0;
+        s = this.output[s]) {
+      listener.match(end - this.lengths[s], this.lengths[s], (V) this.values[s]);
+      count++;
+    } // for
+    return count;
+  } // report(int, long, Listener)
+
+  // +------------+------------------------------------------------------
+  // | Interfaces |
+  // +------------+
+
+  /**
+   * Something that wants to hear about matches.
+   */
+  public interface Listener<V> {
+    /**
+     * A key of some length, with some value, occurs at start. Matches are reported in order of
+     * where they end, longest first for keys that end at the same place.
+     */
+    void match(long start, int length, V value);
+  } // interface Listener<V>
+} // class AhoCorasick<V>
@@ -0,0 +1,134 @@
+package problem3;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Random;
+
+/**
+ * Compare finding many keywords in a long text by walking the trie from every offset with
+ * allPrefixesOf() and by a single pass of an Aho-Corasick matcher, both on a buffer and on a
+ * stream that we generate as we go (so the text is never in memory).
+ */
+public class AhoCorasickExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of keywords.
+   */
+  static final int KEYWORDS = 20000;
+
+  /**
+   * The number of characters of text.
+   */
+  static final int LENGTH = 20000000;
+
+  /**
+   * The number of characters in the stream.
+   */
+  static final long STREAM_LENGTH = 2000000000L;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make a text of random words separated by spaces.
+   */
+  static void text(Random random, char[] text) {
+    int i = 0;
+    while (i < text.length) {
+      String word = AdaptiveRadixTrieExperiment.word(random);
+      for (int j = 0; (j < word.length()) && (i < text.length); j++) {
+        text[i++] = word.charAt(j);
+      } // for
+      if (i < text.length) {
+        text[i++] = ' ';
+      } // if
+    } // while
+  } // text(Random, char[])
+
+  /**
+   * Find the matches by walking the trie from every offset.
+   */
+  static long naive(Trie<String> trie, char[] text) {
+    long count = 0;
+    CharBuffer buffer = CharBuffer.wrap(text);
+    for (int i = 0; i < text.length; i++) {
+      buffer.position(i);
+      count += trie.allPrefixesOf(buffer).length;
+    } // for
+    return count;
+  } // naive(Trie, char[])
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws IOException {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    Trie<String> trie = new Trie<String>();
+    while (trie.size() < KEYWORDS) {
+      String word = AdaptiveRadixTrieExperiment.word(random);
+      trie.set(word.substring(0, Math.min(word.length(), 2 + random.nextInt(5))), word);
+    } // while
+    char[] text = new char[LENGTH];
+    text(random, text);
+
+    long start = System.nanoTime();
+    AhoCorasick<String> matcher = trie.matcher();
+    pen.printf("%d keywords: built %d states in %.0f ms%n", trie.size(), matcher.stateCount(),
+        (System.nanoTime() - start) / 1e6);
+
+    long[] sink = new long[1];
+    for (int round = 0; round < 3; round++) {
+      start = System.nanoTime();
+      long naive = naive(trie, text);
+      double naiveTime = (System.nanoTime() - start) / 1e6;
+
+      start = System.nanoTime();
+      long found = matcher.scan(CharBuffer.wrap(text), (s, length, value) -> sink[0] += length);
+      double scanTime = (System.nanoTime() - start) / 1e6;
+
+      if (naive != found) {
+        throw new IllegalStateException("the match counts differ");
+      } // if
+      pen.printf("%d chars, %d matches: allPrefixesOf %.0f ms, matcher %.0f ms%n", LENGTH,
+          found, naiveTime, scanTime);
+    } // for
+
+    // A long stream that repeats the text, to show that memory stays flat.
+    Reader stream = new Reader() {
+      long position = 0;
+
+      @Override
+      public int read(char[] buffer, int offset, int length) {
+        if (position >= STREAM_LENGTH) {
+          return -1;
+        } // if
+        int count = (int) Math.min(length, STREAM_LENGTH - position);
+        for (int i = 0; i < count; i++) {
+          buffer[offset + i] = text[(int) ((position + i) % LENGTH)];
+        } // for
+        position += count;
+        return count;
+      } // read(char[], int, int)
+
+      @Override
+      public void close() {
+      } // close()
+    };
+    long before = RadixTrieExperiment.usedHeap();
+    start = System.nanoTime();
+    long found = matcher.scan(stream, (s, length, value) -> sink[0] += length);
+    pen.printf("%d streamed chars, %d matches: %.0f ms, heap grew %.1f MB%n", STREAM_LENGTH,
+        found, (System.nanoTime() - start) / 1e6,
+        (RadixTrieExperiment.usedHeap() - before) / 1e6);
+    pen.println(sink[0] + " matched chars");
+  } // main(String[])
+} // class AhoCorasickExperiment
@@ -0,0 +1,106 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of Aho-Corasick matchers.
+ */
+public class AhoCorasickTests {
+
+  /**
+   * Collect the matches of a matcher in a buffer as "start:key=value" strings.
+   */
+  static List<String> matches(AhoCorasick<String> matcher, String text) {
+    ArrayList<String> result = new ArrayList<String>();
+    long count = matcher.scan(CharBuffer.wrap(text), (start, length, value) -> result
+        .add(start + ":" + text.substring((int) start, (int) start + length) + "=" + value));
+    assertEquals(result.size(), count);
+    return result;
+  } // matches(AhoCorasick, String)
+
+  /**
+   * The textbook example finds every key, including keys inside other keys.
+   */
+  @Test
+  public void ushersTest() throws IOException {
+    Trie<String> trie = new Trie<String>();
+    for (String key : new String[] {"he", "she", "his", "hers"}) {
+      trie.set(key, key.toUpperCase());
+    } // for
+    AhoCorasick<String> matcher = trie.matcher();
+    assertEquals(List.of("1:she=SHE", "2:he=HE", "2:hers=HERS"), matches(matcher, "ushers"));
+    assertEquals(List.of("0:his=HIS", "3:She=SHE", "4:he=HE"), matches(matcher, "hisShe"));
+    assertEquals(List.of(), matches(matcher, "hxs sh e"));
+    assertEquals(List.of(), matches(matcher, ""));
+
+    // The empty key never matches, and later changes to the trie don't matter.
+    trie.set("", "EMPTY");
+    trie.set("u", "U");
+    assertEquals(List.of("1:she=SHE", "2:he=HE", "2:hers=HERS"), matches(matcher, "ushers"));
+    assertEquals("u", matches(trie.matcher(), "ushers").get(0).substring(2, 3));
+
+    // The same matches from a stream.
+    ArrayList<String> found = new ArrayList<String>();
+    matcher.scan(new StringReader("ushers"), (start, length, value) -> found.add(start + value));
+    assertEquals(List.of("1SHE", "2HE", "2HERS"), found);
+  } // ushersTest()
+
+  /**
+   * A matcher finds the same matches as checking every substring, even when the stream hands
+   * us the text a few characters at a time.
+   */
+  @Test
+  public void randomTest() throws IOException {
+    Random random = new Random(1);
+    Trie<String> trie = new Trie<String>();
+    for (int i = 0; i < 200; i++) {
+      String key = randomString(random, 1 + random.nextInt(5));
+      trie.set(key, key);
+    } // for
+    AhoCorasick<String> matcher = trie.matcher();
+    String text = randomString(random, 5000);
+
+    ArrayList<String> expected = new ArrayList<String>();
+    for (int end = 1; end <= text.length(); end++) {
+      for (int start = Math.max(0, end - 5); start < end; start++) {
+        String sub = text.substring(start, end);
+        if (trie.containsKey(sub)) {
+          expected.add(start + ":" + sub + "=" + trie.get(sub));
+        } // if
+      } // for
+    } // for
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, matches(matcher, text));
+
+    // A reader that never returns more than three characters at once.
+    Reader trickle = new StringReader(text) {
+      @Override
+      public int read(char[] buffer, int offset, int length) throws IOException {
+        return super.read(buffer, offset, Math.min(length, 3));
+      } // read(char[], int, int)
+    };
+    ArrayList<String> streamed = new ArrayList<String>();
+    matcher.scan(trickle, (start, length, value) -> streamed
+        .add(start + ":" + text.substring((int) start, (int) start + length) + "=" + value));
+    assertEquals(expected, streamed);
+  } // randomTest()
+
+  /**
+   * Make a random string over a small alphabet, so that keys overlap a lot.
+   */
+  static String randomString(Random random, int length) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      result.append("abcAB.".charAt(random.nextInt(6)));
+    } // for
+    return result.toString();
+  } // randomString(Random, int)
+} // class AhoCorasickTests
@@ -0,0 +1,162 @@
+package problem3;
+
+import java.util.Arrays;
+
+/**
+ * The characters a trie can use in its keys, and the slot of each one in a node's array of
+ * children. A trie's nodes have exactly one slot per character of its alphabet, so a trie of DNA
+ * or hex keys uses a fraction of the memory of one that has room for every letter.
+ *
+ * Tries put keys in the order of their characters' slots. A character outside the alphabet
+ * has slot -1; tries refuse to set keys that contain one, and never find them.
+ *
+ * Subclasses may map characters any way they like, provided each slot is in [0, size()).
+ *
+ * @author Chris Won
+ */
+public class Alphabet {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Letters, with case folded, and one more slot, after 'z', shared by every other character.
+   * This is the alphabet of tries made without one.
+   */
+  public static final Alphabet LETTERS =
+      new Alphabet("abcdefghijklmnopqrstuvwxyz", true, true);
+
+  /**
+   * The four nucleotides, in either case.
+   */
+  public static final Alphabet DNA = of("ACGT", true);
+
+  /**
+   * Hexadecimal digits, in either case.
+   */
+  public static final Alphabet HEX = of("0123456789abcdef", true);
+
+  /**
+   * Lowercase letters only.
+   */
+  public static final Alphabet LOWERCASE = of("abcdefghijklmnopqrstuvwxyz", false);
+
+  /**
+   * Digits and letters, case sensitive, in ASCII order.
+   */
+  public static final Alphabet ALPHANUMERIC =
+      of("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz", false);
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The number of slots.
+   */
+  int size;
+
+  /**
+   * The slot of each character below slots.length, or -1.
+   */
+  short[] slots;
+
+  /**
+   * The slot of every other character, or -1.
+   */
+  int other;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an alphabet of size slots, for subclasses that override index.
+   */
+  protected Alphabet(int size) {
+    if (size <= 0)
+      throw new IllegalArgumentException("an alphabet needs at least one slot");
+    this.size = size;
+    this.slots = new short[0];
+    this.other = -1;
+  } // Alphabet(int)
+
+  /**
+   * Create an alphabet that gives each of characters a slot, in order. If foldCase is set,
+   * each letter's other case shares its slot. If shareOther is set, one last slot holds every
+   * other character.
+   */
+  Alphabet(String characters, boolean foldCase, boolean shareOther) {
+    int max = 0;
+    for (int i = 0; i < characters.length(); i++) {
+      char ch = characters.charAt(i);
+      max = Math.max(max, Math.max(Character.toLowerCase(ch), Character.toUpperCase(ch)));
+    } // for
+    this.slots = new short[max + 1];
+    Arrays.fill(this.slots, (short) -1);
+    for (int i = 0; i < characters.length(); i++) {
+      char ch = characters.charAt(i);
+      if (this.slots[ch] >= 0)
+        throw new IllegalArgumentException("repeated character: " + ch);
+      this.slots[ch] = (short) i;
+      if (foldCase) {
+        this.slots[Character.toLowerCase(ch)] = (short) i;
+        this.slots[Character.toUpperCase(ch)] = (short) i;
+      } // if
+    } // for
+    this.size = characters.length() + (shareOther ? 1 : 0);
+    this.other = shareOther ? characters.length() : -1;
+    if (this.size == 0)
+      throw new IllegalArgumentException("an alphabet needs at least one slot");
+  } // Alphabet(String, boolean, boolean)
+
+  /**
+   * Make an alphabet of exactly the given characters, in that order.
+   */
+  public static Alphabet of(String characters) {
+    return of(characters, false);
+  } // of(String)
+
+  /**
+   * Make an alphabet of the given characters, in that order, optionally with case folded.
+   *
+   * @throws IllegalArgumentException if a character is repeated or there are none.
+   */
+  public static Alphabet of(String characters, boolean foldCase) {
+    if (characters.length() > Short.MAX_VALUE)
+      throw new IllegalArgumentException("too many characters");
+    return new Alphabet(characters, foldCase, false);
+  } // of(String, boolean)
+
+  // +---------+---------------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get a hash of the slot of every character, which covers the characters, their order, and
+   * how their case folds. Alphabets that give every character the same slot have the same
+   * fingerprint, so files can record which alphabet wrote them.
+   */
+  public int fingerprint() {
+    int hash = this.size;
+    for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+      hash = 31 * hash + index((char) ch);
+    } // for
+    return hash;
+  } // fingerprint()
+
+  /**
+   * Get the slot of a character, or -1 if it isn't in the alphabet.
+   */
+  public int index(char ch) {
+    return ((ch < this.slots.length) && (this.slots[ch] >= 0)) ? this.slots[ch] : this.other;
+  } // index(char)
+
+  /**
+   * Get the number of slots.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+} // class Alphabet
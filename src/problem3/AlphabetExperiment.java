@@ -0,0 +1,79 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Compare the heap used, and the time taken, by tries of DNA k-mers and of hex ids built over
+ * the default alphabet of letters and over alphabets sized to the keys.
+ */
+public class AlphabetExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of keys in each trie.
+   */
+  static final int KEYS = 500000;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make random keys of some length from the given characters.
+   */
+  static String[] keys(Random random, String characters, int length) {
+    String[] keys = new String[KEYS];
+    char[] key = new char[length];
+    for (int i = 0; i < KEYS; i++) {
+      for (int j = 0; j < length; j++) {
+        key[j] = characters.charAt(random.nextInt(characters.length()));
+      } // for
+      keys[i] = new String(key);
+    } // for
+    return keys;
+  } // keys(Random, String, int)
+
+  /**
+   * Build a trie of keys over an alphabet, and report its size, nodes, heap, and time.
+   */
+  static void measure(PrintWriter pen, String name, Alphabet alphabet, String[] keys) {
+    long before = RadixTrieExperiment.usedHeap();
+    long start = System.nanoTime();
+    Trie<String> trie = new Trie<String>(alphabet);
+    for (String key : keys) {
+      trie.set(key, key);
+    } // for
+    long hits = 0;
+    for (String key : keys) {
+      hits += trie.containsKey(key) ? 1 : 0;
+    } // for
+    double time = (System.nanoTime() - start) / 1e6;
+    long heap = RadixTrieExperiment.usedHeap() - before;
+    pen.printf("%-22s %7d keys %8d nodes %7.1f MB %6.0f ms (%d hits)%n", name, trie.size(),
+        trie.nodeCount(trie.root), heap / 1e6, time, hits);
+  } // measure(PrintWriter, String, Alphabet, String[])
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    String[] kmers = keys(random, "ACGT", 20);
+    String[] ids = keys(random, "0123456789abcdef", 12);
+
+    for (int round = 0; round < 2; round++) {
+      measure(pen, "DNA over LETTERS", Alphabet.LETTERS, kmers);
+      measure(pen, "DNA over DNA", Alphabet.DNA, kmers);
+      // Every digit shares one slot among the letters, so distinct ids collide.
+      measure(pen, "hex over LETTERS", Alphabet.LETTERS, ids);
+      measure(pen, "hex over ALPHANUMERIC", Alphabet.ALPHANUMERIC, ids);
+      measure(pen, "hex over HEX", Alphabet.HEX, ids);
+    } // for
+  } // main(String[])
+} // class AlphabetExperiment
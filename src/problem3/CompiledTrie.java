@@ -0,0 +1,427 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import utils.MiscUtils;
+import utils.Pair;
+import utils.SimpleMap;
+
+/**
+ * An immutable double-array trie, compiled from a Trie by Trie.compile(). It answers the same
+ * lookups as the trie it came from (with the same folding of characters) but keeps its
+ * transitions in two int arrays rather than in a tree of nodes.
+ *
+ * @author Chris Won
+ */
+public class CompiledTrie<V> implements SimpleMap<String, V> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * Each state of the trie is an index into the arrays. A character ch has the code
+   * alphabet.index(ch) + 1 (so 1 to the size of the alphabet; we skip 0 so that a state's first
+   * child can't land on the state itself, and a character outside the alphabet has none). The
+   * transition from state s on code c goes to t = base[s] + c, and is valid only if check[t] ==
+   * s. So each step of a lookup is two array reads, and the states of different nodes
+   * interleave in the same arrays.
+   *
+   * We build by walking the trie breadth-first. For each node, we search for a base at which
+   * every one of its children's slots is free. A search from the start of the arrays is slow
+   * once they fill up, since nodes with many children only fit at the far end, so each search
+   * starts where the last search for a node with as many children ended. That leaves a few
+   * slots unused, but keeps construction close to linear.
+   *
+   * Values and original keys are kept in arrays indexed by state; keys[s] is null unless state s
+   * ends a key. (We keep the keys so that prefix iteration can return them as they were set,
+   * rather than as folded codes.)
+   *
+   * set and remove throw UnsupportedOperationException.
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The state of the root.
+   */
+  static final int ROOT = 0;
+
+  /**
+   * The check value of a free slot.
+   */
+  static final int FREE = -1;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The characters of the trie we compiled.
+   */
+  Alphabet alphabet;
+
+  /**
+   * The number of character codes.
+   */
+  int codeCount;
+
+  /**
+   * The base of each state's transitions.
+   */
+  int[] base;
+
+  /**
+   * The state that owns each slot, or FREE.
+   */
+  int[] check;
+
+  /**
+   * The key that ends at each state, or null.
+   */
+  String[] keys;
+
+  /**
+   * The value for each state that ends a key.
+   */
+  Object[] values;
+
+  /**
+   * The number of keys.
+   */
+  int size;
+
+  /**
+   * The number of slots in use, for reporting.
+   */
+  int states;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Compile the trie over alphabet rooted at root.
+   */
+  CompiledTrie(Alphabet alphabet, TrieNode root) {
+    this.alphabet = alphabet;
+    this.codeCount = root.width();
+    int capacity = 1024;
+    this.base = new int[capacity];
+    this.check = new int[capacity];
+    Arrays.fill(this.check, FREE);
+    this.keys = new String[capacity];
+    this.values = new Object[capacity];
+    this.size = 0;
+
+    this.check[ROOT] = ROOT;
+    this.states = 1;
+    record(root, ROOT);
+
+    // The lowest slot that might still be free, and, for each number of children, where the
+    // last search for that many ended.
+    int firstFree = 1;
+    int[] resume = new int[this.codeCount + 1];
+    int[] codes = new int[this.codeCount];
+    TrieNode[] children = new TrieNode[this.codeCount];
+    ArrayDeque<Pair<TrieNode, Integer>> queue = new ArrayDeque<Pair<TrieNode, Integer>>();
+    queue.add(new Pair<TrieNode, Integer>(root, ROOT));
+    while (!queue.isEmpty()) {
+      Pair<TrieNode, Integer> pair = queue.remove();
+      int count = children(pair.key(), codes, children);
+      if (count == 0) {
+        continue;
+      } // if
+
+      while (this.check[firstFree] != FREE) {
+        firstFree++;
+      } // while
+      int b = Math.max(1, Math.max(firstFree, resume[count]) - codes[0]);
+      while (!fits(b, codes, count)) {
+        b++;
+      } // while
+      resume[count] = b + codes[0];
+
+      int state = pair.value();
+      this.base[state] = b;
+      for (int i = 0; i < count; i++) {
+        int t = b + codes[i];
+        this.check[t] = state;
+        this.states++;
+        record(children[i], t);
+        queue.add(new Pair<TrieNode, Integer>(children[i], t));
+      } // for
+    } // while
+  } // CompiledTrie(Alphabet, TrieNode)
+
+  // +-------------------+-----------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public V set(String key, V value) {
+    throw new UnsupportedOperationException("compiled tries are immutable");
+  } // set(String, V)
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    int state = find(key);
+    if ((state < 0) || (this.keys[state] == null))
+      throw new IndexOutOfBoundsException("key not found");
+
+    return (V) this.values[state];
+  } // get(String)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public boolean containsKey(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    int state = find(key);
+    return (state >= 0) && (this.keys[state] != null);
+  } // containsKey(String)
+
+  @Override
+  public V remove(String key) {
+    throw new UnsupportedOperationException("compiled tries are immutable");
+  } // remove(String)
+
+  @Override
+  public Iterator<String> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public Iterator<V> values() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
+  } // values()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    Iterator<Pair<String, V>> it = this.iterator();
+    while (it.hasNext()) {
+      Pair<String, V> pair = it.next();
+      pen.println(pair.key() + ": " + pair.value());
+    } // while
+  } // dump(PrintWriter)
+
+  // +------------------+--------------------------------------------
+  // | Iterable methods |
+  // +------------------+
+
+  /**
+   * Iterate all the key/value pairs, in alphabetical order by (folded) key.
+   */
+  @Override
+  public Iterator<Pair<String, V>> iterator() {
+    return new PrefixIterator(ROOT);
+  } // iterator()
+
+  // +----------------+--------------------------------------------------
+  // | Prefix methods |
+  // +----------------+
+
+  /**
+   * Determine if any key starts with prefix.
+   */
+  public boolean hasPrefix(String prefix) {
+    return find(prefix) >= 0;
+  } // hasPrefix(String)
+
+  /**
+   * Iterate the pairs whose keys start with prefix, in alphabetical order by (folded) key.
+   */
+  public Iterator<Pair<String, V>> withPrefix(String prefix) {
+    return new PrefixIterator(find(prefix));
+  } // withPrefix(String)
+
+  // +------+------------------------------------------------------------
+  // | Misc |
+  // +------+
+
+  /**
+   * Get the number of states and the length of the arrays, for reporting.
+   */
+  public String occupancy() {
+    return this.states + " states in " + this.base.length + " slots";
+  } // occupancy()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get the code for a character, or 0 if it isn't in the alphabet.
+   */
+  int code(char ch) {
+    return this.alphabet.index(ch) + 1;
+  } // code(char)
+
+  /**
+   * Gather the children of a node and their codes, in increasing order of code. Returns the
+   * number of children.
+   */
+  static int children(TrieNode node, int[] codes, TrieNode[] children) {
+    int count = 0;
+    for (int slot = 0; slot < node.width(); slot++) {
+      TrieNode child = node.nextAt(slot);
+      if (child != null) {
+        codes[count] = slot + 1;
+        children[count++] = child;
+      } // if
+    } // for
+    return count;
+  } // children(TrieNode, int[], TrieNode[])
+
+  /**
+   * Find the state for a key, or -1 if there is none.
+   */
+  int find(String key) {
+    int state = ROOT;
+    for (int i = 0; i < key.length(); i++) {
+      int code = code(key.charAt(i));
+      int t = this.base[state] + code;
+      if ((code == 0) || (t >= this.check.length) || (this.check[t] != state))
+        return -1;
+      state = t;
+    } // for
+    return state;
+  } // find(String)
+
+  /**
+   * Determine if all the slots base + codes[i] are free, growing the arrays as necessary.
+   */
+  boolean fits(int b, int[] codes, int count) {
+    int last = b + codes[count - 1];
+    if (last >= this.check.length) {
+      grow(Math.max(last + 1, this.check.length * 2));
+    } // if
+    for (int i = 0; i < count; i++) {
+      if (this.check[b + codes[i]] != FREE) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // fits(int, int[], int)
+
+  /**
+   * Grow the arrays to a new capacity.
+   */
+  void grow(int capacity) {
+    int old = this.check.length;
+    this.base = Arrays.copyOf(this.base, capacity);
+    this.check = Arrays.copyOf(this.check, capacity);
+    Arrays.fill(this.check, old, capacity, FREE);
+    this.keys = Arrays.copyOf(this.keys, capacity);
+    this.values = Arrays.copyOf(this.values, capacity);
+  } // grow(int)
+
+  /**
+   * Record the key and value, if any, that a node holds at a state.
+   */
+  void record(TrieNode node, int state) {
+    if (node.hasKey()) {
+      this.keys[state] = node.key();
+      this.values[state] = node.value();
+      this.size++;
+    } // if
+  } // record(TrieNode, int)
+
+  // +---------------+---------------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * An iterator over the keys at or below a state, depth first.
+   */
+  class PrefixIterator implements Iterator<Pair<String, V>> {
+    /**
+     * The states on the path from the starting state.
+     */
+    int[] path = new int[16];
+
+    /**
+     * For each state on the path, the next code to try.
+     */
+    int[] nextCode = new int[16];
+
+    /**
+     * The depth of the current state, or -1 once we're done.
+     */
+    int depth;
+
+    /**
+     * The state whose pair we return next, or -1 if we haven't found it.
+     */
+    int upcoming;
+
+    /**
+     * Start iterating at a state; a negative state iterates nothing.
+     */
+    PrefixIterator(int start) {
+      if (start < 0) {
+        this.depth = -1;
+        this.upcoming = -1;
+      } else {
+        this.depth = 0;
+        this.path[0] = start;
+        this.nextCode[0] = 1;
+        this.upcoming = (keys[start] != null) ? start : -1;
+      } // if/else
+    } // PrefixIterator(int)
+
+    @Override
+    public boolean hasNext() {
+      while ((this.upcoming < 0) && (this.depth >= 0)) {
+        int state = this.path[this.depth];
+        int code = this.nextCode[this.depth];
+        int b = base[state];
+        while ((code <= codeCount)
+            && ((b + code >= check.length) || (check[b + code] != state))) {
+          code++;
+        } // while
+        if (code > codeCount) {
+          this.depth--;
+        } else {
+          this.nextCode[this.depth] = code + 1;
+          if (++this.depth == this.path.length) {
+            this.path = Arrays.copyOf(this.path, this.depth * 2);
+            this.nextCode = Arrays.copyOf(this.nextCode, this.depth * 2);
+          } // if
+          int child = b + code;
+          this.path[this.depth] = child;
+          this.nextCode[this.depth] = 1;
+          if (keys[child] != null) {
+            this.upcoming = child;
+          } // if
+        } // if/else
+      } // while
+      return this.upcoming >= 0;
+    } // hasNext()
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Pair<String, V> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      Pair<String, V> result = new Pair<String, V>(keys[this.upcoming], (V) values[this.upcoming]);
+      this.upcoming = -1;
+      return result;
+    } // next()
+  } // class PrefixIterator
+} // class CompiledTrie<V>
@@ -0,0 +1,79 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Random;
+import utils.SimpleMap;
+
+/**
+ * Compare the lookup throughput of a Trie with that of the double-array trie it compiles to.
+ */
+public class CompiledTrieExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of words we store.
+   */
+  static final int KEYS = 300000;
+
+  /**
+   * The number of lookups in each round.
+   */
+  static final int LOOKUPS = 5000000;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Look up every query, repeatedly, returning millions of lookups per second.
+   */
+  static double lookups(SimpleMap<String, String> map, String[] queries) {
+    int found = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (map.containsKey(queries[i % queries.length])) {
+        found++;
+      } // if
+    } // for
+    long elapsed = System.nanoTime() - start;
+    if (found == 0) {
+      throw new IllegalStateException("found nothing");
+    } // if
+    return LOOKUPS / (elapsed / 1e3);
+  } // lookups(SimpleMap, String[])
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    Trie<String> trie = new Trie<String>();
+    for (int i = 0; i < KEYS; i++) {
+      String word = AdaptiveRadixTrieExperiment.word(random);
+      trie.set(word, word);
+    } // for
+    // Half the queries hit, half (probably) miss.
+    String[] queries = new String[KEYS];
+    Random replay = new Random(42);
+    for (int i = 0; i < KEYS; i++) {
+      String word = AdaptiveRadixTrieExperiment.word(replay);
+      queries[i] = ((i & 1) == 0) ? word : AdaptiveRadixTrieExperiment.word(random);
+    } // for
+
+    long start = System.nanoTime();
+    CompiledTrie<String> compiled = trie.compile();
+    pen.printf("compiled %d keys in %.1f ms: %s%n", compiled.size(),
+        (System.nanoTime() - start) / 1e6, compiled.occupancy());
+
+    // Warm up, then measure.
+    lookups(trie, queries);
+    lookups(compiled, queries);
+    pen.printf("Trie          %6.2f M lookups/s%n", lookups(trie, queries));
+    pen.printf("CompiledTrie  %6.2f M lookups/s%n", lookups(compiled, queries));
+  } // main(String[])
+} // class CompiledTrieExperiment
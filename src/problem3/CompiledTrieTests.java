@@ -0,0 +1,98 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.Pair;
+
+/**
+ * Tests of compiled (double-array) tries.
+ */
+public class CompiledTrieTests {
+
+  /**
+   * The words we put in the trie.
+   */
+  static final String[] words = { "a", "an", "ant", "anteater", "antelope", "ark", "art", "bear",
+      "bison", "tar", "tea", "tent", "red fox", "zebra" };
+
+  /**
+   * The trie we compile.
+   */
+  Trie<String> trie;
+
+  /**
+   * The compiled version.
+   */
+  CompiledTrie<String> compiled;
+
+  /**
+   * Build and compile a trie.
+   */
+  @BeforeEach
+  public void setupCompiledTrieTests() {
+    trie = new Trie<String>();
+    for (String word : words) {
+      trie.set(word, word.toUpperCase());
+    } // for
+    compiled = trie.compile();
+  } // setupCompiledTrieTests()
+
+  /**
+   * Collect the keys from an iterator of pairs.
+   */
+  static List<String> keys(Iterator<Pair<String, String>> it) {
+    ArrayList<String> result = new ArrayList<String>();
+    while (it.hasNext()) {
+      result.add(it.next().key());
+    } // while
+    return result;
+  } // keys(Iterator)
+
+  /**
+   * Every key compiles, and nothing else does.
+   */
+  @Test
+  public void getTest() {
+    assertEquals(words.length, compiled.size());
+    for (String word : words) {
+      assertTrue(compiled.containsKey(word), word);
+      assertEquals(word.toUpperCase(), compiled.get(word));
+    } // for
+    for (String missing : new String[] { "", "ante", "b", "tears", "zebras", "red" }) {
+      assertFalse(compiled.containsKey(missing), missing);
+      assertThrows(IndexOutOfBoundsException.class, () -> compiled.get(missing));
+    } // for
+    // We fold case just as the trie does.
+    assertEquals("BEAR", compiled.get("BeAr"));
+  } // getTest()
+
+  /**
+   * Prefix queries see exactly the keys below the prefix, in order.
+   */
+  @Test
+  public void prefixTest() {
+    assertEquals(List.of("an", "ant", "anteater", "antelope"), keys(compiled.withPrefix("an")));
+    assertEquals(List.of("tar", "tea", "tent"), keys(compiled.withPrefix("t")));
+    assertEquals(List.of(), keys(compiled.withPrefix("q")));
+    assertEquals(words.length, keys(compiled.iterator()).size());
+    assertTrue(compiled.hasPrefix("antel"));
+    assertFalse(compiled.hasPrefix("antl"));
+  } // prefixTest()
+
+  /**
+   * The compiled trie is read-only and independent of its source.
+   */
+  @Test
+  public void immutableTest() {
+    assertThrows(UnsupportedOperationException.class, () -> compiled.set("yak", "YAK"));
+    assertThrows(UnsupportedOperationException.class, () -> compiled.remove("a"));
+    trie.set("yak", "YAK");
+    trie.set("bear", "GRIZZLY");
+    assertFalse(compiled.containsKey("yak"));
+    assertEquals("BEAR", compiled.get("bear"));
+  } // immutableTest()
+} // class CompiledTrieTests
@@ -0,0 +1,998 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import utils.MiscUtils;
+import utils.Pair;
+import utils.SimpleMap;
+
+/**
+ * A concurrent, lock-free hash trie (a Ctrie, after Prokopec et al., "Concurrent Tries with
+ * Efficient Non-Blocking Snapshots"). Any number of threads may get, set, and remove at once,
+ * and snapshot() takes a consistent copy in constant time.
+ *
+ * Unlike Trie, keys are exact: "Cat" and "cat" are different keys.
+ *
+ * @author Chris Won
+ */
+public class Ctrie implements SimpleMap<String, String> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * The trie branches on the hash of the key, five bits per level. Each level is an INode (an
+   * indirection node) that points to a main node: a CNode (a bitmap and a packed array of
+   * branches, each an INode or an SNode holding one pair), a TNode (a tombstone for an SNode
+   * whose CNode shrank to just it), or an LNode (a list of pairs whose hashes agree in all 32
+   * bits). Main nodes never change; every update builds a new main node and swings the INode's
+   * pointer to it with a compare-and-set, retrying from the root if another thread got there
+   * first. Readers never wait.
+   *
+   * Removal leaves a TNode when a CNode drops to a single pair; the next thread to pass cleans
+   * it up by pulling the pair into the parent, so the trie stays no deeper than it needs to be.
+   *
+   * For snapshots, every INode and CNode carries a generation. snapshot() swaps the root for a
+   * copy in a new generation, using RDCSS (a double compare, single swap) so that the swap only
+   * happens if the root's main node is still what it was. Both tries then share every node below
+   * the root. An update that meets an INode from an older generation first copies the CNode
+   * above it into its own generation (renewing it), and main node updates go through GCAS,
+   * which only commits if the trie's root is still in the INode's generation. So neither trie
+   * ever sees the other's changes, and copying is lazy: we only copy what we change.
+   *
+   * Iteration and size() work on a read-only snapshot, so they are consistent and never throw
+   * ConcurrentModificationException; size() therefore takes linear time. Iterators do not
+   * support remove.
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The result of a lookup for a key that isn't there. (We can't use null, since null is a legal
+   * value.)
+   */
+  static final Object NOT_FOUND = new Object();
+
+  /**
+   * The result of an operation that lost a race and must start again from the root.
+   */
+  static final Object RESTART = new Object();
+
+  /**
+   * Bits of hash per level.
+   */
+  static final int BITS = 5;
+
+  /**
+   * The level below which the hash is used up.
+   */
+  static final int MAX_LEVEL = 35;
+
+  /**
+   * For swapping the root.
+   */
+  static final AtomicReferenceFieldUpdater<Ctrie, Object> ROOT =
+      AtomicReferenceFieldUpdater.newUpdater(Ctrie.class, Object.class, "root");
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The root: an INode, or, while a snapshot is being taken, an RdcssDescriptor.
+   */
+  volatile Object root;
+
+  /**
+   * Is this a read-only snapshot?
+   */
+  final boolean readOnly;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, trie.
+   */
+  public Ctrie() {
+    this(emptyRoot(), false);
+  } // Ctrie()
+
+  /**
+   * Create a trie with a particular root.
+   */
+  Ctrie(INode root, boolean readOnly) {
+    this.root = root;
+    this.readOnly = readOnly;
+  } // Ctrie(INode, boolean)
+
+  // +-------------------+-----------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public String set(String key, String value) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+    if (this.readOnly)
+      throw new UnsupportedOperationException("read-only snapshot");
+
+    int hash = hash(key);
+    Object result;
+    do {
+      INode r = readRoot(false);
+      result = insert(r, key, value, hash, 0, null, r.gen);
+    } while (result == RESTART);
+    return (result == NOT_FOUND) ? null : (String) result;
+  } // set(String, String)
+
+  @Override
+  public String get(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    Object result = this.lookup(key);
+    if (result == NOT_FOUND)
+      throw new IndexOutOfBoundsException("key not found");
+
+    return (String) result;
+  } // get(String)
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Iterator<Pair<String, String>> it = this.iterator(); it.hasNext(); it.next()) {
+      size++;
+    } // for
+    return size;
+  } // size()
+
+  @Override
+  public boolean containsKey(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    return this.lookup(key) != NOT_FOUND;
+  } // containsKey(String)
+
+  @Override
+  public String remove(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+    if (this.readOnly)
+      throw new UnsupportedOperationException("read-only snapshot");
+
+    int hash = hash(key);
+    Object result;
+    do {
+      INode r = readRoot(false);
+      result = remove(r, key, hash, 0, null, r.gen);
+    } while (result == RESTART);
+    return (result == NOT_FOUND) ? null : (String) result;
+  } // remove(String)
+
+  @Override
+  public Iterator<String> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public Iterator<String> values() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
+  } // values()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    Iterator<Pair<String, String>> it = this.iterator();
+    while (it.hasNext()) {
+      Pair<String, String> pair = it.next();
+      pen.println(pair.key() + ": " + pair.value());
+    } // while
+  } // dump(PrintWriter)
+
+  // +------------------+--------------------------------------------
+  // | Iterable methods |
+  // +------------------+
+
+  /**
+   * Iterate the pairs of a read-only snapshot, in no particular order.
+   */
+  @Override
+  public Iterator<Pair<String, String>> iterator() {
+    return new CtrieIterator(this.readOnlySnapshot());
+  } // iterator()
+
+  // +-----------+-------------------------------------------------------
+  // | Snapshots |
+  // +-----------+
+
+  /**
+   * Take a snapshot of the trie, which may be changed independently of this one. Takes constant
+   * time; the two tries copy the nodes they share as they change them.
+   *
+   * @throws UnsupportedOperationException if this trie is a read-only snapshot.
+   */
+  public Ctrie snapshot() {
+    if (this.readOnly)
+      throw new UnsupportedOperationException("read-only snapshot");
+
+    while (true) {
+      INode r = readRoot(false);
+      MainNode main = r.gcasRead(this);
+      if (rdcssRoot(r, main, r.copyToGen(new Gen(), this))) {
+        return new Ctrie(r.copyToGen(new Gen(), this), false);
+      } // if
+    } // while
+  } // snapshot()
+
+  /**
+   * Take a snapshot of the trie that can't be changed. Takes constant time, and is cheaper than
+   * snapshot() since nothing is ever copied on behalf of the snapshot.
+   */
+  public Ctrie readOnlySnapshot() {
+    if (this.readOnly)
+      return this;
+
+    while (true) {
+      INode r = readRoot(false);
+      MainNode main = r.gcasRead(this);
+      if (rdcssRoot(r, main, r.copyToGen(new Gen(), this))) {
+        return new Ctrie(r, true);
+      } // if
+    } // while
+  } // readOnlySnapshot()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make the root of an empty trie.
+   */
+  static INode emptyRoot() {
+    Gen gen = new Gen();
+    return new INode(new CNode(0, new Object[0], gen), gen);
+  } // emptyRoot()
+
+  /**
+   * Spread the bits of a key's hash code, since we use the low bits first.
+   */
+  static int hash(String key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    h *= 0x85EBCA6B;
+    h ^= (h >>> 13);
+    return h;
+  } // hash(String)
+
+  /**
+   * Clean up a tombstone below an INode by compressing its CNode.
+   */
+  void clean(INode node, int level) {
+    MainNode main = node.gcasRead(this);
+    if (main instanceof CNode) {
+      node.gcas(main, ((CNode) main).toCompressed(this, level, node.gen), this);
+    } // if
+  } // clean(INode, int)
+
+  /**
+   * After a removal leaves a tombstone in node, pull its pair up into parent.
+   */
+  void cleanParent(INode parent, INode node, int hash, int level, Gen startGen) {
+    while (true) {
+      MainNode main = parent.gcasRead(this);
+      if (!(main instanceof CNode)) {
+        return;
+      } // if
+      CNode cn = (CNode) main;
+      int flag = 1 << ((hash >>> (level - BITS)) & 0x1f);
+      if ((cn.bitmap & flag) == 0) {
+        return;
+      } // if
+      int pos = Integer.bitCount(cn.bitmap & (flag - 1));
+      MainNode tomb = node.gcasRead(this);
+      if ((cn.array[pos] != node) || !(tomb instanceof TNode)) {
+        return;
+      } // if
+      MainNode updated = cn.updatedAt(pos, ((TNode) tomb).sn, node.gen).toContracted(level - BITS);
+      if (parent.gcas(cn, updated, this) || (readRoot(false).gen != startGen)) {
+        return;
+      } // if
+    } // while
+  } // cleanParent(INode, INode, int, int, Gen)
+
+  /**
+   * Insert a pair below an INode at a level. Returns the old value, NOT_FOUND if the key is new,
+   * or RESTART.
+   */
+  Object insert(INode node, String key, String value, int hash, int level, INode parent,
+      Gen startGen) {
+    while (true) {
+      MainNode main = node.gcasRead(this);
+      if (main instanceof CNode) {
+        CNode cn = (CNode) main;
+        int flag = 1 << ((hash >>> level) & 0x1f);
+        int pos = Integer.bitCount(cn.bitmap & (flag - 1));
+        if ((cn.bitmap & flag) == 0) {
+          CNode renewed = (cn.gen == node.gen) ? cn : cn.renewed(node.gen, this);
+          CNode updated = renewed.insertedAt(pos, flag, new SNode(key, value, hash), node.gen);
+          return node.gcas(cn, updated, this) ? NOT_FOUND : RESTART;
+        } // if
+        Object sub = cn.array[pos];
+        if (sub instanceof INode) {
+          INode child = (INode) sub;
+          if (startGen == child.gen) {
+            return insert(child, key, value, hash, level + BITS, node, startGen);
+          } else if (!node.gcas(cn, cn.renewed(startGen, this), this)) {
+            return RESTART;
+          } // if/else
+          // Try again with the renewed CNode.
+          continue;
+        } // if
+        SNode sn = (SNode) sub;
+        if ((sn.hash == hash) && sn.key.equals(key)) {
+          CNode updated = cn.updatedAt(pos, new SNode(key, value, hash), node.gen);
+          return node.gcas(cn, updated, this) ? sn.value : RESTART;
+        } // if
+        // Two keys now share this branch, so push them down a level.
+        CNode renewed = (cn.gen == node.gen) ? cn : cn.renewed(node.gen, this);
+        INode below = new INode(
+            CNode.dual(sn, new SNode(key, value, hash), level + BITS, node.gen), node.gen);
+        return node.gcas(cn, renewed.updatedAt(pos, below, node.gen), this) ? NOT_FOUND
+            : RESTART;
+      } else if (main instanceof TNode) {
+        clean(parent, level - BITS);
+        return RESTART;
+      } else {
+        LNode ln = (LNode) main;
+        Object old = ln.get(key);
+        return node.gcas(ln, ln.inserted(key, value, hash), this) ? old : RESTART;
+      } // if/else
+    } // while
+  } // insert(INode, String, String, int, int, INode, Gen)
+
+  /**
+   * Look up a key, returning its value or NOT_FOUND.
+   */
+  Object lookup(String key) {
+    int hash = hash(key);
+    Object result;
+    do {
+      INode r = readRoot(false);
+      result = lookup(r, key, hash, 0, null, r.gen);
+    } while (result == RESTART);
+    return result;
+  } // lookup(String)
+
+  /**
+   * Look up a key below an INode at a level. Returns the value, NOT_FOUND, or RESTART.
+   */
+  Object lookup(INode node, String key, int hash, int level, INode parent, Gen startGen) {
+    while (true) {
+      MainNode main = node.gcasRead(this);
+      if (main instanceof CNode) {
+        CNode cn = (CNode) main;
+        int flag = 1 << ((hash >>> level) & 0x1f);
+        if ((cn.bitmap & flag) == 0) {
+          return NOT_FOUND;
+        } // if
+        Object sub = cn.array[Integer.bitCount(cn.bitmap & (flag - 1))];
+        if (sub instanceof INode) {
+          INode child = (INode) sub;
+          if (this.readOnly || (startGen == child.gen)) {
+            return lookup(child, key, hash, level + BITS, node, startGen);
+          } else if (!node.gcas(cn, cn.renewed(startGen, this), this)) {
+            return RESTART;
+          } // if/else
+          continue;
+        } // if
+        SNode sn = (SNode) sub;
+        return ((sn.hash == hash) && sn.key.equals(key)) ? sn.value : NOT_FOUND;
+      } else if (main instanceof TNode) {
+        SNode sn = ((TNode) main).sn;
+        if (this.readOnly) {
+          return ((sn.hash == hash) && sn.key.equals(key)) ? sn.value : NOT_FOUND;
+        } // if
+        clean(parent, level - BITS);
+        return RESTART;
+      } else {
+        return ((LNode) main).get(key);
+      } // if/else
+    } // while
+  } // lookup(INode, String, int, int, INode, Gen)
+
+  /**
+   * Remove a key below an INode at a level. Returns the old value, NOT_FOUND, or RESTART.
+   */
+  Object remove(INode node, String key, int hash, int level, INode parent, Gen startGen) {
+    while (true) {
+      MainNode main = node.gcasRead(this);
+      if (main instanceof CNode) {
+        CNode cn = (CNode) main;
+        int flag = 1 << ((hash >>> level) & 0x1f);
+        if ((cn.bitmap & flag) == 0) {
+          return NOT_FOUND;
+        } // if
+        int pos = Integer.bitCount(cn.bitmap & (flag - 1));
+        Object sub = cn.array[pos];
+        Object result;
+        if (sub instanceof INode) {
+          INode child = (INode) sub;
+          if (startGen != child.gen) {
+            if (!node.gcas(cn, cn.renewed(startGen, this), this)) {
+              return RESTART;
+            } // if
+            continue;
+          } // if
+          result = remove(child, key, hash, level + BITS, node, startGen);
+        } else {
+          SNode sn = (SNode) sub;
+          if ((sn.hash != hash) || !sn.key.equals(key)) {
+            return NOT_FOUND;
+          } // if
+          MainNode updated = cn.removedAt(pos, flag, node.gen).toContracted(level);
+          result = node.gcas(cn, updated, this) ? sn.value : RESTART;
+        } // if/else
+        // If we left a tombstone, tidy it away.
+        if ((result != NOT_FOUND) && (result != RESTART) && (parent != null)
+            && (node.gcasRead(this) instanceof TNode)) {
+          cleanParent(parent, node, hash, level, startGen);
+        } // if
+        return result;
+      } else if (main instanceof TNode) {
+        clean(parent, level - BITS);
+        return RESTART;
+      } else {
+        LNode ln = (LNode) main;
+        Object old = ln.get(key);
+        if (old == NOT_FOUND) {
+          return NOT_FOUND;
+        } // if
+        return node.gcas(ln, ln.removed(key), this) ? old : RESTART;
+      } // if/else
+    } // while
+  } // remove(INode, String, int, int, INode, Gen)
+
+  /**
+   * Read the root. If a snapshot is in progress, help finish it, or, if abort is set, undo it.
+   */
+  INode readRoot(boolean abort) {
+    Object r = this.root;
+    return (r instanceof INode) ? (INode) r : rdcssComplete(abort);
+  } // readRoot(boolean)
+
+  /**
+   * Finish (or, if abort is set, undo) the snapshot in progress, returning the root.
+   */
+  INode rdcssComplete(boolean abort) {
+    while (true) {
+      Object r = this.root;
+      if (r instanceof INode) {
+        return (INode) r;
+      } // if
+      RdcssDescriptor desc = (RdcssDescriptor) r;
+      if (abort) {
+        if (ROOT.compareAndSet(this, desc, desc.old)) {
+          return desc.old;
+        } // if
+      } else if (desc.old.gcasRead(this) == desc.expectedMain) {
+        if (ROOT.compareAndSet(this, desc, desc.replacement)) {
+          desc.committed = true;
+          return desc.replacement;
+        } // if
+      } else if (ROOT.compareAndSet(this, desc, desc.old)) {
+        return desc.old;
+      } // if/else
+    } // while
+  } // rdcssComplete(boolean)
+
+  /**
+   * Replace the root old with replacement, provided old's main node is still expectedMain.
+   */
+  boolean rdcssRoot(INode old, MainNode expectedMain, INode replacement) {
+    RdcssDescriptor desc = new RdcssDescriptor(old, expectedMain, replacement);
+    if (ROOT.compareAndSet(this, old, desc)) {
+      rdcssComplete(false);
+      return desc.committed;
+    } // if
+    return false;
+  } // rdcssRoot(INode, MainNode, INode)
+
+  // +---------------+---------------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * An iterator over the pairs of a read-only trie, depth first.
+   */
+  static class CtrieIterator implements Iterator<Pair<String, String>> {
+    /**
+     * The trie.
+     */
+    Ctrie trie;
+
+    /**
+     * The CNode arrays on the path from the root.
+     */
+    Object[][] stack = new Object[8][];
+
+    /**
+     * For each array on the path, the next position to visit.
+     */
+    int[] positions = new int[8];
+
+    /**
+     * The depth of the current array, or -1 once we're done.
+     */
+    int depth;
+
+    /**
+     * The pairs of the LNode we're in the middle of, if any.
+     */
+    LNode list;
+
+    /**
+     * The pair we return next, or null if we haven't found it.
+     */
+    SNode upcoming;
+
+    /**
+     * Iterate a read-only trie.
+     */
+    CtrieIterator(Ctrie trie) {
+      this.trie = trie;
+      this.depth = -1;
+      descend(trie.readRoot(false));
+    } // CtrieIterator(Ctrie)
+
+    @Override
+    public boolean hasNext() {
+      while ((this.upcoming == null) && ((this.list != null) || (this.depth >= 0))) {
+        if (this.list != null) {
+          this.upcoming = this.list.sn;
+          this.list = this.list.next;
+        } else if (this.positions[this.depth] == this.stack[this.depth].length) {
+          this.depth--;
+        } else {
+          Object sub = this.stack[this.depth][this.positions[this.depth]++];
+          if (sub instanceof SNode) {
+            this.upcoming = (SNode) sub;
+          } else {
+            descend((INode) sub);
+          } // if/else
+        } // if/else
+      } // while
+      return this.upcoming != null;
+    } // hasNext()
+
+    @Override
+    public Pair<String, String> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      Pair<String, String> result =
+          new Pair<String, String>(this.upcoming.key, this.upcoming.value);
+      this.upcoming = null;
+      return result;
+    } // next()
+
+    /**
+     * Visit the main node of an INode.
+     */
+    void descend(INode node) {
+      Object main = node.gcasRead(this.trie);
+      if (main instanceof CNode) {
+        if (++this.depth == this.stack.length) {
+          this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+          this.positions = Arrays.copyOf(this.positions, this.depth * 2);
+        } // if
+        this.stack[this.depth] = ((CNode) main).array;
+        this.positions[this.depth] = 0;
+      } else if (main instanceof TNode) {
+        this.upcoming = ((TNode) main).sn;
+      } else {
+        this.list = (LNode) main;
+      } // if/else
+    } // descend(INode)
+  } // class CtrieIterator
+} // class Ctrie
+
+
+/**
+ * Generations. Only their identity matters.
+ */
+class Gen {
+} // class Gen
+
+
+/**
+ * A snapshot in progress: the root is to change from old to replacement, provided that old's
+ * main node is still expectedMain.
+ */
+class RdcssDescriptor {
+  /**
+   * The root we're replacing.
+   */
+  final INode old;
+
+  /**
+   * The main node old must still have.
+   */
+  final MainNode expectedMain;
+
+  /**
+   * The new root.
+   */
+  final INode replacement;
+
+  /**
+   * Did the replacement happen?
+   */
+  volatile boolean committed;
+
+  /**
+   * Describe a replacement.
+   */
+  RdcssDescriptor(INode old, MainNode expectedMain, INode replacement) {
+    this.old = old;
+    this.expectedMain = expectedMain;
+    this.replacement = replacement;
+  } // RdcssDescriptor(INode, MainNode, INode)
+} // class RdcssDescriptor
+
+
+/**
+ * The main nodes of a Ctrie (CNode, TNode, and LNode) and the Failed marker. A main node is
+ * immutable except for prev, which GCAS uses: it holds the main node we replaced until the
+ * replacement is committed (and is null after), or a Failed node if the replacement was
+ * rejected.
+ */
+abstract class MainNode {
+  /**
+   * For updating prev.
+   */
+  static final AtomicReferenceFieldUpdater<MainNode, MainNode> PREV =
+      AtomicReferenceFieldUpdater.newUpdater(MainNode.class, MainNode.class, "prev");
+
+  /**
+   * The main node this one replaced, while the replacement is pending.
+   */
+  volatile MainNode prev;
+} // class MainNode
+
+
+/**
+ * A marker for a GCAS that failed, holding the main node to put back.
+ */
+class Failed extends MainNode {
+  /**
+   * Create a marker that restores a main node.
+   */
+  Failed(MainNode restore) {
+    this.prev = restore;
+  } // Failed(MainNode)
+} // class Failed
+
+
+/**
+ * Indirection nodes of a Ctrie. Only the main pointer changes.
+ */
+class INode {
+  /**
+   * For updating main.
+   */
+  static final AtomicReferenceFieldUpdater<INode, MainNode> MAIN =
+      AtomicReferenceFieldUpdater.newUpdater(INode.class, MainNode.class, "main");
+
+  /**
+   * The main node.
+   */
+  volatile MainNode main;
+
+  /**
+   * The generation.
+   */
+  Gen gen;
+
+  /**
+   * Create an INode.
+   */
+  INode(MainNode main, Gen gen) {
+    this.main = main;
+    this.gen = gen;
+  } // INode(MainNode, Gen)
+
+  /**
+   * Create a copy of this INode, with the same main node, in another generation.
+   */
+  INode copyToGen(Gen gen, Ctrie trie) {
+    return new INode(gcasRead(trie), gen);
+  } // copyToGen(Gen, Ctrie)
+
+  /**
+   * Replace the main node old with replacement, provided that the trie's root is still in our
+   * generation. Returns true if we did.
+   */
+  boolean gcas(MainNode old, MainNode replacement, Ctrie trie) {
+    replacement.prev = old;
+    if (MAIN.compareAndSet(this, old, replacement)) {
+      gcasCommit(replacement, trie);
+      return replacement.prev == null;
+    } // if
+    return false;
+  } // gcas(MainNode, MainNode, Ctrie)
+
+  /**
+   * Settle a pending GCAS of main node m, returning the main node that results.
+   */
+  MainNode gcasCommit(MainNode m, Ctrie trie) {
+    while (true) {
+      if (m == null) {
+        return null;
+      } // if
+      MainNode prev = m.prev;
+      // Abort any snapshot in progress, so we see the current root.
+      INode root = trie.readRoot(true);
+      if (prev == null) {
+        return m;
+      } else if (prev instanceof Failed) {
+        if (MAIN.compareAndSet(this, m, prev.prev)) {
+          return prev.prev;
+        } // if
+        m = this.main;
+      } else if ((root.gen == this.gen) && !trie.readOnly) {
+        if (MainNode.PREV.compareAndSet(m, prev, null)) {
+          return m;
+        } // if
+      } else {
+        MainNode.PREV.compareAndSet(m, prev, new Failed(prev));
+        m = this.main;
+      } // if/else
+    } // while
+  } // gcasCommit(MainNode, Ctrie)
+
+  /**
+   * Read the main node, settling any GCAS in progress.
+   */
+  MainNode gcasRead(Ctrie trie) {
+    MainNode m = this.main;
+    return (m.prev == null) ? m : gcasCommit(m, trie);
+  } // gcasRead(Ctrie)
+} // class INode
+
+
+/**
+ * Leaf nodes of a Ctrie, holding one pair. Immutable.
+ */
+class SNode {
+  /**
+   * The key.
+   */
+  final String key;
+
+  /**
+   * The value.
+   */
+  final String value;
+
+  /**
+   * The hash of the key.
+   */
+  final int hash;
+
+  /**
+   * Create a leaf.
+   */
+  SNode(String key, String value, int hash) {
+    this.key = key;
+    this.value = value;
+    this.hash = hash;
+  } // SNode(String, String, int)
+} // class SNode
+
+
+/**
+ * Branching nodes of a Ctrie: a bitmap of which of the 32 branches exist, and the branches
+ * (INodes and SNodes), in order.
+ */
+class CNode extends MainNode {
+  /**
+   * Which branches exist.
+   */
+  final int bitmap;
+
+  /**
+   * The branches.
+   */
+  final Object[] array;
+
+  /**
+   * The generation.
+   */
+  final Gen gen;
+
+  /**
+   * Create a CNode.
+   */
+  CNode(int bitmap, Object[] array, Gen gen) {
+    this.bitmap = bitmap;
+    this.array = array;
+    this.gen = gen;
+  } // CNode(int, Object[], Gen)
+
+  /**
+   * Make the CNode holding two leaves whose hashes agree below level.
+   */
+  static MainNode dual(SNode x, SNode y, int level, Gen gen) {
+    if (level >= Ctrie.MAX_LEVEL) {
+      return new LNode(x, new LNode(y, null));
+    } // if
+    int xi = (x.hash >>> level) & 0x1f;
+    int yi = (y.hash >>> level) & 0x1f;
+    int bitmap = (1 << xi) | (1 << yi);
+    if (xi == yi) {
+      INode below = new INode(dual(x, y, level + Ctrie.BITS, gen), gen);
+      return new CNode(bitmap, new Object[] { below }, gen);
+    } // if
+    return new CNode(bitmap, (xi < yi) ? new Object[] { x, y } : new Object[] { y, x }, gen);
+  } // dual(SNode, SNode, int, Gen)
+
+  /**
+   * Make a copy with a new branch at pos.
+   */
+  CNode insertedAt(int pos, int flag, Object branch, Gen gen) {
+    Object[] result = new Object[this.array.length + 1];
+    System.arraycopy(this.array, 0, result, 0, pos);
+    result[pos] = branch;
+    System.arraycopy(this.array, pos, result, pos + 1, this.array.length - pos);
+    return new CNode(this.bitmap | flag, result, gen);
+  } // insertedAt(int, int, Object, Gen)
+
+  /**
+   * Make a copy without the branch at pos.
+   */
+  CNode removedAt(int pos, int flag, Gen gen) {
+    Object[] result = new Object[this.array.length - 1];
+    System.arraycopy(this.array, 0, result, 0, pos);
+    System.arraycopy(this.array, pos + 1, result, pos, this.array.length - pos - 1);
+    return new CNode(this.bitmap ^ flag, result, gen);
+  } // removedAt(int, int, Gen)
+
+  /**
+   * Make a copy in another generation, copying the INodes below too (but not their main nodes).
+   */
+  CNode renewed(Gen gen, Ctrie trie) {
+    Object[] result = new Object[this.array.length];
+    for (int i = 0; i < result.length; i++) {
+      Object sub = this.array[i];
+      result[i] = (sub instanceof INode) ? ((INode) sub).copyToGen(gen, trie) : sub;
+    } // for
+    return new CNode(this.bitmap, result, gen);
+  } // renewed(Gen, Ctrie)
+
+  /**
+   * Replace the INodes below that hold tombstones by their leaves, then contract.
+   */
+  MainNode toCompressed(Ctrie trie, int level, Gen gen) {
+    Object[] result = new Object[this.array.length];
+    for (int i = 0; i < result.length; i++) {
+      Object sub = this.array[i];
+      if (sub instanceof INode) {
+        MainNode main = ((INode) sub).gcasRead(trie);
+        result[i] = (main instanceof TNode) ? ((TNode) main).sn : sub;
+      } else {
+        result[i] = sub;
+      } // if/else
+    } // for
+    return new CNode(this.bitmap, result, gen).toContracted(level);
+  } // toCompressed(Ctrie, int, Gen)
+
+  /**
+   * Below the root, turn a CNode holding just one leaf into a tombstone.
+   */
+  MainNode toContracted(int level) {
+    if ((level > 0) && (this.array.length == 1) && (this.array[0] instanceof SNode)) {
+      return new TNode((SNode) this.array[0]);
+    } // if
+    return this;
+  } // toContracted(int)
+
+  /**
+   * Make a copy with a different branch at pos.
+   */
+  CNode updatedAt(int pos, Object branch, Gen gen) {
+    Object[] result = this.array.clone();
+    result[pos] = branch;
+    return new CNode(this.bitmap, result, gen);
+  } // updatedAt(int, Object, Gen)
+} // class CNode
+
+
+/**
+ * Tombstones: the main node of an INode whose CNode shrank to one leaf, waiting to be pulled up
+ * into the parent.
+ */
+class TNode extends MainNode {
+  /**
+   * The leaf.
+   */
+  final SNode sn;
+
+  /**
+   * Create a tombstone.
+   */
+  TNode(SNode sn) {
+    this.sn = sn;
+  } // TNode(SNode)
+} // class TNode
+
+
+/**
+ * Lists of leaves whose hashes agree in every bit. Immutable.
+ */
+class LNode extends MainNode {
+  /**
+   * The first leaf.
+   */
+  final SNode sn;
+
+  /**
+   * The rest of the list, or null.
+   */
+  final LNode next;
+
+  /**
+   * Create a list.
+   */
+  LNode(SNode sn, LNode next) {
+    this.sn = sn;
+    this.next = next;
+  } // LNode(SNode, LNode)
+
+  /**
+   * Get the value for a key, or Ctrie.NOT_FOUND.
+   */
+  Object get(String key) {
+    for (LNode ln = this; ln != null; ln = ln.next) {
+      if (ln.sn.key.equals(key)) {
+        return ln.sn.value;
+      } // if
+    } // for
+    return Ctrie.NOT_FOUND;
+  } // get(String)
+
+  /**
+   * Make a list with a key set to a value.
+   */
+  LNode inserted(String key, String value, int hash) {
+    return new LNode(new SNode(key, value, hash), without(key));
+  } // inserted(String, String, int)
+
+  /**
+   * Make a list without a key. A list of one becomes a tombstone.
+   */
+  MainNode removed(String key) {
+    LNode rest = without(key);
+    return (rest.next == null) ? new TNode(rest.sn) : rest;
+  } // removed(String)
+
+  /**
+   * Make a list without a key, sharing the tail after it.
+   */
+  LNode without(String key) {
+    if (this.sn.key.equals(key)) {
+      return this.next;
+    } else if (this.next == null) {
+      return this;
+    } // if/else
+    LNode rest = this.next.without(key);
+    return (rest == this.next) ? this : new LNode(this.sn, rest);
+  } // without(String)
+} // class LNode
@@ -0,0 +1,142 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compare the throughput of a Ctrie with that of a Trie behind one lock as we add client
+ * threads.
+ */
+public class CtrieExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of distinct keys.
+   */
+  static final int KEYS = 1 << 18;
+
+  /**
+   * The number of operations each client performs.
+   */
+  static final int OPERATIONS = 1 << 20;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Run clients threads at once, returning the throughput in millions of operations per second.
+   */
+  static double run(int clients, Runnable client) throws InterruptedException {
+    ArrayList<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < clients; i++) {
+      threads.add(new Thread(client));
+    } // for
+    long start = System.nanoTime();
+    for (Thread thread : threads) {
+      thread.start();
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+    long elapsed = System.nanoTime() - start;
+    return (clients * (double) OPERATIONS) / (elapsed / 1e3);
+  } // run(int, Runnable)
+
+  /**
+   * A client: nine gets for every set.
+   */
+  static void client(String[] words, LockedTrie locked, Ctrie ctrie) {
+    int seed = (int) Thread.currentThread().getId();
+    for (int i = 0; i < OPERATIONS; i++) {
+      seed = seed * 1103515245 + 12345;
+      String key = words[(seed >>> 8) & (KEYS - 1)];
+      if (i % 10 == 0) {
+        if (locked != null) {
+          locked.set(key, key);
+        } else {
+          ctrie.set(key, key);
+        } // if/else
+      } else {
+        if (locked != null) {
+          locked.containsKey(key);
+        } else {
+          ctrie.containsKey(key);
+        } // if/else
+      } // if/else
+    } // for
+  } // client(String[], LockedTrie, Ctrie)
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws Exception {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(1);
+    String[] words = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      words[i] = AdaptiveRadixTrieExperiment.word(random);
+    } // for
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    pen.println("Processors: " + cores);
+    pen.printf("%8s %14s %14s%n", "clients", "locked M/s", "ctrie M/s");
+    for (int clients = 1; clients <= Math.max(4, 2 * cores); clients *= 2) {
+      LockedTrie locked = new LockedTrie();
+      Ctrie ctrie = new Ctrie();
+      for (int i = 0; i < KEYS; i += 2) {
+        locked.set(words[i], words[i]);
+        ctrie.set(words[i], words[i]);
+      } // for
+      double l = run(clients, () -> client(words, locked, null));
+      double c = run(clients, () -> client(words, null, ctrie));
+      pen.printf("%8d %14.2f %14.2f%n", clients, l, c);
+    } // for
+  } // main(String[])
+} // class CtrieExperiment
+
+
+/**
+ * The alternative we compare against: a Trie guarded by one lock.
+ */
+class LockedTrie {
+  /**
+   * The trie.
+   */
+  Trie<String> trie = new Trie<String>();
+
+  /**
+   * The lock.
+   */
+  ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Determine if the trie contains a key.
+   */
+  boolean containsKey(String key) {
+    this.lock.lock();
+    try {
+      return this.trie.containsKey(key);
+    } finally {
+      this.lock.unlock();
+    } // try/finally
+  } // containsKey(String)
+
+  /**
+   * Set the value for a key.
+   */
+  String set(String key, String value) {
+    this.lock.lock();
+    try {
+      return this.trie.set(key, value);
+    } finally {
+      this.lock.unlock();
+    } // try/finally
+  } // set(String, String)
+} // class LockedTrie
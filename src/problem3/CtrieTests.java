@@ -0,0 +1,112 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import utils.Pair;
+import utils.SimpleMapTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of concurrent tries.
+ */
+public class CtrieTests extends SimpleMapTests {
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupCtrieTests() {
+    stringMap = new Ctrie();
+    runIteratorRemoveTests = false;
+  } // setupCtrieTests()
+
+  /**
+   * Keys whose hash codes collide in every bit still work.
+   */
+  @Test
+  public void collisionTest() {
+    // "Aa" and "BB" have the same hash code, and so do all their concatenations.
+    String[] keys = { "AaAa", "AaBB", "BBAa", "BBBB" };
+    for (String key : keys) {
+      stringMap.set(key, key.toLowerCase());
+    } // for
+    for (String key : keys) {
+      assertEquals(key.toLowerCase(), stringMap.get(key));
+    } // for
+    assertEquals("aabb", stringMap.remove("AaBB"));
+    assertEquals("bbaa", stringMap.remove("BBAa"));
+    assertEquals("bbbb", stringMap.remove("BBBB"));
+    assertFalse(stringMap.containsKey("BBBB"));
+    assertEquals("aaaa", stringMap.get("AaAa"));
+    assertEquals(1, stringMap.size());
+  } // collisionTest()
+
+  /**
+   * Snapshots and the tries they came from don't see each other's changes.
+   */
+  @Test
+  public void snapshotTest() {
+    Ctrie trie = (Ctrie) stringMap;
+    for (int i = 0; i < 1000; i++) {
+      trie.set("key" + i, Integer.toString(i));
+    } // for
+    Ctrie copy = trie.snapshot();
+    Ctrie frozen = trie.readOnlySnapshot();
+    for (int i = 0; i < 1000; i += 2) {
+      trie.remove("key" + i);
+      copy.set("key" + i, "changed");
+    } // for
+    trie.set("extra", "extra");
+    assertEquals(501, trie.size());
+    assertEquals(1000, copy.size());
+    assertEquals(1000, frozen.size());
+    assertFalse(trie.containsKey("key10"));
+    assertEquals("changed", copy.get("key10"));
+    assertEquals("10", frozen.get("key10"));
+    assertFalse(copy.containsKey("extra"));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.set("a", "b"));
+  } // snapshotTest()
+
+  /**
+   * Threads can add and remove at once, and iterators see a consistent view.
+   */
+  @Test
+  public void concurrentTest() throws Exception {
+    Ctrie trie = (Ctrie) stringMap;
+    ArrayList<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      final int thread = t;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 20000; i++) {
+          trie.set(thread + ":" + i, Integer.toString(i));
+          // Remove every other key again.
+          if (i % 2 == 1) {
+            trie.remove(thread + ":" + (i - 1));
+          } // if
+        } // for
+      }));
+    } // for
+    for (Thread thread : threads) {
+      thread.start();
+    } // for
+    // Snapshots taken while the threads run are internally consistent.
+    for (int s = 0; s < 20; s++) {
+      Ctrie frozen = trie.readOnlySnapshot();
+      HashSet<String> seen = new HashSet<String>();
+      for (Iterator<Pair<String, String>> it = frozen.iterator(); it.hasNext(); ) {
+        Pair<String, String> pair = it.next();
+        assertTrue(seen.add(pair.key()));
+        assertEquals(pair.value(), frozen.get(pair.key()));
+      } // for
+      assertEquals(seen.size(), frozen.size());
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+    assertEquals(40000, trie.size());
+    assertEquals("19999", trie.get("3:19999"));
+    assertFalse(trie.containsKey("3:19998"));
+  } // concurrentTest()
+} // class CtrieTests
@@ -0,0 +1,462 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import utils.MiscUtils;
+import utils.Pair;
+import utils.SimpleMap;
+
+/**
+ * A read-only map stored as a minimal acyclic automaton (a DAWG). Where a trie stores every
+ * path separately, a DAWG shares equivalent suffixes, so "walking", "talking", and "balking"
+ * share one "alking" path.
+ *
+ * @author Chris Won
+ */
+public class Dawg implements SimpleMap<String, String> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * We build from keys in increasing order, using the incremental algorithm of Daciuk et al.
+   * Keys go into a trie of DawgStates, but each time a new key leaves the path of the previous
+   * one, the states below the branch point can never change again. So we minimize them on the
+   * spot: each is replaced by an equivalent state from a register of states we have already
+   * seen (same accepting flag, same labels, same targets), or added to the register if it is
+   * new. Memory during construction is thus proportional to the automaton, not the trie.
+   *
+   * Since paths merge, a state can't hold a value. Instead we number the keys 0..size-1 in
+   * order, and keep the values in an array. Each arc records how many keys come before the
+   * ones below it among the keys of its state (one for the state itself, if it accepts, plus
+   * those under the earlier arcs), so summing the offsets along a key's path gives the key's
+   * number.
+   *
+   * Once built, the automaton is flattened into arrays: the arcs of state s are at indices
+   * firstArc[s] to firstArc[s + 1] - 1, sorted by label, and we binary search them.
+   *
+   * set and remove throw UnsupportedOperationException.
+   */
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The index of each state's first arc; firstArc[stateCount] is the number of arcs.
+   */
+  int[] firstArc;
+
+  /**
+   * Which states accept.
+   */
+  boolean[] accepts;
+
+  /**
+   * The label of each arc.
+   */
+  char[] labels;
+
+  /**
+   * The state each arc leads to.
+   */
+  int[] targets;
+
+  /**
+   * The number of keys of the arc's source state that come before those through the arc.
+   */
+  int[] offsets;
+
+  /**
+   * The start state.
+   */
+  int root;
+
+  /**
+   * The values, indexed by key number.
+   */
+  String[] values;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a DAWG from pairs in strictly increasing order by key.
+   *
+   * @throws IllegalArgumentException if the keys are out of order or repeated.
+   */
+  public Dawg(Iterator<Pair<String, String>> sorted) {
+    ArrayList<String> vals = new ArrayList<String>();
+    ArrayList<DawgState> states = new ArrayList<DawgState>();
+    HashMap<DawgState, DawgState> register = new HashMap<DawgState, DawgState>();
+    DawgState start = new DawgState();
+    String previous = null;
+
+    while (sorted.hasNext()) {
+      Pair<String, String> pair = sorted.next();
+      String key = pair.key();
+      if (key == null)
+        throw new NullPointerException("key cannot be null");
+      if ((previous != null) && (key.compareTo(previous) <= 0))
+        throw new IllegalArgumentException("keys out of order: " + previous + ", " + key);
+
+      // Follow the part of the previous key's path that we share.
+      DawgState current = start;
+      int i = 0;
+      while ((i < key.length()) && (current.count > 0)
+          && (current.labels[current.count - 1] == key.charAt(i))) {
+        current = current.targets[current.count - 1];
+        i++;
+      } // while
+      // The rest of the previous path is final.
+      if (current.count > 0) {
+        replaceOrRegister(current, register, states);
+      } // if
+      for (; i < key.length(); i++) {
+        DawgState next = new DawgState();
+        current.add(key.charAt(i), next);
+        current = next;
+      } // for
+      current.accepts = true;
+      vals.add(pair.value());
+      previous = key;
+    } // while
+    if (start.count > 0) {
+      replaceOrRegister(start, register, states);
+    } // if
+    start.finish();
+    start.id = states.size();
+    states.add(start);
+
+    this.values = vals.toArray(new String[vals.size()]);
+    flatten(states);
+  } // Dawg(Iterator)
+
+  // +-------------------+-----------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public String set(String key, String value) {
+    throw new UnsupportedOperationException("DAWGs are immutable");
+  } // set(String, String)
+
+  @Override
+  public String get(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    int index = this.index(key);
+    if (index < 0)
+      throw new IndexOutOfBoundsException("key not found");
+
+    return this.values[index];
+  } // get(String)
+
+  @Override
+  public int size() {
+    return this.values.length;
+  } // size()
+
+  @Override
+  public boolean containsKey(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    return this.index(key) >= 0;
+  } // containsKey(String)
+
+  @Override
+  public String remove(String key) {
+    throw new UnsupportedOperationException("DAWGs are immutable");
+  } // remove(String)
+
+  @Override
+  public Iterator<String> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public Iterator<String> values() {
+    return Arrays.asList(this.values).iterator();
+  } // values()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    Iterator<Pair<String, String>> it = this.iterator();
+    while (it.hasNext()) {
+      Pair<String, String> pair = it.next();
+      pen.println(pair.key() + ": " + pair.value());
+    } // while
+  } // dump(PrintWriter)
+
+  // +------------------+--------------------------------------------
+  // | Iterable methods |
+  // +------------------+
+
+  /**
+   * Iterate all the key/value pairs, in increasing order by key.
+   */
+  @Override
+  public Iterator<Pair<String, String>> iterator() {
+    return new Iterator<Pair<String, String>>() {
+      /**
+       * The states on the current path.
+       */
+      int[] path = new int[16];
+
+      /**
+       * For each state on the path, the next arc to follow.
+       */
+      int[] nextArc = new int[16];
+
+      /**
+       * The key of the current state.
+       */
+      StringBuilder key = new StringBuilder();
+
+      /**
+       * The depth of the current state, or -1 once we're done.
+       */
+      int depth = 0;
+
+      /**
+       * The number of the next key.
+       */
+      int index = 0;
+
+      /**
+       * Have we found the next key (and left it in key)?
+       */
+      boolean ready = accepts[root];
+
+      {
+        path[0] = root;
+        nextArc[0] = firstArc[root];
+      }
+
+      @Override
+      public boolean hasNext() {
+        while (!ready && (depth >= 0)) {
+          int state = path[depth];
+          int arc = nextArc[depth];
+          if (arc == firstArc[state + 1]) {
+            depth--;
+            if (depth >= 0) {
+              key.setLength(depth);
+            } // if
+          } else {
+            nextArc[depth] = arc + 1;
+            if (++depth == path.length) {
+              path = Arrays.copyOf(path, depth * 2);
+              nextArc = Arrays.copyOf(nextArc, depth * 2);
+            } // if
+            key.setLength(depth - 1);
+            key.append(labels[arc]);
+            path[depth] = targets[arc];
+            nextArc[depth] = firstArc[targets[arc]];
+            ready = accepts[targets[arc]];
+          } // if/else
+        } // while
+        return ready;
+      } // hasNext()
+
+      @Override
+      public Pair<String, String> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        ready = false;
+        return new Pair<String, String>(key.toString(), values[index++]);
+      } // next()
+    }; // new Iterator
+  } // iterator()
+
+  // +------+------------------------------------------------------------
+  // | Misc |
+  // +------+
+
+  /**
+   * Get the number of arcs.
+   */
+  public int arcCount() {
+    return this.labels.length;
+  } // arcCount()
+
+  /**
+   * Get the number of states.
+   */
+  public int stateCount() {
+    return this.accepts.length;
+  } // stateCount()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Turn the states into arrays. Each state's id is its index in states.
+   */
+  void flatten(ArrayList<DawgState> states) {
+    int arcs = 0;
+    for (DawgState state : states) {
+      arcs += state.count;
+    } // for
+    this.firstArc = new int[states.size() + 1];
+    this.accepts = new boolean[states.size()];
+    this.labels = new char[arcs];
+    this.targets = new int[arcs];
+    this.offsets = new int[arcs];
+
+    int arc = 0;
+    for (DawgState state : states) {
+      this.firstArc[state.id] = arc;
+      this.accepts[state.id] = state.accepts;
+      int before = state.accepts ? 1 : 0;
+      for (int i = 0; i < state.count; i++) {
+        this.labels[arc] = state.labels[i];
+        this.targets[arc] = state.targets[i].id;
+        this.offsets[arc] = before;
+        before += state.targets[i].keys;
+        arc++;
+      } // for
+    } // for
+    this.firstArc[states.size()] = arc;
+    this.root = states.size() - 1;
+  } // flatten(ArrayList)
+
+  /**
+   * Find the number of a key, or -1 if it's not in the map.
+   */
+  int index(String key) {
+    int state = this.root;
+    int index = 0;
+    for (int i = 0; i < key.length(); i++) {
+      int arc = Arrays.binarySearch(this.labels, this.firstArc[state],
+          this.firstArc[state + 1], key.charAt(i));
+      if (arc < 0)
+        return -1;
+      index += this.offsets[arc];
+      state = this.targets[arc];
+    } // for
+    return this.accepts[state] ? index : -1;
+  } // index(String)
+
+  /**
+   * Minimize the path below state's last arc, which will never change again, replacing each
+   * state with an equivalent registered one where we can.
+   */
+  static void replaceOrRegister(DawgState state, HashMap<DawgState, DawgState> register,
+      ArrayList<DawgState> states) {
+    DawgState child = state.targets[state.count - 1];
+    if (child.count > 0) {
+      replaceOrRegister(child, register, states);
+    } // if
+    child.finish();
+    DawgState existing = register.get(child);
+    if (existing != null) {
+      state.targets[state.count - 1] = existing;
+    } else {
+      child.id = states.size();
+      states.add(child);
+      register.put(child, child);
+    } // if/else
+  } // replaceOrRegister(DawgState, HashMap, ArrayList)
+} // class Dawg
+
+
+/**
+ * States of a DAWG under construction. Once finished, a state never changes, and two finished
+ * states are equal if they are interchangeable.
+ */
+class DawgState {
+  /**
+   * The labels of the outgoing arcs, in increasing order.
+   */
+  char[] labels = new char[2];
+
+  /**
+   * The targets of the outgoing arcs.
+   */
+  DawgState[] targets = new DawgState[2];
+
+  /**
+   * The number of outgoing arcs.
+   */
+  int count;
+
+  /**
+   * Does a key end here?
+   */
+  boolean accepts;
+
+  /**
+   * The number of keys at or below this state. Set by finish().
+   */
+  int keys;
+
+  /**
+   * The hash code. Set by finish().
+   */
+  int hash;
+
+  /**
+   * The position of this state in the flattened arrays.
+   */
+  int id;
+
+  /**
+   * Add an arc, which must have a larger label than the others.
+   */
+  void add(char label, DawgState target) {
+    if (this.count == this.labels.length) {
+      this.labels = Arrays.copyOf(this.labels, this.count * 2);
+      this.targets = Arrays.copyOf(this.targets, this.count * 2);
+    } // if
+    this.labels[this.count] = label;
+    this.targets[this.count++] = target;
+  } // add(char, DawgState)
+
+  /**
+   * Compute the key count and hash code, once all the targets are finished.
+   */
+  void finish() {
+    this.keys = this.accepts ? 1 : 0;
+    int h = this.accepts ? 1 : 0;
+    for (int i = 0; i < this.count; i++) {
+      this.keys += this.targets[i].keys;
+      h = 31 * (31 * h + this.labels[i]) + System.identityHashCode(this.targets[i]);
+    } // for
+    this.hash = h;
+    // Drop the spare room, since we keep finished states.
+    if (this.count < this.labels.length) {
+      this.labels = Arrays.copyOf(this.labels, this.count);
+      this.targets = Arrays.copyOf(this.targets, this.count);
+    } // if
+  } // finish()
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof DawgState))
+      return false;
+    DawgState that = (DawgState) other;
+    if ((this.accepts != that.accepts) || (this.count != that.count))
+      return false;
+    for (int i = 0; i < this.count; i++) {
+      if ((this.labels[i] != that.labels[i]) || (this.targets[i] != that.targets[i]))
+        return false;
+    } // for
+    return true;
+  } // equals(Object)
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  } // hashCode()
+} // class DawgState
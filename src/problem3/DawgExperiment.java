@@ -0,0 +1,90 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+import utils.Pair;
+import utils.SimpleMap;
+
+/**
+ * Compare the heap used by a Trie, a RadixTrie, and a Dawg holding the same large word list,
+ * built from random stems and common English suffixes.
+ */
+public class DawgExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of stems.
+   */
+  static final int STEMS = 40000;
+
+  /**
+   * The suffixes we add to every stem.
+   */
+  static final String[] SUFFIXES = { "", "s", "ed", "ing", "er", "ers", "tion", "tions", "ness",
+      "ly", "able", "ably", "ment", "ments", "ful", "fully", "less", "ise", "ised", "ising",
+      "ize", "ized", "izing", "ist", "ists", "ism", "isms", "al", "ally", "ity" };
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Fill a map with the words, returning the heap it uses. The words are their own values, so
+   * we only count the structure.
+   */
+  static long fill(SimpleMap<String, String> map, String[] words) {
+    long before = RadixTrieExperiment.usedHeap();
+    for (String word : words) {
+      map.set(word, word);
+    } // for
+    return RadixTrieExperiment.usedHeap() - before;
+  } // fill(SimpleMap, String[])
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    TreeSet<String> sorted = new TreeSet<String>();
+    for (int i = 0; i < STEMS; i++) {
+      char[] stem = new char[4 + random.nextInt(5)];
+      for (int j = 0; j < stem.length; j++) {
+        stem[j] = (char) ('a' + random.nextInt(26));
+      } // for
+      for (String suffix : SUFFIXES) {
+        sorted.add(new String(stem) + suffix);
+      } // for
+    } // for
+    String[] words = sorted.toArray(new String[sorted.size()]);
+    sorted = null;
+    pen.println(words.length + " words");
+
+    long before = RadixTrieExperiment.usedHeap();
+    ArrayList<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+    for (String word : words) {
+      pairs.add(new Pair<String, String>(word, word));
+    } // for
+    Dawg dawg = new Dawg(pairs.iterator());
+    pairs = null;
+    long dawgBytes = RadixTrieExperiment.usedHeap() - before;
+    pen.printf("Dawg:      %8.1f MB  (%d states, %d arcs)%n", dawgBytes / 1e6,
+        dawg.stateCount(), dawg.arcCount());
+    dawg = null;
+
+    RadixTrie radix = new RadixTrie();
+    long radixBytes = fill(radix, words);
+    pen.printf("RadixTrie: %8.1f MB  (%d nodes)%n", radixBytes / 1e6, radix.nodeCount());
+    radix = null;
+
+    Trie<String> trie = new Trie<String>();
+    long trieBytes = fill(trie, words);
+    pen.printf("Trie:      %8.1f MB  (%d nodes)%n", trieBytes / 1e6, trie.nodeCount(trie.root));
+  } // main(String[])
+} // class DawgExperiment
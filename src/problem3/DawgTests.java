@@ -0,0 +1,78 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import utils.Pair;
+
+/**
+ * Tests of DAWGs.
+ */
+public class DawgTests {
+
+  /**
+   * Build a DAWG whose values are the keys in upper case.
+   */
+  static Dawg build(String... sortedKeys) {
+    ArrayList<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+    for (String key : sortedKeys) {
+      pairs.add(new Pair<String, String>(key, key.toUpperCase()));
+    } // for
+    return new Dawg(pairs.iterator());
+  } // build(String...)
+
+  /**
+   * Lookups find exactly the keys, with their values, and iteration is in order.
+   */
+  @Test
+  public void getTest() {
+    String[] keys = { "", "a", "an", "ant", "anteater", "antelope", "bear", "bison", "red fox",
+        "tar", "tea", "tent", "zebra" };
+    Dawg dawg = build(keys);
+    assertEquals(keys.length, dawg.size());
+    for (String key : keys) {
+      assertTrue(dawg.containsKey(key), key);
+      assertEquals(key.toUpperCase(), dawg.get(key));
+    } // for
+    for (String missing : new String[] { "ante", "b", "tears", "zebras", "Bear", "red" }) {
+      assertFalse(dawg.containsKey(missing), missing);
+      assertThrows(IndexOutOfBoundsException.class, () -> dawg.get(missing));
+    } // for
+
+    ArrayList<String> found = new ArrayList<String>();
+    for (Iterator<Pair<String, String>> it = dawg.iterator(); it.hasNext(); ) {
+      Pair<String, String> pair = it.next();
+      assertEquals(pair.key().toUpperCase(), pair.value());
+      found.add(pair.key());
+    } // for
+    assertEquals(List.of(keys), found);
+  } // getTest()
+
+  /**
+   * Common suffixes share states.
+   */
+  @Test
+  public void suffixSharingTest() {
+    Dawg dawg = build("balking", "talking", "walked", "walking");
+    // b and t share all of "alking" (six states, plus the accepting state). w's "alk" can't be
+    // shared, since it continues with "ed" as well (four more states), but its "ing" reuses the
+    // "ng" from "alking", and its "ed" needs one state before the shared accepting state.
+    // A trie would need 1 + 7 + 7 + 4 + 2 + 3 = 24 states.
+    assertEquals(1 + 7 + 4 + 1, dawg.stateCount());
+    assertEquals("WALKED", dawg.get("walked"));
+    assertEquals("TALKING", dawg.get("talking"));
+    assertFalse(dawg.containsKey("balked"));
+  } // suffixSharingTest()
+
+  /**
+   * Keys must arrive in strictly increasing order.
+   */
+  @Test
+  public void orderTest() {
+    assertThrows(IllegalArgumentException.class, () -> build("b", "a"));
+    assertThrows(IllegalArgumentException.class, () -> build("a", "a"));
+    assertThrows(UnsupportedOperationException.class, () -> build("a").set("b", "B"));
+  } // orderTest()
+} // class DawgTests
@@ -0,0 +1,116 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compare the time to find all the keys within one or two edits of a query by walking the trie
+ * (Trie.fuzzyMatch) and by computing the edit distance to every key.
+ */
+public class FuzzyMatchExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of words in the trie.
+   */
+  static final int KEYS = 1000000;
+
+  /**
+   * The number of queries for each maximum distance.
+   */
+  static final int QUERIES = 200;
+
+  /**
+   * The number of queries we answer by brute force, which is much slower.
+   */
+  static final int BRUTE_QUERIES = 3;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Compute the edit distance between two strings.
+   */
+  static int distance(String a, String b) {
+    int[] above = new int[b.length() + 1];
+    int[] row = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      above[j] = j;
+    } // for
+    for (int i = 1; i <= a.length(); i++) {
+      row[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int substitute = above[j - 1] + ((a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1);
+        row[j] = Math.min(substitute, Math.min(above[j], row[j - 1]) + 1);
+      } // for
+      int[] tmp = above;
+      above = row;
+      row = tmp;
+    } // for
+    return above[b.length()];
+  } // distance(String, String)
+
+  /**
+   * Count the keys within maxEdits of query by checking every one.
+   */
+  static int bruteForce(Trie<String> trie, String query, int maxEdits) {
+    int count = 0;
+    for (Iterator<String> it = trie.keys(); it.hasNext(); ) {
+      if (distance(it.next(), query) <= maxEdits) {
+        count++;
+      } // if
+    } // for
+    return count;
+  } // bruteForce(Trie, String, int)
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    Trie<String> trie = new Trie<String>();
+    String[] words = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      words[i] = AdaptiveRadixTrieExperiment.word(random);
+      trie.set(words[i], words[i]);
+    } // for
+    pen.println(trie.countWithPrefix("") + " words");
+
+    for (int maxEdits = 1; maxEdits <= 2; maxEdits++) {
+      // Queries are words with one typo.
+      String[] queries = new String[QUERIES];
+      for (int i = 0; i < QUERIES; i++) {
+        char[] chars = words[random.nextInt(KEYS)].toCharArray();
+        chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+        queries[i] = new String(chars);
+      } // for
+
+      long matches = 0;
+      long start = System.nanoTime();
+      for (String query : queries) {
+        matches += trie.fuzzyMatch(query, maxEdits).size();
+      } // for
+      double trieMs = (System.nanoTime() - start) / 1e6 / QUERIES;
+
+      start = System.nanoTime();
+      for (int i = 0; i < BRUTE_QUERIES; i++) {
+        List<String> expected = trie.fuzzyMatch(queries[i], maxEdits);
+        if (bruteForce(trie, queries[i], maxEdits) != expected.size()) {
+          throw new IllegalStateException("disagreement on " + queries[i]);
+        } // if
+      } // for
+      double bruteMs = (System.nanoTime() - start) / 1e6 / BRUTE_QUERIES;
+
+      pen.printf("maxEdits %d: fuzzyMatch %7.2f ms/query (%.1f matches), brute force %8.1f "
+          + "ms/query%n", maxEdits, trieMs, matches / (double) QUERIES, bruteMs);
+    } // for
+  } // main(String[])
+} // class FuzzyMatchExperiment
@@ -0,0 +1,125 @@
+package problem3;
+
+/**
+ * A trie from strings to ints that keeps its values unboxed, in the nodes. It is a
+ * Trie<Integer>, so it has all the usual methods, but getInt, increment, and add neither box
+ * nor allocate when the key is already present.
+ *
+ * Values can't be null.
+ *
+ * @author Chris Won
+ */
+public class IntTrie extends Trie<Integer> {
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, trie.
+   */
+  public IntTrie() {
+    super();
+  } // IntTrie()
+
+  /**
+   * Create a new, empty, trie whose keys use the characters of alphabet.
+   */
+  public IntTrie(Alphabet alphabet) {
+    super(alphabet);
+  } // IntTrie(Alphabet)
+
+  // +-----------------+-------------------------------------------------
+  // | IntTrie methods |
+  // +-----------------+
+
+  /**
+   * Add delta to the value for a key, treating a missing key as 0. Returns the new value.
+   */
+  public int add(String key, int delta) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    TrieNode node = this.find(key);
+    if ((node != null) && node.hasKey()) {
+      return ((IntTrieNode) node).intValue += delta;
+    } // if
+    this.set(key, delta);
+    return delta;
+  } // add(String, int)
+
+  /**
+   * Get the value for a key, or defaultValue if the key is not in the trie.
+   */
+  public int getInt(String key, int defaultValue) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    TrieNode node = this.find(key);
+    if ((node == null) || !node.hasKey()) {
+      return defaultValue;
+    } // if
+    return ((IntTrieNode) node).intValue;
+  } // getInt(String, int)
+
+  /**
+   * Add one to the value for a key, treating a missing key as 0. Returns the new value.
+   */
+  public int increment(String key) {
+    return add(key, 1);
+  } // increment(String)
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure a value isn't null, since our nodes hold ints. Every way of setting a value
+   * (set, set with a weight, and parallelLoad) checks before it changes anything.
+   */
+  @Override
+  void checkValue(Integer value) {
+    if (value == null)
+      throw new NullPointerException("value cannot be null");
+  } // checkValue(Integer)
+
+  @Override
+  TrieNode node(char label) {
+    return new IntTrieNode(label, this.alphabet);
+  } // node(char)
+} // class IntTrie
+
+
+/**
+ * Nodes for IntTries, with an int as the value, and no reference to a boxed one.
+ */
+class IntTrieNode extends TrieNode {
+  /**
+   * The value of the node, if key is set.
+   */
+  int intValue;
+
+  /**
+   * Create a node with no value, reached through label.
+   */
+  IntTrieNode(char label, Alphabet alphabet) {
+    super(label, alphabet);
+  } // IntTrieNode(char, Alphabet)
+
+  @Override
+  void clearValue() {
+    super.clearValue();
+    this.intValue = 0;
+  } // clearValue()
+
+  @Override
+  public void setValue(String key, Object value) {
+    this.intValue = (Integer) value;
+    this.key = key;
+  } // setValue(String, Object)
+
+  @Override
+  public Object value() {
+    return this.intValue;
+  } // value()
+} // class IntTrieNode
@@ -0,0 +1,72 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Compare counting words in a Trie<String>, with the counts stored as strings, and in an
+ * IntTrie: time, and heap used by the finished trie.
+ */
+public class IntTrieExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of distinct words.
+   */
+  static final int WORDS = 200000;
+
+  /**
+   * The number of words we count.
+   */
+  static final int OCCURRENCES = 5000000;
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    String[] words = new String[WORDS];
+    for (int i = 0; i < WORDS; i++) {
+      words[i] = AdaptiveRadixTrieExperiment.word(random);
+    } // for
+    // Skewed, so that some words get large counts.
+    int[] text = new int[OCCURRENCES];
+    for (int i = 0; i < OCCURRENCES; i++) {
+      text[i] = (int) (WORDS * Math.pow(random.nextDouble(), 3));
+    } // for
+
+    for (int round = 0; round < 2; round++) {
+      long before = RadixTrieExperiment.usedHeap();
+      long start = System.nanoTime();
+      Trie<String> strings = new Trie<String>();
+      for (int i : text) {
+        String old = strings.containsKey(words[i]) ? strings.get(words[i]) : "0";
+        strings.set(words[i], Integer.toString(Integer.parseInt(old) + 1));
+      } // for
+      double stringTime = (System.nanoTime() - start) / 1e6;
+      long stringHeap = RadixTrieExperiment.usedHeap() - before;
+
+      before = RadixTrieExperiment.usedHeap();
+      start = System.nanoTime();
+      IntTrie ints = new IntTrie();
+      for (int i : text) {
+        ints.increment(words[i]);
+      } // for
+      double intTime = (System.nanoTime() - start) / 1e6;
+      long intHeap = RadixTrieExperiment.usedHeap() - before;
+
+      if (Integer.parseInt(strings.get(words[0])) != ints.getInt(words[0], 0)) {
+        throw new IllegalStateException("the counts differ");
+      } // if
+      pen.printf("Trie<String>: %5.0f ms %7.1f MB%n", stringTime, stringHeap / 1e6);
+      pen.printf("IntTrie:      %5.0f ms %7.1f MB%n", intTime, intHeap / 1e6);
+      // Keep both tries live until we've measured them.
+      pen.println(strings.size() + ints.size() + " keys");
+    } // for
+  } // main(String[])
+} // class IntTrieExperiment
@@ -0,0 +1,90 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.Pair;
+
+/**
+ * Tests of int-valued tries.
+ */
+public class IntTrieTests {
+
+  /**
+   * The trie we're testing.
+   */
+  IntTrie trie;
+
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupIntTrieTests() {
+    trie = new IntTrie();
+  } // setupIntTrieTests()
+
+  /**
+   * Counting words gives the right counts.
+   */
+  @Test
+  public void countTest() {
+    String[] words = "the cat and the hat and THE bat".split(" ");
+    for (String word : words) {
+      trie.increment(word);
+    } // for
+    assertEquals(5, trie.size());
+    assertEquals(3, trie.getInt("the", 0));
+    assertEquals(2, trie.getInt("and", 0));
+    assertEquals(1, trie.getInt("cat", 0));
+    assertEquals(-1, trie.getInt("dog", -1));
+    assertEquals(-1, trie.getInt("th", -1));
+    assertEquals(Integer.valueOf(3), trie.get("The"));
+    assertEquals(13, trie.add("hat", 12));
+    assertEquals(-4, trie.add("dog", -4));
+
+    ArrayList<String> pairs = new ArrayList<String>();
+    for (Pair<String, Integer> pair : trie) {
+      pairs.add(pair.toString());
+    } // for
+    assertEquals(List.of("<and:2>", "<bat:1>", "<cat:1>", "<dog:-4>", "<hat:13>", "<the:3>"),
+        pairs);
+  } // countTest()
+
+  /**
+   * Setting, replacing, and removing work as in any other trie.
+   */
+  @Test
+  public void setRemoveTest() {
+    assertNull(trie.set("one", 1));
+    assertEquals(Integer.valueOf(1), trie.set("one", 11));
+    assertEquals(11, trie.getInt("one", 0));
+    assertEquals(Integer.valueOf(11), trie.remove("one"));
+    assertEquals(0, trie.getInt("one", 0));
+    assertFalse(trie.containsKey("one"));
+    assertEquals(1, trie.increment("one"));
+    assertThrows(NullPointerException.class, () -> trie.set("two", null));
+    assertFalse(trie.containsKey("two"));
+    assertEquals(1, trie.size());
+    assertEquals(1, trie.countWithPrefix("o"));
+  } // setRemoveTest()
+
+  /**
+   * Every way of setting a value refuses null before it changes anything.
+   */
+  @Test
+  public void nullValueTest() {
+    trie.set("apple", 1);
+    int nodes = trie.nodeCount(trie.root);
+    assertThrows(NullPointerException.class, () -> trie.set("apricot", null, 5));
+    assertThrows(NullPointerException.class, () -> trie.parallelLoad(Arrays.asList(
+        new Pair<String, Integer>("avocado", 2), new Pair<String, Integer>("banana", 3),
+        new Pair<String, Integer>("cherry", null))));
+    assertEquals(nodes, trie.nodeCount(trie.root));
+    assertEquals(1, trie.size());
+    assertEquals(1, trie.countWithPrefix("a"));
+    assertFalse(trie.containsKey("banana"));
+  } // nullValueTest()
+} // class IntTrieTests
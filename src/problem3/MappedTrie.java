@@ -0,0 +1,482 @@
+package problem3;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import utils.MiscUtils;
+import utils.Pair;
+import utils.SimpleMap;
+
+/**
+ * A read-only trie that answers lookups straight from a file written by Trie.export(), mapped
+ * into memory. Opening one reads only the header, so it takes the same time however big the
+ * file, and the pages are shared, through the operating system's page cache, by every process
+ * that maps the same file. Lookups fold characters just as the trie that wrote the file did.
+ *
+ * The file records the size and fingerprint of the trie's alphabet, so a file written by a
+ * trie with an alphabet other than Alphabet.LETTERS must be opened with the same alphabet, and
+ * opening it with any other fails.
+ *
+ * @author Chris Won
+ */
+public class MappedTrie implements SimpleMap<String, String> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * The file is big-endian, and laid out as
+   *
+   * header: int MAGIC, int size (keys), int nodes, int valuesStart,
+   *   int alphabet size, int alphabet fingerprint
+   * nodes: for each node, breadth first from the root (at HEADER),
+   *   int value (the offset of its value record, or NO_KEY)
+   *   byte child count
+   *   per child, in order of slot: char label, int offset of the child's node
+   * values: for each key, in the same order as the nodes,
+   *   int length of the key in bytes, then its UTF-8 bytes (the key exactly as it was set)
+   *   int length of the value in bytes (or -1 for null), then its UTF-8 bytes
+   * trailer: int length of the whole file
+   *
+   * Breadth-first order keeps the upper levels, which every lookup reads, together at the start
+   * of the file. Offsets are ints, so files are limited to 2 GB.
+   *
+   * Opening a file checks that the header agrees with itself and that the trailer gives the
+   * file's length, which catches files cut short or with anything appended, without reading
+   * past the header. We don't check the nodes or values, so a file damaged in the middle may
+   * give wrong answers or throw from lookups.
+   *
+   * We only ever read the buffer at absolute positions, so any number of threads may share a
+   * MappedTrie. set and remove throw UnsupportedOperationException.
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The first four bytes of every trie file ("TRI4").
+   */
+  static final int MAGIC = 0x54524934;
+
+  /**
+   * The size of the header, which is also the offset of the root.
+   */
+  static final int HEADER = 24;
+
+  /**
+   * The size of the trailer.
+   */
+  static final int TRAILER = 4;
+
+  /**
+   * The value offset of a node that doesn't end a key.
+   */
+  static final int NO_KEY = -1;
+
+  /**
+   * The size of a node without its children.
+   */
+  static final int NODE = 5;
+
+  /**
+   * The size of each child entry.
+   */
+  static final int CHILD = 6;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The mapped file.
+   */
+  ByteBuffer buffer;
+
+  /**
+   * The characters of the trie that wrote the file.
+   */
+  Alphabet alphabet;
+
+  /**
+   * The number of keys.
+   */
+  int size;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Map a file written by Trie.export().
+   *
+   * @throws IOException if the file can't be read or isn't a trie file.
+   */
+  public MappedTrie(Path file) throws IOException {
+    this(file, Alphabet.LETTERS);
+  } // MappedTrie(Path)
+
+  /**
+   * Map a file written by Trie.export() from a trie over alphabet.
+   *
+   * @throws IOException if the file can't be read, isn't a trie file, has been cut short or
+   *   added to, or was written by a trie over another alphabet.
+   */
+  public MappedTrie(Path file, Alphabet alphabet) throws IOException {
+    this.alphabet = alphabet;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE)
+        throw new IOException("trie file too large: " + file);
+      // The mapping stays valid after the channel closes.
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } // try
+    int length = this.buffer.limit();
+    if ((length < HEADER + TRAILER) || (this.buffer.getInt(0) != MAGIC))
+      throw new IOException("not a trie file: " + file);
+    int nodes = this.buffer.getInt(8);
+    long valuesStart = HEADER + (long) NODE * nodes + (long) CHILD * (nodes - 1);
+    if ((nodes < 1) || (this.buffer.getInt(12) != valuesStart)
+        || (valuesStart > length - TRAILER) || (this.buffer.getInt(length - TRAILER) != length))
+      throw new IOException("damaged trie file: " + file);
+    if ((this.buffer.getInt(16) != alphabet.size())
+        || (this.buffer.getInt(20) != alphabet.fingerprint()))
+      throw new IOException("trie file written with another alphabet: " + file);
+    this.size = this.buffer.getInt(4);
+  } // MappedTrie(Path, Alphabet)
+
+  // +-------------------+-----------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public String set(String key, String value) {
+    throw new UnsupportedOperationException("mapped tries are immutable");
+  } // set(String, String)
+
+  @Override
+  public String get(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    int node = find(key);
+    if ((node < 0) || (this.buffer.getInt(node) == NO_KEY))
+      throw new IndexOutOfBoundsException("key not found");
+
+    return value(node);
+  } // get(String)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public boolean containsKey(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    int node = find(key);
+    return (node >= 0) && (this.buffer.getInt(node) != NO_KEY);
+  } // containsKey(String)
+
+  @Override
+  public String remove(String key) {
+    throw new UnsupportedOperationException("mapped tries are immutable");
+  } // remove(String)
+
+  @Override
+  public Iterator<String> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public Iterator<String> values() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
+  } // values()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    Iterator<Pair<String, String>> it = this.iterator();
+    while (it.hasNext()) {
+      Pair<String, String> pair = it.next();
+      pen.println(pair.key() + ": " + pair.value());
+    } // while
+  } // dump(PrintWriter)
+
+  // +------------------+--------------------------------------------
+  // | Iterable methods |
+  // +------------------+
+
+  /**
+   * Iterate all the key/value pairs, in the same order as the trie that wrote the file.
+   */
+  @Override
+  public Iterator<Pair<String, String>> iterator() {
+    return new PrefixIterator(HEADER);
+  } // iterator()
+
+  // +----------------+--------------------------------------------------
+  // | Prefix methods |
+  // +----------------+
+
+  /**
+   * Determine if any key starts with prefix.
+   */
+  public boolean hasPrefix(String prefix) {
+    return find(prefix) >= 0;
+  } // hasPrefix(String)
+
+  /**
+   * Iterate the pairs whose keys start with prefix, in order.
+   */
+  public Iterator<Pair<String, String>> withPrefix(String prefix) {
+    return new PrefixIterator(find(prefix));
+  } // withPrefix(String)
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Find the offset of the node for a key, or -1 if there is none.
+   */
+  int find(String key) {
+    int node = HEADER;
+    for (int i = 0; (i < key.length()) && (node >= 0); i++) {
+      int slot = this.alphabet.index(key.charAt(i));
+      if (slot < 0)
+        return -1;
+      int first = node + NODE;
+      int lo = 0;
+      int hi = (this.buffer.get(node + 4) & 0xFF) - 1;
+      node = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        char label = this.buffer.getChar(first + mid * CHILD);
+        int midSlot = this.alphabet.index(label);
+        if (midSlot < slot) {
+          lo = mid + 1;
+        } else if (midSlot > slot) {
+          hi = mid - 1;
+        } else {
+          node = this.buffer.getInt(first + mid * CHILD + 2);
+          break;
+        } // if/else
+      } // while
+    } // for
+    return node;
+  } // find(String)
+
+  /**
+   * Read the key of a node that ends one.
+   */
+  String key(int node) {
+    return string(this.buffer.getInt(node));
+  } // key(int)
+
+  /**
+   * Read the value of a node that ends a key.
+   */
+  String value(int node) {
+    int offset = this.buffer.getInt(node);
+    return string(offset + 4 + this.buffer.getInt(offset));
+  } // value(int)
+
+  /**
+   * Read a length-prefixed string, which may be null.
+   */
+  String string(int offset) {
+    int length = this.buffer.getInt(offset);
+    if (length < 0) {
+      return null;
+    } // if
+    byte[] bytes = new byte[length];
+    this.buffer.get(offset + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  } // string(int)
+
+  /**
+   * Write a trie to a file in our format, replacing anything already there.
+   *
+   * @throws IOException if the file can't be written or the trie is too large.
+   */
+  static void write(Trie<?> trie, Path file) throws IOException {
+    if (trie.alphabet.size() > 0xFF)
+      throw new IOException("alphabet too large: at most 255 children fit in a node");
+    int nodes = trie.nodeCount(trie.root);
+    long valuesStart = HEADER + (long) NODE * nodes + (long) CHILD * (nodes - 1);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(trie.size);
+      out.writeInt(nodes);
+      out.writeInt((int) valuesStart);
+      out.writeInt(trie.alphabet.size());
+      out.writeInt(trie.alphabet.fingerprint());
+
+      // The nodes. Since we write breadth first, each child's offset is the total size of
+      // the nodes queued before it.
+      long nextNode = HEADER + NODE + (long) CHILD * childCount(trie.root);
+      long nextValue = valuesStart;
+      ArrayDeque<TrieNode> queue = new ArrayDeque<TrieNode>();
+      queue.add(trie.root);
+      while (!queue.isEmpty()) {
+        TrieNode node = queue.remove();
+        if (node.hasKey()) {
+          out.writeInt((int) nextValue);
+          byte[] bytes = utf8(node.value());
+          nextValue += 8 + utf8(node.key()).length + ((bytes == null) ? 0 : bytes.length);
+          if (nextValue + TRAILER > Integer.MAX_VALUE)
+            throw new IOException("trie too large to map");
+        } else {
+          out.writeInt(NO_KEY);
+        } // if/else
+        out.writeByte(childCount(node));
+        for (int slot = 0; slot < node.width(); slot++) {
+          TrieNode child = node.nextAt(slot);
+          if (child != null) {
+            out.writeChar(child.label);
+            out.writeInt((int) nextNode);
+            nextNode += NODE + CHILD * childCount(child);
+            queue.add(child);
+          } // if
+        } // for
+      } // while
+
+      // The values, in the same order.
+      queue.add(trie.root);
+      while (!queue.isEmpty()) {
+        TrieNode node = queue.remove();
+        if (node.hasKey()) {
+          byte[] key = utf8(node.key());
+          out.writeInt(key.length);
+          out.write(key);
+          byte[] bytes = utf8(node.value());
+          out.writeInt((bytes == null) ? -1 : bytes.length);
+          if (bytes != null) {
+            out.write(bytes);
+          } // if
+        } // if
+        for (int slot = 0; slot < node.width(); slot++) {
+          TrieNode child = node.nextAt(slot);
+          if (child != null) {
+            queue.add(child);
+          } // if
+        } // for
+      } // while
+      out.writeInt((int) nextValue + TRAILER);
+    } // try
+  } // write(Trie, Path)
+
+  /**
+   * Count the children of a node.
+   */
+  static int childCount(TrieNode node) {
+    int count = 0;
+    for (int slot = 0; slot < node.width(); slot++) {
+      if (node.nextAt(slot) != null) {
+        count++;
+      } // if
+    } // for
+    return count;
+  } // childCount(TrieNode)
+
+  /**
+   * Encode a value, which may be null, as a string.
+   */
+  static byte[] utf8(Object value) {
+    return (value == null) ? null : value.toString().getBytes(StandardCharsets.UTF_8);
+  } // utf8(Object)
+
+  // +---------------+---------------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * An iterator over the keys at or below a node, depth first.
+   */
+  class PrefixIterator implements Iterator<Pair<String, String>> {
+    /**
+     * The nodes on the path from the starting node.
+     */
+    int[] path = new int[16];
+
+    /**
+     * For each node on the path, the next child to visit.
+     */
+    int[] nextChild = new int[16];
+
+    /**
+     * The depth of the current node, or -1 once we're done.
+     */
+    int depth;
+
+    /**
+     * The node whose pair we return next, or -1 if we haven't found it.
+     */
+    int upcoming;
+
+    /**
+     * Start iterating at a node; a negative node iterates nothing.
+     */
+    PrefixIterator(int start) {
+      if (start < 0) {
+        this.depth = -1;
+        this.upcoming = -1;
+      } else {
+        this.depth = 0;
+        this.path[0] = start;
+        this.nextChild[0] = 0;
+        this.upcoming = (buffer.getInt(start) != NO_KEY) ? start : -1;
+      } // if/else
+    } // PrefixIterator(int)
+
+    @Override
+    public boolean hasNext() {
+      while ((this.upcoming < 0) && (this.depth >= 0)) {
+        int node = this.path[this.depth];
+        int child = this.nextChild[this.depth];
+        if (child == (buffer.get(node + 4) & 0xFF)) {
+          this.depth--;
+        } else {
+          this.nextChild[this.depth] = child + 1;
+          int entry = node + NODE + child * CHILD;
+          if (++this.depth == this.path.length) {
+            this.path = Arrays.copyOf(this.path, this.depth * 2);
+            this.nextChild = Arrays.copyOf(this.nextChild, this.depth * 2);
+          } // if
+          int next = buffer.getInt(entry + 2);
+          this.path[this.depth] = next;
+          this.nextChild[this.depth] = 0;
+          if (buffer.getInt(next) != NO_KEY) {
+            this.upcoming = next;
+          } // if
+        } // if/else
+      } // while
+      return this.upcoming >= 0;
+    } // hasNext()
+
+    @Override
+    public Pair<String, String> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      Pair<String, String> result =
+          new Pair<String, String>(key(this.upcoming), value(this.upcoming));
+      this.upcoming = -1;
+      return result;
+    } // next()
+  } // class PrefixIterator
+} // class MappedTrie
@@ -0,0 +1,71 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compare starting up from a mapped trie file with building a Trie: the time to open, the heap
+ * used, and lookup throughput.
+ */
+public class MappedTrieExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of words in the dictionary.
+   */
+  static final int KEYS = 1000000;
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws Exception {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    String[] words = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      words[i] = AdaptiveRadixTrieExperiment.word(random);
+    } // for
+    // Half the queries hit, half (probably) miss.
+    String[] queries = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      queries[i] = ((i & 1) == 0) ? words[i] : AdaptiveRadixTrieExperiment.word(random);
+    } // for
+
+    long before = RadixTrieExperiment.usedHeap();
+    long start = System.nanoTime();
+    Trie<String> trie = new Trie<String>();
+    for (String word : words) {
+      trie.set(word, word);
+    } // for
+    double built = (System.nanoTime() - start) / 1e6;
+    long heap = RadixTrieExperiment.usedHeap() - before;
+
+    Path file = Files.createTempFile("dictionary", ".trie");
+    file.toFile().deleteOnExit();
+    start = System.nanoTime();
+    trie.export(file);
+    double exported = (System.nanoTime() - start) / 1e6;
+    pen.printf("Trie:       built %d keys in %.0f ms, %.1f MB of heap%n", trie.size(), built,
+        heap / 1e6);
+    pen.printf("Export:     %.0f ms, %.1f MB file%n", exported, Files.size(file) / 1e6);
+
+    before = RadixTrieExperiment.usedHeap();
+    start = System.nanoTime();
+    MappedTrie mapped = new MappedTrie(file);
+    double opened = (System.nanoTime() - start) / 1e6;
+    pen.printf("MappedTrie: opened in %.2f ms, %.1f MB of heap%n", opened,
+        (RadixTrieExperiment.usedHeap() - before) / 1e6);
+
+    // Warm up, then measure.
+    CompiledTrieExperiment.lookups(trie, queries);
+    CompiledTrieExperiment.lookups(mapped, queries);
+    pen.printf("Trie        %6.2f M lookups/s%n", CompiledTrieExperiment.lookups(trie, queries));
+    pen.printf("MappedTrie  %6.2f M lookups/s%n", CompiledTrieExperiment.lookups(mapped, queries));
+  } // main(String[])
+} // class MappedTrieExperiment
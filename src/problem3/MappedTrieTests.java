@@ -0,0 +1,195 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.MiscUtils;
+
+/**
+ * Tests of memory-mapped tries. Lookups follow the same paths as in the trie, so these focus on
+ * what the file adds: the trip through it, reopening, damage, and the limits of the format.
+ */
+public class MappedTrieTests {
+
+  /**
+   * The trie we export.
+   */
+  Trie<String> trie;
+
+  /**
+   * The file we export to.
+   */
+  Path file;
+
+  /**
+   * Build and export a trie with some unusual keys and values.
+   */
+  @BeforeEach
+  public void setupMappedTrieTests() throws IOException {
+    trie = new Trie<String>();
+    for (String word : new String[] { "a", "ant", "Antelope", "bear", "red fox", "zebra" }) {
+      trie.set(word, word.toUpperCase());
+    } // for
+    trie.set("", "empty");
+    trie.set("null", null);
+    trie.set("caf\u00e9", "\u00e9t\u00e9 \u2603");
+    file = tempFile();
+    trie.export(file);
+  } // setupMappedTrieTests()
+
+  /**
+   * Make a temporary file that goes away when we're done.
+   */
+  static Path tempFile() throws IOException {
+    Path file = Files.createTempFile("trie", ".bin");
+    file.toFile().deleteOnExit();
+    return file;
+  } // tempFile()
+
+  /**
+   * Collect the rest of an iterator.
+   */
+  static List<String> list(Iterator<String> it) {
+    ArrayList<String> result = new ArrayList<String>();
+    while (it.hasNext()) {
+      result.add(it.next());
+    } // while
+    return result;
+  } // list(Iterator)
+
+  /**
+   * A mapped trie has the trie's keys, exactly as set and in the same order, with their values.
+   */
+  @Test
+  public void roundTripTest() throws IOException {
+    MappedTrie mapped = new MappedTrie(file);
+    assertEquals(trie.size(), mapped.size());
+    assertEquals(list(trie.keys()), list(mapped.keys()));
+    assertEquals(list(trie.values()), list(mapped.values()));
+    assertEquals("empty", mapped.get(""));
+    assertTrue(mapped.containsKey("null"));
+    assertNull(mapped.get("null"));
+    assertEquals("\u00e9t\u00e9 \u2603", mapped.get("caf\u00e9"));
+    assertEquals(List.of("ant", "Antelope"),
+        list(MiscUtils.transform(mapped.withPrefix("AN"), (pair) -> pair.key())));
+    assertThrows(UnsupportedOperationException.class, () -> mapped.set("yak", "YAK"));
+    assertThrows(UnsupportedOperationException.class, () -> mapped.remove("a"));
+  } // roundTripTest()
+
+  /**
+   * A file can be mapped any number of times, and each mapping stays as it was when the trie
+   * changes or is exported elsewhere.
+   */
+  @Test
+  public void reopenTest() throws IOException {
+    MappedTrie first = new MappedTrie(file);
+    MappedTrie second = new MappedTrie(file);
+    assertEquals(list(first.keys()), list(second.keys()));
+
+    trie.remove("bear");
+    trie.set("yak", "YAK");
+    Path other = tempFile();
+    trie.export(other);
+    MappedTrie third = new MappedTrie(other);
+    assertTrue(first.containsKey("bear"));
+    assertFalse(first.containsKey("yak"));
+    assertFalse(third.containsKey("bear"));
+    assertEquals("YAK", third.get("yak"));
+
+    // Exporting the same trie again gives the same bytes.
+    Path again = tempFile();
+    trie.export(again);
+    assertArrayEquals(Files.readAllBytes(other), Files.readAllBytes(again));
+    assertEquals(list(third.keys()), list(new MappedTrie(again).keys()));
+  } // reopenTest()
+
+  /**
+   * Files that aren't trie files, that were cut short or added to, or whose header disagrees
+   * with itself, fail to open.
+   */
+  @Test
+  public void damagedTest() throws IOException {
+    byte[] bytes = Files.readAllBytes(file);
+    Path damaged = tempFile();
+    for (int length = 0; length < bytes.length; length++) {
+      Files.write(damaged, Arrays.copyOf(bytes, length));
+      assertThrows(IOException.class, () -> new MappedTrie(damaged), "length " + length);
+    } // for
+    Files.write(damaged, Arrays.copyOf(bytes, bytes.length + 1));
+    assertThrows(IOException.class, () -> new MappedTrie(damaged));
+
+    // Bad magic, and a node count that doesn't match the start of the values.
+    for (int offset : new int[] { 0, 11 }) {
+      byte[] copy = bytes.clone();
+      copy[offset]++;
+      Files.write(damaged, copy);
+      assertThrows(IOException.class, () -> new MappedTrie(damaged), "offset " + offset);
+    } // for
+
+    assertThrows(IOException.class, () -> new MappedTrie(file.resolveSibling("missing.bin")));
+    Files.write(damaged, bytes);
+    assertEquals(trie.size(), new MappedTrie(damaged).size());
+  } // damagedTest()
+
+  /**
+   * A node can have a child for every character of an alphabet of 255, the most a node's count
+   * can hold, and a larger alphabet can't be exported.
+   */
+  @Test
+  public void fanOutTest() throws IOException {
+    StringBuilder characters = new StringBuilder();
+    for (int i = 0; i < 0xFF; i++) {
+      characters.append((char) ('!' + i));
+    } // for
+    Alphabet wide = Alphabet.of(characters.toString());
+    Trie<String> full = new Trie<String>(wide);
+    for (int i = 0; i < characters.length(); i++) {
+      String ch = characters.substring(i, i + 1);
+      full.set(ch, "v" + i);
+      full.set("!" + ch, "w" + i);
+    } // for
+    full.export(file);
+    MappedTrie mapped = new MappedTrie(file, wide);
+    assertEquals(2 * 0xFF, mapped.size());
+    for (int i = 0; i < characters.length(); i++) {
+      String ch = characters.substring(i, i + 1);
+      assertEquals("v" + i, mapped.get(ch), ch);
+      assertEquals("w" + i, mapped.get("!" + ch), ch);
+    } // for
+    assertFalse(mapped.containsKey(" "));
+    assertFalse(mapped.containsKey("!!!"));
+    assertEquals(list(full.keys()), list(mapped.keys()));
+
+    Trie<String> wider = new Trie<String>(Alphabet.of(characters + "\u0200"));
+    wider.set("!", "v");
+    assertThrows(IOException.class, () -> wider.export(file));
+  } // fanOutTest()
+
+  /**
+   * A file only opens with the alphabet of the trie that wrote it.
+   */
+  @Test
+  public void alphabetTest() throws IOException {
+    Trie<String> dna = new Trie<String>(Alphabet.DNA);
+    dna.set("GATTACA", "1");
+    dna.set("gat", "2");
+    dna.export(file);
+    MappedTrie again = new MappedTrie(file, Alphabet.DNA);
+    assertEquals("1", again.get("gattaca"));
+    assertEquals(List.of("gat", "GATTACA"), list(again.keys()));
+    assertEquals(Alphabet.DNA.fingerprint(), Alphabet.of("ACGT", true).fingerprint());
+    assertEquals("2", new MappedTrie(file, Alphabet.of("ACGT", true)).get("GAT"));
+    // Same size, but other characters, another order, or no folding.
+    assertThrows(IOException.class, () -> new MappedTrie(file));
+    assertThrows(IOException.class, () -> new MappedTrie(file, Alphabet.of("ACGU", true)));
+    assertThrows(IOException.class, () -> new MappedTrie(file, Alphabet.of("CAGT", true)));
+    assertThrows(IOException.class, () -> new MappedTrie(file, Alphabet.of("ACGT")));
+  } // alphabetTest()
+} // class MappedTrieTests
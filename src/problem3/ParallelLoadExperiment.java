@@ -0,0 +1,63 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import utils.Pair;
+
+/**
+ * Compare loading unsorted words into a trie with set() and with Trie.parallelLoad().
+ */
+public class ParallelLoadExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of words we load.
+   */
+  static final int KEYS = 1000000;
+
+  /**
+   * The number of times we load each way.
+   */
+  static final int ROUNDS = 3;
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    ArrayList<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+    for (int i = 0; i < KEYS; i++) {
+      String word = AdaptiveRadixTrieExperiment.word(random);
+      pairs.add(new Pair<String, String>(word, word));
+    } // for
+
+    pen.println("Processors: " + Runtime.getRuntime().availableProcessors()
+        + ", fork-join parallelism: " + ForkJoinPool.commonPool().getParallelism());
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      Trie<String> set = new Trie<String>();
+      for (Pair<String, String> pair : pairs) {
+        set.set(pair.key(), pair.value());
+      } // for
+      double setTime = (System.nanoTime() - start) / 1e6;
+
+      start = System.nanoTime();
+      Trie<String> loaded = new Trie<String>();
+      loaded.parallelLoad(pairs);
+      double loadTime = (System.nanoTime() - start) / 1e6;
+
+      if (set.nodeCount(set.root) != loaded.nodeCount(loaded.root)) {
+        throw new IllegalStateException("the tries differ");
+      } // if
+      pen.printf("%d keys: set() %.0f ms, parallelLoad() %.0f ms%n", loaded.size(), setTime,
+          loadTime);
+    } // for
+  } // main(String[])
+} // class ParallelLoadExperiment
@@ -0,0 +1,94 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Compare routing by longest matching prefix with repeated containsKey calls on shorter and
+ * shorter substrings and with a single longestPrefixOf pass.
+ */
+public class PrefixMatchExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of routes.
+   */
+  static final int ROUTES = 20000;
+
+  /**
+   * The number of requests we route.
+   */
+  static final int REQUESTS = 1000000;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make a random path of some number of segments.
+   */
+  static String path(Random random, int segments) {
+    StringBuilder path = new StringBuilder();
+    for (int i = 0; i < segments; i++) {
+      path.append('/').append(AdaptiveRadixTrieExperiment.word(random));
+    } // for
+    return path.toString();
+  } // path(Random, int)
+
+  /**
+   * Find the longest route that starts a path by trying every prefix, longest first.
+   */
+  static int naive(Trie<String> routes, String path) {
+    for (int length = path.length(); length >= 0; length--) {
+      if (routes.containsKey(path.substring(0, length))) {
+        return length;
+      } // if
+    } // for
+    return -1;
+  } // naive(Trie, String)
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    Trie<String> routes = new Trie<String>();
+    String[] prefixes = new String[ROUTES];
+    for (int i = 0; i < ROUTES; i++) {
+      prefixes[i] = path(random, 1 + random.nextInt(2));
+      routes.set(prefixes[i], "handler" + i);
+    } // for
+    // Requests extend a route by a few more segments.
+    String[] requests = new String[REQUESTS];
+    for (int i = 0; i < REQUESTS; i++) {
+      requests[i] = prefixes[random.nextInt(ROUTES)] + path(random, 1 + random.nextInt(4));
+    } // for
+
+    for (int round = 0; round < 3; round++) {
+      long total = 0;
+      long start = System.nanoTime();
+      for (String request : requests) {
+        total += naive(routes, request);
+      } // for
+      double naiveTime = (System.nanoTime() - start) / 1e6;
+
+      long check = 0;
+      start = System.nanoTime();
+      for (String request : requests) {
+        check += routes.longestPrefixOf(request);
+      } // for
+      double passTime = (System.nanoTime() - start) / 1e6;
+
+      if (total != check) {
+        throw new IllegalStateException("the matches differ");
+      } // if
+      pen.printf("%d requests: containsKey loop %.0f ms, longestPrefixOf %.0f ms%n", REQUESTS,
+          naiveTime, passTime);
+    } // for
+  } // main(String[])
+} // class PrefixMatchExperiment
@@ -0,0 +1,444 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import utils.MiscUtils;
+import utils.Pair;
+import utils.SimpleMap;
+import utils.SimpleStack;
+
+/**
+ * A path-compressed (radix, or Patricia) trie. Chains of nodes with a single child are collapsed
+ * into one edge labelled with the whole substring.
+ *
+ * @author Chris Won
+ */
+public class RadixTrie implements SimpleMap<String, String> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * Every node except the root has a non-empty label: the characters on the edge from its parent.
+   * A node's key is the concatenation of the labels from the root down to it. Siblings never
+   * share a first character, and we keep them sorted by first character, so iteration is in
+   * lexicographic (char) order.
+   *
+   * We maintain two invariants: every node other than the root either holds a value or has at
+   * least two children. set splits an edge when a key diverges partway along it; remove merges a
+   * node into its only child, or deletes a childless node, whenever removing a value would break
+   * the invariant.
+   *
+   * Iterators throw a ConcurrentModificationException if the trie changes under them, and do not
+   * support remove.
+   */
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The root of the trie. Its label is always empty.
+   */
+  RadixNode root;
+
+  /**
+   * The number of pairs in the trie.
+   */
+  int size;
+
+  // for keeping track of concurrent modification
+  int mutation = 0;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty, trie.
+   */
+  public RadixTrie() {
+    this.root = new RadixNode("");
+    this.size = 0;
+  } // RadixTrie()
+
+  // +-------------------+-------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public String set(String key, String value) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    this.mutation++;
+    RadixNode current = this.root;
+    int i = 0;
+    while (i < key.length()) {
+      RadixNode child = current.child(key.charAt(i));
+      // Nothing starts with this character: add a leaf for the rest of the key.
+      if (child == null) {
+        RadixNode leaf = new RadixNode(key.substring(i));
+        current.addChild(leaf);
+        current = leaf;
+        i = key.length();
+        break;
+      } // if
+      int common = commonPrefix(child.label, key, i);
+      // The key diverges partway along the edge, so split it.
+      if (common < child.label.length()) {
+        child = split(current, child, common);
+      } // if
+      current = child;
+      i += common;
+    } // while
+
+    String result = current.value;
+    if (!current.hasValue) {
+      current.hasValue = true;
+      this.size++;
+    } // if
+    current.value = value;
+    return result;
+  } // set(String,String)
+
+  @Override
+  public String get(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    RadixNode node = this.find(key);
+    if ((node == null) || !node.hasValue)
+      throw new IndexOutOfBoundsException("key not found");
+
+    return node.value;
+  } // get(String)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  @Override
+  public boolean containsKey(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    RadixNode node = this.find(key);
+    return (node != null) && node.hasValue;
+  } // containsKey(String)
+
+  @Override
+  public String remove(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    // Find the node, remembering its parent and grandparent for merging.
+    RadixNode grandparent = null;
+    RadixNode parent = null;
+    RadixNode current = this.root;
+    int i = 0;
+    while (i < key.length()) {
+      RadixNode child = current.child(key.charAt(i));
+      if ((child == null) || !key.startsWith(child.label, i))
+        return null;
+      grandparent = parent;
+      parent = current;
+      current = child;
+      i += child.label.length();
+    } // while
+
+    if (!current.hasValue)
+      return null;
+
+    this.mutation++;
+    String result = current.value;
+    current.hasValue = false;
+    current.value = null;
+    this.size--;
+
+    if (parent == null) {
+      // The root holds the empty key and never needs restructuring.
+      return result;
+    } else if (current.childCount == 0) {
+      parent.removeChild(current);
+      // The parent may now be a valueless node with one child.
+      if ((grandparent != null) && !parent.hasValue && (parent.childCount == 1)) {
+        merge(grandparent, parent);
+      } // if
+    } else if (current.childCount == 1) {
+      merge(parent, current);
+    } // if/else
+    return result;
+  } // remove(String)
+
+  @Override
+  public Iterator<String> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public Iterator<String> values() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
+  } // values()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    dump(pen, this.root, "");
+  } // dump(PrintWriter)
+
+  // +------------------+--------------------------------------------
+  // | Iterable methods |
+  // +------------------+
+
+  /**
+   * Iterate all the key/value pairs in the trie, in lexicographic order by key.
+   */
+  @Override
+  public Iterator<Pair<String, String>> iterator() {
+    return new Iterator<Pair<String, String>>() {
+      /**
+       * Nodes we have yet to visit, each paired with the key that leads to it.
+       */
+      SimpleStack<Pair<String, RadixNode>> remaining =
+          new SimpleStack<Pair<String, RadixNode>>(new Pair<String, RadixNode>("", root));
+
+      /**
+       * The next pair to return, or null if we haven't found it yet.
+       */
+      Pair<String, String> upcoming = null;
+
+      int initialMutation = mutation;
+
+      @Override
+      public boolean hasNext() {
+        if (initialMutation != mutation)
+          throw new ConcurrentModificationException();
+
+        while ((upcoming == null) && !remaining.isEmpty()) {
+          Pair<String, RadixNode> frame = remaining.get();
+          RadixNode node = frame.value();
+          // Push in reverse so that we visit the children in order.
+          for (int i = node.childCount - 1; i >= 0; i--) {
+            RadixNode child = node.children[i];
+            remaining.put(new Pair<String, RadixNode>(frame.key() + child.label, child));
+          } // for
+          if (node.hasValue) {
+            upcoming = new Pair<String, String>(frame.key(), node.value);
+          } // if
+        } // while
+        return upcoming != null;
+      } // hasNext()
+
+      @Override
+      public Pair<String, String> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        Pair<String, String> result = upcoming;
+        upcoming = null;
+        return result;
+      } // next()
+    }; // new Iterator
+  } // iterator()
+
+  // +------+------------------------------------------------------------
+  // | Misc |
+  // +------+
+
+  /**
+   * Count the nodes in the trie, including the root. Used mostly for experiments.
+   */
+  public int nodeCount() {
+    return nodeCount(this.root);
+  } // nodeCount()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Find the length of the longest common prefix of label and key.substring(start).
+   */
+  static int commonPrefix(String label, String key, int start) {
+    int max = Math.min(label.length(), key.length() - start);
+    int i = 0;
+    while ((i < max) && (label.charAt(i) == key.charAt(start + i))) {
+      i++;
+    } // while
+    return i;
+  } // commonPrefix(String, String, int)
+
+  /**
+   * Dump the subtrie rooted at node, indented by the specified indent.
+   */
+  void dump(PrintWriter pen, RadixNode node, String indent) {
+    for (int i = 0; i < node.childCount; i++) {
+      RadixNode child = node.children[i];
+      if (child.hasValue) {
+        pen.println(indent + child.label + ": " + child.value);
+      } else {
+        pen.println(indent + child.label);
+      } // if/else
+      dump(pen, child, indent + child.label.replaceAll(".", " ") + "-");
+    } // for
+  } // dump(PrintWriter, RadixNode, String)
+
+  /**
+   * Find the node for a key. Returns null if no node's key is exactly key.
+   */
+  RadixNode find(String key) {
+    RadixNode current = this.root;
+    int i = 0;
+    while (i < key.length()) {
+      RadixNode child = current.child(key.charAt(i));
+      if ((child == null) || !key.startsWith(child.label, i))
+        return null;
+      current = child;
+      i += child.label.length();
+    } // while
+    return current;
+  } // find(String)
+
+  /**
+   * Merge a valueless node with its only child, replacing it in its parent.
+   */
+  void merge(RadixNode parent, RadixNode node) {
+    RadixNode child = node.children[0];
+    child.label = node.label + child.label;
+    parent.replaceChild(node, child);
+  } // merge(RadixNode, RadixNode)
+
+  /**
+   * Count the nodes in a subtrie.
+   */
+  int nodeCount(RadixNode node) {
+    int count = 1;
+    for (int i = 0; i < node.childCount; i++) {
+      count += nodeCount(node.children[i]);
+    } // for
+    return count;
+  } // nodeCount(RadixNode)
+
+  /**
+   * Split the edge to child after its first length characters, returning the new node in the
+   * middle.
+   */
+  RadixNode split(RadixNode parent, RadixNode child, int length) {
+    RadixNode middle = new RadixNode(child.label.substring(0, length));
+    parent.replaceChild(child, middle);
+    child.label = child.label.substring(length);
+    middle.addChild(child);
+    return middle;
+  } // split(RadixNode, RadixNode, int)
+} // class RadixTrie
+
+
+/**
+ * Nodes for our radix tries.
+ */
+class RadixNode {
+  /**
+   * The characters on the edge from the parent.
+   */
+  String label;
+
+  /**
+   * The value, if hasValue is set.
+   */
+  String value;
+
+  /**
+   * Does this node hold a value? (We can't use value == null, since null is a legal value.)
+   */
+  boolean hasValue;
+
+  /**
+   * The children, sorted by the first character of their labels. Null until we have a child.
+   */
+  RadixNode[] children;
+
+  /**
+   * The number of children.
+   */
+  int childCount;
+
+  /**
+   * Create a node with no value or children.
+   */
+  RadixNode(String label) {
+    this.label = label;
+    this.value = null;
+    this.hasValue = false;
+    this.children = null;
+    this.childCount = 0;
+  } // RadixNode(String)
+
+  /**
+   * Add a child, keeping the children sorted.
+   */
+  void addChild(RadixNode child) {
+    if (this.children == null) {
+      this.children = new RadixNode[2];
+    } else if (this.childCount == this.children.length) {
+      RadixNode[] newChildren = new RadixNode[this.childCount * 2];
+      System.arraycopy(this.children, 0, newChildren, 0, this.childCount);
+      this.children = newChildren;
+    } // if/else
+    int i = -(search(child.label.charAt(0)) + 1);
+    System.arraycopy(this.children, i, this.children, i + 1, this.childCount - i);
+    this.children[i] = child;
+    this.childCount++;
+  } // addChild(RadixNode)
+
+  /**
+   * Get the child whose label starts with ch, or null if there is none.
+   */
+  RadixNode child(char ch) {
+    int i = search(ch);
+    return (i >= 0) ? this.children[i] : null;
+  } // child(char)
+
+  /**
+   * Remove a child.
+   */
+  void removeChild(RadixNode child) {
+    int i = search(child.label.charAt(0));
+    System.arraycopy(this.children, i + 1, this.children, i, this.childCount - i - 1);
+    this.children[--this.childCount] = null;
+    if (this.childCount == 0) {
+      this.children = null;
+    } // if
+  } // removeChild(RadixNode)
+
+  /**
+   * Replace a child with another whose label starts with the same character.
+   */
+  void replaceChild(RadixNode oldChild, RadixNode newChild) {
+    this.children[search(oldChild.label.charAt(0))] = newChild;
+  } // replaceChild(RadixNode, RadixNode)
+
+  /**
+   * Binary search the children for the one whose label starts with ch. Returns its index, or
+   * -(insertion point) - 1 if there is none.
+   */
+  int search(char ch) {
+    int lo = 0;
+    int hi = this.childCount - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      char midChar = this.children[mid].label.charAt(0);
+      if (midChar < ch) {
+        lo = mid + 1;
+      } else if (midChar > ch) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      } // if/else
+    } // while
+    return -(lo + 1);
+  } // search(char)
+} // class RadixNode
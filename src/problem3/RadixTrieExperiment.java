@@ -0,0 +1,96 @@
+package problem3;
+
+import java.io.PrintWriter;
+import utils.SimpleMap;
+
+/**
+ * Compare the number of nodes and the heap used by a Trie and a RadixTrie holding the same set
+ * of URL-like paths, which share long prefixes.
+ */
+public class RadixTrieExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of paths we store.
+   */
+  static final int KEYS = 200000;
+
+  /**
+   * The pieces we build paths from.
+   */
+  static final String[] SEGMENTS = { "api", "users", "accounts", "settings", "profile",
+      "orders", "items", "search", "images", "static", "assets", "docs" };
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Build the ith path. (The tries fold case and treat every non-letter alike, so we stick to
+   * lowercase letters and separators.)
+   */
+  static String path(int i) {
+    StringBuilder path = new StringBuilder("https://www.example.com");
+    int rest = i;
+    for (int depth = 0; depth < 3; depth++) {
+      path.append('/').append(SEGMENTS[rest % SEGMENTS.length]);
+      rest /= SEGMENTS.length;
+    } // for
+    path.append('/');
+    // Spell the remaining digits as letters so each path is distinct.
+    do {
+      path.append((char) ('a' + (rest % 26)));
+      rest /= 26;
+    } while (rest > 0);
+    return path.toString();
+  } // path(int)
+
+  /**
+   * Estimate the heap in use, in bytes, after encouraging a collection.
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    } // for
+    return runtime.totalMemory() - runtime.freeMemory();
+  } // usedHeap()
+
+  /**
+   * Fill a map with all of the paths, returning the heap it uses.
+   */
+  static long fill(SimpleMap<String, String> map, String[] paths) {
+    long before = usedHeap();
+    for (String path : paths) {
+      map.set(path, path);
+    } // for
+    return usedHeap() - before;
+  } // fill(SimpleMap, String[])
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    String[] paths = new String[KEYS];
+    long chars = 0;
+    for (int i = 0; i < KEYS; i++) {
+      paths[i] = path(i);
+      chars += paths[i].length();
+    } // for
+    pen.println(KEYS + " paths, " + chars + " characters, e.g. " + paths[KEYS - 1]);
+
+    Trie<String> trie = new Trie<String>();
+    long trieBytes = fill(trie, paths);
+    pen.printf("Trie:      %9d nodes  %8.1f MB%n", trie.nodeCount(trie.root), trieBytes / 1e6);
+    trie = null;
+
+    RadixTrie radix = new RadixTrie();
+    long radixBytes = fill(radix, paths);
+    pen.printf("RadixTrie: %9d nodes  %8.1f MB%n", radix.nodeCount(), radixBytes / 1e6);
+  } // main(String[])
+} // class RadixTrieExperiment
@@ -0,0 +1,60 @@
+package problem3;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import utils.SimpleMapTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of radix tries.
+ */
+public class RadixTrieTests extends SimpleMapTests {
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupRadixTrieTests() {
+    stringMap = new RadixTrie();
+    runIteratorRemoveTests = false;
+  } // setupRadixTrieTests()
+
+  /**
+   * Splitting and merging keep the trie compressed, and iteration is in order.
+   */
+  @Test
+  public void splitAndMergeTest() {
+    RadixTrie trie = (RadixTrie) stringMap;
+    trie.set("romane", "1");
+    trie.set("romanus", "2");
+    trie.set("romulus", "3");
+    trie.set("rom", "4");
+    trie.set("", "5");
+    // root, rom, an, e, us, ulus
+    assertEquals(6, trie.nodeCount());
+    assertEquals(5, trie.size());
+    assertFalse(trie.containsKey("roman"));
+    assertFalse(trie.containsKey("ro"));
+
+    ArrayList<String> keys = new ArrayList<String>();
+    for (Iterator<String> it = trie.keys(); it.hasNext(); ) {
+      keys.add(it.next());
+    } // for
+    assertEquals(List.of("", "rom", "romane", "romanus", "romulus"), keys);
+
+    // Removing romane leaves "an" with one child, so it merges with "us".
+    assertEquals("1", trie.remove("romane"));
+    assertEquals(4, trie.nodeCount());
+    assertEquals("2", trie.get("romanus"));
+    // Removing rom leaves it with two children, so nothing merges.
+    assertEquals("4", trie.remove("rom"));
+    assertEquals(4, trie.nodeCount());
+    // Removing romulus leaves a valueless "rom" with one child, so they merge.
+    assertEquals("3", trie.remove("romulus"));
+    assertEquals(2, trie.nodeCount());
+    assertEquals("2", trie.get("romanus"));
+    assertEquals(2, trie.size());
+  } // splitAndMergeTest()
+} // class RadixTrieTests
@@ -0,0 +1,63 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import utils.Pair;
+
+/**
+ * Compare building a trie from a sorted word list with set() and with Trie.buildFromSorted().
+ */
+public class SortedBuildExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of words we generate (before removing duplicates).
+   */
+  static final int KEYS = 1000000;
+
+  /**
+   * The number of times we build each way.
+   */
+  static final int ROUNDS = 3;
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    ArrayList<String> words = new ArrayList<String>();
+    for (int i = 0; i < KEYS; i++) {
+      words.add(AdaptiveRadixTrieExperiment.word(random));
+    } // for
+    words.sort(Trie::compare);
+    ArrayList<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+    for (String word : words) {
+      pairs.add(new Pair<String, String>(word, word));
+    } // for
+
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      Trie<String> set = new Trie<String>();
+      for (Pair<String, String> pair : pairs) {
+        set.set(pair.key(), pair.value());
+      } // for
+      double setTime = (System.nanoTime() - start) / 1e6;
+
+      start = System.nanoTime();
+      Trie<String> built = Trie.buildFromSorted(pairs.iterator());
+      double buildTime = (System.nanoTime() - start) / 1e6;
+
+      if (set.nodeCount(set.root) != built.nodeCount(built.root)) {
+        throw new IllegalStateException("the tries differ");
+      } // if
+      pen.printf("%d keys: set() %.0f ms, buildFromSorted() %.0f ms%n", built.size(), setTime,
+          buildTime);
+    } // for
+  } // main(String[])
+} // class SortedBuildExperiment
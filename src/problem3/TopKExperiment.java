@@ -0,0 +1,111 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Measure the latency of top-k completion queries on a large weighted trie, using the cached
+ * best keys and, for comparison, sorting the whole subtrie.
+ */
+public class TopKExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of words in the trie.
+   */
+  static final int KEYS = 300000;
+
+  /**
+   * The number of queries in the log.
+   */
+  static final int QUERIES = 200000;
+
+  /**
+   * The number of queries we answer by sorting, which is much slower.
+   */
+  static final int SORTED_QUERIES = 2000;
+
+  /**
+   * The number of completions per query.
+   */
+  static final int K = 10;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Answer a query by sorting every key with the prefix.
+   */
+  static ArrayList<String> sortedTopK(Trie<String> trie, String prefix, int k) {
+    ArrayList<String> keys = new ArrayList<String>();
+    for (Iterator<String> it = trie.keysWithPrefix(prefix); it.hasNext(); ) {
+      keys.add(it.next());
+    } // for
+    keys.sort((a, b) -> (trie.weight(a) != trie.weight(b))
+        ? Long.compare(trie.weight(b), trie.weight(a)) : a.compareTo(b));
+    return new ArrayList<String>(keys.subList(0, Math.min(k, keys.size())));
+  } // sortedTopK(Trie, String, int)
+
+  /**
+   * Report percentiles of some latencies, in nanoseconds.
+   */
+  static void report(PrintWriter pen, String label, long[] latencies) {
+    Arrays.sort(latencies);
+    pen.printf("%-8s p50 %8.1f us  p99 %8.1f us  p99.9 %8.1f us  max %8.1f us%n", label,
+        latencies[latencies.length / 2] / 1e3, latencies[latencies.length * 99 / 100] / 1e3,
+        latencies[latencies.length * 999 / 1000] / 1e3, latencies[latencies.length - 1] / 1e3);
+  } // report(PrintWriter, String, long[])
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    String[] words = new String[KEYS];
+    Trie<String> trie = new Trie<String>();
+    long start = System.nanoTime();
+    for (int i = 0; i < KEYS; i++) {
+      words[i] = AdaptiveRadixTrieExperiment.word(random);
+      // Roughly Zipfian popularity.
+      trie.set(words[i], words[i], (long) (1e9 / (1 + random.nextInt(KEYS))));
+    } // for
+    pen.printf("built %d weighted words in %.1f ms%n", trie.countWithPrefix(""),
+        (System.nanoTime() - start) / 1e6);
+
+    // The log: prefixes of one to four characters of words, favoring popular ones.
+    String[] queries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      String word = words[(int) Math.abs(random.nextGaussian() * KEYS / 8) % KEYS];
+      queries[i] = word.substring(0, 1 + random.nextInt(Math.min(4, word.length())));
+    } // for
+
+    long[] cached = new long[QUERIES];
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < QUERIES; i++) {
+        long before = System.nanoTime();
+        trie.topK(queries[i], K);
+        cached[i] = System.nanoTime() - before;
+      } // for
+    } // for
+    report(pen, "cached", cached);
+
+    long[] sorted = new long[SORTED_QUERIES];
+    for (int i = 0; i < SORTED_QUERIES; i++) {
+      long before = System.nanoTime();
+      if (!sortedTopK(trie, queries[i], K).equals(trie.topK(queries[i], K))) {
+        throw new IllegalStateException("disagreement on " + queries[i]);
+      } // if
+      sorted[i] = System.nanoTime() - before;
+    } // for
+    report(pen, "sorted", sorted);
+  } // main(String[])
+} // class TopKExperiment
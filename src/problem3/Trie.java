@@ -1,21 +1,39 @@
 package problem3;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import utils.MiscUtils;
 import utils.Pair;
 import utils.SimpleMap;
-import utils.SimpleStack;
 
 /**
- * A simple implementation of tries.
+ * A simple implementation of tries, mapping strings to values of type V. The alphabet chosen
+ * when the trie is made decides which characters keys may use, how they fold, and the order of
+ * the keys; by default, letters with case folded.
+ *
+ * Keys that fold together are the same key, and setting one replaces the other. Iteration,
+ * cursors, topK, and fuzzyMatch return each key exactly as it was last set: after set("CAT")
+ * and set("cab"), keys() returns "cab" and "CAT", even though they share nodes.
  */
-public class Trie implements SimpleMap<String, String>, Iterable<Pair<String, String>> {
+public class Trie<V> implements SimpleMap<String, V>, Iterable<Pair<String, V>> {
 
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
 
+  /**
+   * The characters keys may use.
+   */
+  Alphabet alphabet;
+
   /**
    * The root of the trie.
    */
@@ -31,47 +49,252 @@ public class Trie implements SimpleMap<String, String>, Iterable<Pair<String, St
   // +--------------+
 
   /**
-   * Create a new, empty, trie.
+   * Create a new, empty, trie of letters, with case folded.
    */
   public Trie() {
-    this.root = new TrieNode();
-    this.size = 0;
+    this(Alphabet.LETTERS);
   } // Trie()
 
+  /**
+   * Create a new, empty, trie whose keys use the characters of alphabet.
+   */
+  public Trie(Alphabet alphabet) {
+    if (alphabet == null)
+      throw new NullPointerException("alphabet cannot be null");
+    this.alphabet = alphabet;
+    this.root = node('\0');
+    this.size = 0;
+  } // Trie(Alphabet)
+
+  /**
+   * Build a trie from pairs in increasing order by key, in the order given by compare. Keys
+   * that compare equal (that differ only in case) behave as repeated calls to set. Since each
+   * key shares its path with the one before down to where they differ, we only descend from
+   * there, and we fill in the counts and best keys of each node once, when we leave it for the
+   * last time, so construction takes time proportional to the total length of the keys.
+   *
+   * @throws IllegalArgumentException if the keys are out of order.
+   */
+  public static <V> Trie<V> buildFromSorted(Iterator<Pair<String, V>> sorted) {
+    return buildFromSorted(Alphabet.LETTERS, sorted);
+  } // buildFromSorted(Iterator)
+
+  /**
+   * Build a trie over alphabet from pairs in increasing order by key, as buildFromSorted does.
+   *
+   * @throws IllegalArgumentException if the keys are out of order or use characters outside
+   *   alphabet.
+   */
+  public static <V> Trie<V> buildFromSorted(Alphabet alphabet,
+      Iterator<Pair<String, V>> sorted) {
+    Trie<V> trie = new Trie<V>(alphabet);
+    // The nodes on the previous key's path.
+    TrieNode[] path = new TrieNode[16];
+    path[0] = trie.root;
+    int depth = 0;
+    String previous = "";
+
+    while (sorted.hasNext()) {
+      Pair<String, V> pair = sorted.next();
+      String key = pair.key();
+      trie.check(key);
+      trie.checkValue(pair.value());
+
+      int common = 0;
+      int shorter = Math.min(key.length(), previous.length());
+      while ((common < shorter)
+          && (alphabet.index(key.charAt(common)) == alphabet.index(previous.charAt(common)))) {
+        common++;
+      } // while
+      if ((common < shorter) ? (alphabet.index(key.charAt(common)) < alphabet.index(
+          previous.charAt(common))) : (key.length() < previous.length()))
+        throw new IllegalArgumentException("keys out of order: " + previous + ", " + key);
+
+      // Nothing will be added below the rest of the previous path.
+      while (depth > common) {
+        trie.finish(path[depth--]);
+      } // while
+      for (int i = common; i < key.length(); i++) {
+        char ch = key.charAt(i);
+        TrieNode child = trie.node(ch);
+        path[depth].setNext(alphabet, ch, child);
+        if (++depth == path.length) {
+          path = Arrays.copyOf(path, depth * 2);
+        } // if
+        path[depth] = child;
+      } // for
+      if (!path[depth].hasKey()) {
+        trie.size++;
+      } // if
+      path[depth].setValue(key, pair.value());
+      previous = key;
+    } // while
+    while (depth >= 0) {
+      trie.finish(path[depth--]);
+    } // while
+    return trie;
+  } // buildFromSorted(Alphabet, Iterator)
+
   // +-------------------+-------------------------------------------
   // | Trie methods |
   // +-------------------+
 
+  /**
+   * Set the value for a key. If the trie already has a key that differs only in characters
+   * that fold together (e.g., in case), this key replaces it along with its value.
+   *
+   * @throws IllegalArgumentException if key uses a character outside the trie's alphabet.
+   */
   @Override
-  public String set(String key, String value) {
-    if (key == null)
-      throw new NullPointerException("key cannot be null");
+  public V set(String key, V value) {
+    check(key);
+    checkValue(value);
 
+    TrieNode[] path = new TrieNode[key.length() + 1];
     TrieNode current = this.root;
+    path[0] = current;
 
     for (int i = 0; i < key.length(); i++) {
       char ch = key.charAt(i);
-      if (current.next(ch) == null)
-        current.setNext(ch, new TrieNode(key.substring(0, i), null));
+      if (current.next(this.alphabet, ch) == null)
+        current.setNext(this.alphabet, ch, node(ch));
 
-      current = current.next(ch);
+      current = current.next(this.alphabet, ch);
+      path[i + 1] = current;
     } // for
 
-    String result = current.value();
-    current.setValue(value);
+    // Only the node at the end of the key gets a value.
+    if (!current.hasKey()) {
+      current.setValue(key, value);
+      // Count the new key in every node on its path, and let them rank it.
+      this.size++;
+      for (TrieNode node : path) {
+        node.count++;
+      } // for
+      promote(path, current);
+      return null;
+    } // if
+    V result = value(current);
+    current.setValue(key, value);
     return result;
-  } // set(String,String)
+  } // set(String,V)
+
+  /**
+   * Set a key's value and weight. (Keys set without a weight have weight 0.) Returns the old
+   * value, or null if the key is new.
+   */
+  public V set(String key, V value, long weight) {
+    V result = this.set(key, value);
+    TrieNode[] path = this.path(key);
+    TrieNode node = path[key.length()];
+    long old = node.weight;
+    node.weight = weight;
+    if (weight > old) {
+      promote(path, node);
+    } else if (weight < old) {
+      demote(path, node);
+    } // if/else
+    return result;
+  } // set(String, V, long)
+
+  /**
+   * Set many pairs at once, in parallel. We partition the pairs by the slot of their first
+   * character; each partition builds a new subtrie in its own fork-join task. Once every task
+   * is done, we graft each new subtrie under the root or, if the trie already has keys there,
+   * merge it into the subtrie that is already there (again one task per subtrie). The subtries
+   * share no nodes, so the tasks don't need to coordinate. As with set, a later pair replaces
+   * an earlier one with the same key.
+   *
+   * We check every pair before starting, and nothing the tasks build is attached to the trie
+   * until all of them have finished, so if anything throws, the trie is unchanged.
+   *
+   * Load time scales with the number of cores as long as the keys' first characters are
+   * spread out; a partition that holds most of the keys runs on one core.
+   */
+  public void parallelLoad(Iterable<Pair<String, V>> pairs) {
+    int width = this.alphabet.size();
+    ArrayList<ArrayList<Pair<String, V>>> partitions =
+        new ArrayList<ArrayList<Pair<String, V>>>(width);
+    for (int slot = 0; slot < width; slot++) {
+      partitions.add(new ArrayList<Pair<String, V>>());
+    } // for
+    // The empty key belongs to the root, so we set it ourselves.
+    Pair<String, V> empty = null;
+    for (Pair<String, V> pair : pairs) {
+      String key = pair.key();
+      check(key);
+      checkValue(pair.value());
+      if (key.isEmpty()) {
+        empty = pair;
+      } else {
+        partitions.get(this.alphabet.index(key.charAt(0))).add(pair);
+      } // if/else
+    } // for
+
+    ArrayList<ForkJoinTask<TrieNode>> builds = new ArrayList<ForkJoinTask<TrieNode>>();
+    for (ArrayList<Pair<String, V>> partition : partitions) {
+      if (!partition.isEmpty()) {
+        builds.add(ForkJoinPool.commonPool().submit(() -> {
+          TrieNode subtrie = node(partition.get(0).key().charAt(0));
+          load(subtrie, partition);
+          return subtrie;
+        }));
+      } // if
+    } // for
+    ArrayList<TrieNode> subtries = new ArrayList<TrieNode>();
+    for (ForkJoinTask<TrieNode> build : builds) {
+      subtries.add(build.join());
+    } // for
+
+    // Everything is built, so now we change the trie.
+    int added = 0;
+    ArrayList<ForkJoinTask<Integer>> merges = new ArrayList<ForkJoinTask<Integer>>();
+    for (TrieNode subtrie : subtries) {
+      TrieNode existing = this.root.next(this.alphabet, subtrie.label);
+      if (existing == null) {
+        this.root.setNext(this.alphabet, subtrie.label, subtrie);
+        added += subtrie.count;
+      } else {
+        merges.add(ForkJoinPool.commonPool().submit(() -> merge(existing, subtrie)));
+      } // if/else
+    } // for
+    for (ForkJoinTask<Integer> merge : merges) {
+      added += merge.join();
+    } // for
+    this.size += added;
+    this.root.count += added;
+    this.root.refreshTop(this.alphabet);
+    if (empty != null) {
+      this.set(empty.key(), empty.value());
+    } // if
+  } // parallelLoad(Iterable)
+
+  /**
+   * Get the weight of a key.
+   *
+   * @throws IndexOutOfBoundsException if the key is not in the trie.
+   */
+  public long weight(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+
+    TrieNode node = this.find(key);
+    if ((node == null) || !node.hasKey())
+      throw new IndexOutOfBoundsException("key not found");
+
+    return node.weight;
+  } // weight(String)
 
   @Override
-  public String get(String key) {
+  public V get(String key) {
     if (key == null)
       throw new NullPointerException("key cannot be null");
 
     TrieNode result = this.find(key);
-    if (result == null)
+    if ((result == null) || !result.hasKey())
       throw new IndexOutOfBoundsException("key not found");
 
-    return result.value();
+    return value(result);
   } // get(String)
 
   @Override
@@ -81,28 +304,49 @@ public class Trie implements SimpleMap<String, String>, Iterable<Pair<String, St
 
   @Override
   public boolean containsKey(String key) {
-    return this.find(key) != null;
+    TrieNode node = this.find(key);
+    return (node != null) && node.hasKey();
   } // containsKey(String)
 
   @Override
-  public String remove(String key) {
+  public V remove(String key) {
     if (key == null)
       throw new NullPointerException("key cannot be null");
 
-    TrieNode prev = this.root;
+    TrieNode[] path = new TrieNode[key.length() + 1];
+    path[0] = this.root;
     TrieNode current = this.root;
 
     for (int i = 0; i < key.length(); i++) {
       char ch = key.charAt(i);
-      if (current.next(ch) != null) {
-        prev = current;
-        current = current.next(ch);
+      if (current.next(this.alphabet, ch) != null) {
+        current = current.next(this.alphabet, ch);
+        path[i + 1] = current;
       } else
         return null;
     } // for
 
-    String result = current.value();
-    prev.setNext(key.charAt(key.length() - 1), null);
+    if (!current.hasKey())
+      return null;
+
+    V result = value(current);
+    current.clearValue();
+    this.size--;
+    for (TrieNode node : path) {
+      node.count--;
+    } // for
+
+    // Cut off the highest node on the path that no longer leads to any key. (The root stays.)
+    int kept = path.length;
+    while ((kept > 1) && (path[kept - 1].count == 0)) {
+      kept--;
+    } // while
+    if (kept < path.length) {
+      path[kept - 1].setNext(this.alphabet, key.charAt(kept - 1), null);
+    } // if
+
+    // The remaining nodes that ranked the key need to find a replacement.
+    demote(Arrays.copyOf(path, kept), current);
     return result;
   } // remove(String)
 
@@ -117,10 +361,36 @@ public class Trie implements SimpleMap<String, String>, Iterable<Pair<String, St
   /**
    * Iterate all the values in the tree, returning them in some undetermined order.
    */
-  public Iterator<String> values() {
+  public Iterator<V> values() {
     return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
   } // keys()
 
+  /**
+   * Compile the trie into an immutable double-array trie for fast lookups. Later changes to this
+   * trie do not affect the result.
+   */
+  public CompiledTrie<V> compile() {
+    return new CompiledTrie<V>(this.alphabet, this.root);
+  } // compile()
+
+  /**
+   * Build an Aho-Corasick matcher that finds the keys of this trie in text. Later changes to
+   * this trie do not affect the result.
+   */
+  public AhoCorasick<V> matcher() {
+    return new AhoCorasick<V>(this.alphabet, this.root);
+  } // matcher()
+
+  /**
+   * Write the trie to a file that a MappedTrie can open. Values are written as strings, using
+   * toString. Later changes to this trie do not affect the file.
+   *
+   * @throws IOException if the file can't be written or is too large to map.
+   */
+  public void export(Path file) throws IOException {
+    MappedTrie.write(this, file);
+  } // export(Path)
+
   /**
    * Dump the trie.
    */
@@ -136,76 +406,209 @@ public class Trie implements SimpleMap<String, String>, Iterable<Pair<String, St
   /**
    * Iterate all the key/value pairs in the tree, returning them in alphabetical order by key.
    */
-  public Iterator<Pair<String, String>> iterator() {
-    return new Iterator<Pair<String, String>>() {
-      /**
-       * A stack that will store all of the nodes that have keys.
-       */
-      SimpleStack<TrieNode> remaining;
+  public Iterator<Pair<String, V>> iterator() {
+    return new PrefixIterator(this.root);
+  } // iterator();
+
+  // +----------------+----------------------------------------------
+  // | Prefix methods |
+  // +----------------+
+
+  /**
+   * Count the keys that start with prefix, in time proportional to the length of prefix.
+   */
+  public int countWithPrefix(String prefix) {
+    TrieNode node = this.find(prefix);
+    return (node == null) ? 0 : node.count;
+  } // countWithPrefix(String)
+
+  /**
+   * Iterate the keys that start with prefix, in alphabetical order. Only visits the part of
+   * the trie below prefix, and only as far as the caller iterates.
+   */
+  public Iterator<String> keysWithPrefix(String prefix) {
+    return MiscUtils.transform(new PrefixIterator(this.find(prefix)), (pair) -> pair.key());
+  } // keysWithPrefix(String)
+
+  /**
+   * Get the (at most) k keys starting with prefix that have the largest weights, heaviest first.
+   * Ties go to the alphabetically earlier key. Takes time proportional to the length of prefix
+   * plus k, provided k is at most TrieNode.TOP_SIZE; larger requests visit the whole subtrie.
+   */
+  public List<String> topK(String prefix, int k) {
+    ArrayList<String> result = new ArrayList<String>();
+    TrieNode node = this.find(prefix);
+    if (node == null) {
+      return result;
+    } // if
+
+    TrieNode[] best = node.top;
+    if (k > TrieNode.TOP_SIZE) {
+      ArrayList<TrieNode> all = new ArrayList<TrieNode>();
+      PrefixIterator it = new PrefixIterator(node);
+      while (it.hasNext()) {
+        all.add(it.nextNode());
+      } // while
+      all.sort((a, b) -> TrieNode.rank(this.alphabet, a, b));
+      best = all.toArray(new TrieNode[all.size()]);
+    } // if
+    for (int i = 0; (i < k) && (i < best.length); i++) {
+      result.add(best[i].key());
+    } // for
+    return result;
+  } // topK(String, int)
+
+  /**
+   * Find the length of the longest key that is a prefix of input, or -1 if no key is. Makes one
+   * pass down the trie, so takes time proportional to the length of the match, and allocates
+   * nothing; use input.subSequence(0, length) if you need the key itself.
+   */
+  public int longestPrefixOf(CharSequence input) {
+    TrieNode node = longestPrefixNode(input);
+    return (node == null) ? -1 : node.key.length();
+  } // longestPrefixOf(CharSequence)
+
+  /**
+   * Get the value of the longest key that is a prefix of input, in one pass down the trie.
+   *
+   * @throws IndexOutOfBoundsException if no key is a prefix of input.
+   */
+  public V longestPrefixValue(CharSequence input) {
+    TrieNode node = longestPrefixNode(input);
+    if (node == null)
+      throw new IndexOutOfBoundsException("key not found");
+
+    return value(node);
+  } // longestPrefixValue(CharSequence)
+
+  /**
+   * Find the lengths of all the keys that are prefixes of input, shortest first, in one pass
+   * down the trie.
+   */
+  public int[] allPrefixesOf(CharSequence input) {
+    if (input == null)
+      throw new NullPointerException("input cannot be null");
 
-      /**
-       * Have we initialized the iterator? See checkInit().
-       */
-      boolean initialized = false;
+    int[] lengths = new int[4];
+    int count = 0;
+    TrieNode current = this.root;
+    for (int i = 0; current != null; i++) {
+      if (current.hasKey()) {
+        if (count == lengths.length) {
+          lengths = Arrays.copyOf(lengths, count * 2);
+        } // if
+        lengths[count++] = i;
+      } // if
+      current = (i < input.length()) ? current.next(this.alphabet, input.charAt(i)) : null;
+    } // for
+    return Arrays.copyOf(lengths, count);
+  } // allPrefixesOf(CharSequence)
+
+  // +----------------+----------------------------------------------
+  // | Ordered access |
+  // +----------------+
+
+  /**
+   * Compare two keys in the order a trie of letters keeps them: character by character, with
+   * case folded and every non-letter after the letters (and equal to every other non-letter),
+   * and a key before any longer key it is a prefix of.
+   */
+  public static int compare(String a, String b) {
+    return compare(Alphabet.LETTERS, a, b);
+  } // compare(String, String)
 
+  /**
+   * Compare two keys in the order a trie over alphabet keeps them: character by character, by
+   * slot, and a key before any longer key it is a prefix of. Characters outside the alphabet
+   * come first.
+   */
+  public static int compare(Alphabet alphabet, String a, String b) {
+    int length = Math.min(a.length(), b.length());
+    for (int i = 0; i < length; i++) {
+      int result = alphabet.index(a.charAt(i)) - alphabet.index(b.charAt(i));
+      if (result != 0) {
+        return result;
+      } // if
+    } // for
+    return a.length() - b.length();
+  } // compare(Alphabet, String, String)
+
+  /**
+   * Get a cursor over the trie, positioned before the first key.
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  } // cursor()
+
+  /**
+   * Iterate the pairs whose keys are at least from and less than to, in the order given by
+   * compare. Takes time proportional to the depth of the trie plus the number of pairs.
+   */
+  public Iterator<Pair<String, V>> range(String from, String to) {
+    Cursor cursor = new Cursor();
+    if ((compare(this.alphabet, from, to) >= 0) || !cursor.seek(from)) {
+      cursor.node = null;
+    } // if
+    // The first node we don't visit.
+    Cursor end = new Cursor();
+    TrieNode stop = end.seek(to) ? end.node : null;
+
+    return new Iterator<Pair<String, V>>() {
       @Override
       public boolean hasNext() {
-        checkInit();
-        return !remaining.isEmpty();
+        return (cursor.node != null) && (cursor.node != stop);
       } // hasNext()
 
       @Override
-      public Pair<String, String> next() {
-        checkInit();
-        TrieNode temp = remaining.get();
-        addChildren(temp);
-        return temp.contents;
-      } // next()
+      public Pair<String, V> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
 
-      /**
-       * Add all the children of a node to the stack.
-       */
-      void addChildren(TrieNode node) {
-        // Sanity check
-        if (node == null) {
-          // Do nothing.
+        Pair<String, V> result = new Pair<String, V>(cursor.key(), cursor.value());
+        if (!cursor.next()) {
+          cursor.node = null;
         } // if
-        for (char ch = 'z'; ch >= 'a'; ch--) {
-          addNode(node.next(ch));
-        } // for
-      } // addChildren(TrieNode)
-
-      /**
-       * Add a node to the stack.
-       */
-      void addNode(TrieNode node) {
-        if (node == null) {
-          // Do nothing; nothing to add
-        } // No node
-        // Nodes that have keys belong
-        else if (node.hasKey()) {
-          remaining.put(node);
-        } // It belongs
-        // If it doesn't have a key, add all the children.
-        else {
-          addChildren(node);
-        } // if/else
-      } // addNode
-
-      /**
-       * Make sure that the iterator is initialized.
-       */
-      void checkInit() {
-        if (initialized) {
-          return;
-        }
-        initialized = true;
-        remaining = new SimpleStack<TrieNode>();
-        addNode(Trie.this.root);
-      } // checkInit()
-
+        return result;
+      } // next()
     }; // new Iterator
-  } // iterator();
+  } // range(String, String)
+
+  // +--------------+------------------------------------------------
+  // | Fuzzy search |
+  // +--------------+
+
+  /**
+   * Find the keys within maxEdits insertions, deletions, and substitutions of query, in
+   * alphabetical order. Characters are compared as the trie sees them, so in a trie of letters
+   * case doesn't count.
+   */
+  public List<String> fuzzyMatch(String query, int maxEdits) {
+    if (maxEdits < 0)
+      throw new IllegalArgumentException("maxEdits must be non-negative");
+
+    int[] codes = new int[query.length()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = this.alphabet.index(query.charAt(i));
+    } // for
+    // The distances from query's prefixes to the empty key.
+    int[] row = new int[codes.length + 1];
+    for (int j = 0; j <= codes.length; j++) {
+      row[j] = j;
+    } // for
+    ArrayList<int[]> rows = new ArrayList<int[]>();
+    rows.add(row);
+
+    ArrayList<String> result = new ArrayList<String>();
+    if (this.root.hasKey() && (row[codes.length] <= maxEdits)) {
+      result.add(this.root.key);
+    } // if
+    for (int slot = 0; slot < this.root.width(); slot++) {
+      if (this.root.nextAt(slot) != null) {
+        fuzzyMatch(this.root.nextAt(slot), slot, 1, rows, codes, maxEdits, result);
+      } // if
+    } // for
+    return result;
+  } // fuzzyMatch(String, int)
 
   // +---------+-----------------------------------------------------
   // | Helpers |
@@ -218,145 +621,539 @@ public class Trie implements SimpleMap<String, String>, Iterable<Pair<String, St
     if (node == null) {
       return;
     } // if (node == null)
-    for (char ch = 'A'; ch <= 'Z'; ch++) {
-      TrieNode next = node.next(ch);
+    for (int i = 0; i < node.width(); i++) {
+      TrieNode next = node.nextAt(i);
       if (next != null) {
-        String prefix = indent + ch;
-        Pair<String, String> pair = next.contents;
-        if ((pair != null) && (pair.key() != null)) {
-          pen.println(prefix + ": " + pair);
+        String prefix = indent + next.label;
+        if (next.hasKey()) {
+          pen.println(prefix + ": <" + next.key + ":" + next.value() + ">");
         } else {
           pen.println(prefix);
         } // if/else)
-        dump(pen, next, indent + ch + "-");
+        dump(pen, next, indent + next.label + "-");
       } // if
     } // for
   } // dump(PrintWriter, TrieNode, String)
 
   /**
-   * Find the node associated with a key. Returns null if the node is not found.
+   * Set pairs whose keys all start at a child of the root, touching nothing above that child.
+   * Returns the number of new keys.
    */
-  TrieNode find(String key) {
-    int len = key.length();
-    TrieNode current = this.root;
-    for (int i = 0; i < len; i++) {
-      char ch = key.charAt(i);
-
-      if (current.next(ch) != null)
-        current = current.next(ch);
-      else
-        return null;
+  int load(TrieNode start, List<Pair<String, V>> pairs) {
+    int added = 0;
+    for (Pair<String, V> pair : pairs) {
+      String key = pair.key();
+      // The nodes on the path below the root.
+      TrieNode[] path = new TrieNode[key.length()];
+      TrieNode current = start;
+      path[0] = current;
+      for (int i = 1; i < key.length(); i++) {
+        char ch = key.charAt(i);
+        if (current.next(this.alphabet, ch) == null) {
+          current.setNext(this.alphabet, ch, node(ch));
+        } // if
+        current = current.next(this.alphabet, ch);
+        path[i] = current;
+      } // for
+      if (!current.hasKey()) {
+        current.setValue(key, pair.value());
+        for (TrieNode node : path) {
+          node.count++;
+        } // for
+        promote(path, current);
+        added++;
+      } else {
+        current.setValue(key, pair.value());
+      } // if/else
     } // for
+    return added;
+  } // load(TrieNode, List)
 
-    return current;
-  } // find
-
-} // class Trie
+  /**
+   * Merge the subtrie rooted at from into the one rooted at into, which is reached through the
+   * same characters, moving from's nodes wherever into has none. Keys in from replace those in
+   * into, which keep their weights, as with set. Returns the number of new keys.
+   */
+  int merge(TrieNode into, TrieNode from) {
+    int added = 0;
+    if (from.hasKey()) {
+      added += into.hasKey() ? 0 : 1;
+      into.setValue(from.key(), from.value());
+    } // if
+    for (int slot = 0; slot < from.width(); slot++) {
+      TrieNode child = from.nextAt(slot);
+      if (child != null) {
+        TrieNode existing = into.nextAt(slot);
+        if (existing == null) {
+          into.setNext(this.alphabet, child.label, child);
+          added += child.count;
+        } else {
+          added += merge(existing, child);
+        } // if/else
+      } // if
+    } // for
+    finish(into);
+    return added;
+  } // merge(TrieNode, TrieNode)
 
+  /**
+   * Make a node, reached through label (or a root). Subclasses that keep values differently use
+   * their own kind of node.
+   */
+  TrieNode node(char label) {
+    return new ObjectTrieNode(label, this.alphabet);
+  } // node(char)
 
-/**
- * Nodes for our trie.
- */
-class TrieNode {
   /**
-   * The key and value of the node.
+   * Make sure the nodes can hold a value, before we change anything. Ours hold anything,
+   * including null; subclasses whose nodes can't override this.
    */
-  Pair<String, String> contents;
+  void checkValue(V value) {
+  } // checkValue(V)
 
   /**
-   * All of the next nodes.
+   * Make sure every character of a key is in the alphabet, before we change anything.
    */
-  private TrieNode[] next;
+  void check(String key) {
+    if (key == null)
+      throw new NullPointerException("key cannot be null");
+    for (int i = 0; i < key.length(); i++) {
+      if (this.alphabet.index(key.charAt(i)) < 0)
+        throw new IllegalArgumentException("character not in alphabet: " + key.charAt(i));
+    } // for
+  } // check(String)
 
   /**
-   * Create a trie node with a specified key and value.
+   * Fill in the key count and best keys of a node whose children are complete.
    */
-  public TrieNode(String key, String value) {
-    if (key == null) {
-      this.contents = null;
+  void finish(TrieNode node) {
+    int count = node.hasKey() ? 1 : 0;
+    int children = 0;
+    TrieNode only = null;
+    for (int slot = 0; slot < node.width(); slot++) {
+      TrieNode child = node.nextAt(slot);
+      if (child != null) {
+        count += child.count;
+        children++;
+        only = child;
+      } // if
+    } // for
+    node.count = count;
+    // Most nodes are leaves or links in a chain, and don't need a sort. (Best-key arrays are
+    // never changed in place, so a chain can share one.)
+    if (children == 0) {
+      node.top = new TrieNode[] { node };
+    } else if ((children == 1) && !node.hasKey()) {
+      node.top = only.top;
     } else {
-      this.contents = new Pair<String, String>(key, value);
+      node.refreshTop(this.alphabet);
     } // if/else
-    this.next = new TrieNode[27];
-    // The loop is probably not necessary, but I like to be careful.
-    for (int i = 0; i < 27; i++) {
-      this.next[i] = null;
+  } // finish(TrieNode)
+
+  /**
+   * Count the nodes in the subtrie rooted at node. Used mostly for experiments.
+   */
+  int nodeCount(TrieNode node) {
+    if (node == null) {
+      return 0;
+    } // if
+    int count = 1;
+    for (int slot = 0; slot < node.width(); slot++) {
+      count += nodeCount(node.nextAt(slot));
     } // for
-  } // TrieNode(String, String)
+    return count;
+  } // nodeCount(TrieNode)
 
   /**
-   * Create a trie node with no key.
+   * Recompute the best keys of the nodes on a path, from the bottom up, after node's weight
+   * drops or its key is removed. Nodes that didn't rank it can't change, and neither can the
+   * nodes above them.
    */
-  public TrieNode() {
-    this(null, null);
-  } // TrieNode()
+  void demote(TrieNode[] path, TrieNode node) {
+    for (int i = path.length - 1; i >= 0; i--) {
+      if (!path[i].ranks(node)) {
+        return;
+      } // if
+      path[i].refreshTop(this.alphabet);
+    } // for
+  } // demote(TrieNode[], TrieNode)
+
+  /**
+   * Continue a fuzzy search at node, which we reached through slot at the given depth. Each
+   * depth has a row of the edit-distance table, which we compute from the row above. Nodes
+   * that share a prefix share the rows for it, and once every entry in a row exceeds maxEdits,
+   * nothing below can match, so we stop.
+   */
+  void fuzzyMatch(TrieNode node, int slot, int depth, ArrayList<int[]> rows, int[] codes,
+      int maxEdits, ArrayList<String> result) {
+    if (depth == rows.size()) {
+      rows.add(new int[codes.length + 1]);
+    } // if
+    int[] above = rows.get(depth - 1);
+    int[] row = rows.get(depth);
+    row[0] = above[0] + 1;
+    int min = row[0];
+    for (int j = 1; j <= codes.length; j++) {
+      int substitute = above[j - 1] + ((codes[j - 1] == slot) ? 0 : 1);
+      row[j] = Math.min(substitute, Math.min(above[j], row[j - 1]) + 1);
+      min = Math.min(min, row[j]);
+    } // for
+
+    if (node.hasKey() && (row[codes.length] <= maxEdits)) {
+      result.add(node.key);
+    } // if
+    if (min <= maxEdits) {
+      for (int i = 0; i < node.width(); i++) {
+        if (node.nextAt(i) != null) {
+          fuzzyMatch(node.nextAt(i), i, depth + 1, rows, codes, maxEdits, result);
+        } // if
+      } // for
+    } // if
+  } // fuzzyMatch(TrieNode, int, int, ArrayList, int[], int, ArrayList)
+
+  /**
+   * Find the node associated with a key. Returns null if the node is not found.
+   */
+  TrieNode find(String key) {
+    int len = key.length();
+    TrieNode current = this.root;
+    for (int i = 0; i < len; i++) {
+      char ch = key.charAt(i);
+
+      if (current.next(this.alphabet, ch) != null)
+        current = current.next(this.alphabet, ch);
+      else
+        return null;
+    } // for
+
+    return current;
+  } // find
 
   /**
-   * Determine if this node has a key.
+   * Find the node of the longest key that is a prefix of input, or null if there is none.
    */
-  public boolean hasKey() {
-    return ((this.contents != null) && (this.contents.key() != null));
-  } // hasKey()
+  TrieNode longestPrefixNode(CharSequence input) {
+    if (input == null)
+      throw new NullPointerException("input cannot be null");
+
+    TrieNode last = null;
+    TrieNode current = this.root;
+    for (int i = 0; current != null; i++) {
+      if (current.hasKey()) {
+        last = current;
+      } // if
+      current = (i < input.length()) ? current.next(this.alphabet, input.charAt(i)) : null;
+    } // for
+    return last;
+  } // longestPrefixNode(CharSequence)
 
   /**
-   * Get the key in the node.
+   * Find the nodes on the path to a key, or null if there is no node for the key.
    */
-  public String key() {
-    return this.contents.key();
-  } // key()
+  TrieNode[] path(String key) {
+    TrieNode[] path = new TrieNode[key.length() + 1];
+    path[0] = this.root;
+    for (int i = 0; i < key.length(); i++) {
+      path[i + 1] = path[i].next(this.alphabet, key.charAt(i));
+      if (path[i + 1] == null)
+        return null;
+    } // for
+    return path;
+  } // path(String)
 
   /**
-   * Get the next node for a particular letter.
+   * Get the value of a node that holds a key.
    */
-  public TrieNode next(char ch) {
-    return this.next[index(ch)];
-  } // next(char)
+  @SuppressWarnings("unchecked")
+  V value(TrieNode node) {
+    return (V) node.value();
+  } // value(TrieNode)
 
   /**
-   * Set the contents of the node.
+   * Offer a node whose weight rose (or that is new) to the best keys of the nodes on its path,
+   * from the bottom up. If it doesn't rank at one node, it can't rank at any node above.
    */
-  public void setContents(String key, String value) {
-    this.contents = new Pair<String, String>(key, value);
-  } // setContents(String, String)
+  void promote(TrieNode[] path, TrieNode node) {
+    for (int i = path.length - 1; i >= 0; i--) {
+      if (!path[i].offerTop(this.alphabet, node)) {
+        return;
+      } // if
+    } // for
+  } // promote(TrieNode[], TrieNode)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
 
   /**
-   * Set the next node for a particular letter.
+   * A depth-first iterator over the pairs in a subtrie. Rather than pushing every child, it
+   * keeps the path to the current node and, for each node on the path, the next slot to try,
+   * so it only does as much work as the caller asks for.
    */
-  public void setNext(char ch, TrieNode next) {
-    this.next[index(ch)] = next;
-  } // setNext(char, TrieNode)
+  class PrefixIterator implements Iterator<Pair<String, V>> {
+    /**
+     * The nodes on the path from the starting node.
+     */
+    TrieNode[] path = new TrieNode[16];
+
+    /**
+     * For each node on the path, the next slot to try.
+     */
+    int[] slots = new int[16];
+
+    /**
+     * The depth of the current node, or -1 once we're done.
+     */
+    int depth;
+
+    /**
+     * The node whose pair we return next, or null if we haven't found it yet.
+     */
+    TrieNode upcoming;
+
+    /**
+     * Iterate the subtrie rooted at start, which may be null.
+     */
+    PrefixIterator(TrieNode start) {
+      this.path[0] = start;
+      this.depth = (start == null) ? -1 : 0;
+      this.upcoming = ((start != null) && start.hasKey()) ? start : null;
+    } // PrefixIterator(TrieNode)
+
+    @Override
+    public boolean hasNext() {
+      while ((this.upcoming == null) && (this.depth >= 0)) {
+        TrieNode node = this.path[this.depth];
+        int slot = this.slots[this.depth];
+        while ((slot < node.width()) && (node.nextAt(slot) == null)) {
+          slot++;
+        } // while
+        if (slot == node.width()) {
+          this.depth--;
+        } else {
+          this.slots[this.depth] = slot + 1;
+          if (++this.depth == this.path.length) {
+            this.path = Arrays.copyOf(this.path, this.depth * 2);
+            this.slots = Arrays.copyOf(this.slots, this.depth * 2);
+          } // if
+          TrieNode child = node.nextAt(slot);
+          this.path[this.depth] = child;
+          this.slots[this.depth] = 0;
+          if (child.hasKey()) {
+            this.upcoming = child;
+          } // if
+        } // if/else
+      } // while
+      return this.upcoming != null;
+    } // hasNext()
+
+    @Override
+    public Pair<String, V> next() {
+      TrieNode node = nextNode();
+      return new Pair<String, V>(node.key, value(node));
+    } // next()
+
+    /**
+     * Get the next node that holds a key.
+     */
+    TrieNode nextNode() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      TrieNode result = this.upcoming;
+      this.upcoming = null;
+      return result;
+    } // nextNode()
+  } // class PrefixIterator
 
   /**
-   * Set the value in the node. The node must have a key for this to work.
+   * A position among the keys of the trie, in the order given by compare. A cursor starts
+   * before the first key; seek and next move it to a key, and key and value read the key it is
+   * at.
+   *
+   * The cursor keeps the path from the root to its node, and, for each node on the path, the
+   * next child slot to visit, so moving never recurses and costs no more than the nodes it
+   * passes. Don't use a cursor after the trie changes.
    */
-  public void setValue(String value) {
-    this.contents = new Pair<String, String>(this.contents.key(), value);
-  } // setValue()
+  public class Cursor {
+    /**
+     * The nodes on the path from the root; path[depth] is the node we're at.
+     */
+    TrieNode[] path = new TrieNode[16];
 
+    /**
+     * For each node on the path, the next slot to visit.
+     */
+    int[] slots = new int[16];
+
+    /**
+     * The depth of the current node.
+     */
+    int depth;
+
+    /**
+     * The node holding the key we're at, or null if we're not at a key.
+     */
+    TrieNode node;
+
+    /**
+     * Have we moved since we were last reset?
+     */
+    boolean started;
+
+    /**
+     * Create a cursor before the first key.
+     */
+    Cursor() {
+      reset();
+    } // Cursor()
+
+    /**
+     * Get the key at the cursor.
+     *
+     * @throws IllegalStateException if the cursor isn't at a key.
+     */
+    public String key() {
+      if (this.node == null)
+        throw new IllegalStateException("cursor is not at a key");
+      return this.node.key;
+    } // key()
+
+    /**
+     * Move to the next key. Returns false, leaving the cursor at no key, if there is none.
+     */
+    public boolean next() {
+      // The root comes first, if it holds a key.
+      if (!this.started) {
+        this.started = true;
+        if (Trie.this.root.hasKey()) {
+          this.node = Trie.this.root;
+          return true;
+        } // if
+      } // if
+      return advance();
+    } // next()
+
+    /**
+     * Move to the first key that is at least target. Returns false, leaving the cursor at no
+     * key, if there is none.
+     */
+    public boolean seek(String target) {
+      reset();
+      this.started = true;
+      for (int i = 0; i < target.length(); i++) {
+        TrieNode current = this.path[this.depth];
+        // A character outside the alphabet comes before every child.
+        int slot = Trie.this.alphabet.index(target.charAt(i));
+        TrieNode child = (slot < 0) ? null : current.nextAt(slot);
+        if (child == null) {
+          // Every later child of current follows target, as does everything below them.
+          this.slots[this.depth] = slot + 1;
+          return advance();
+        } // if
+        this.slots[this.depth] = slot + 1;
+        push(child);
+      } // for
+      if (this.path[this.depth].hasKey()) {
+        this.node = this.path[this.depth];
+        return true;
+      } // if
+      return advance();
+    } // seek(String)
+
+    /**
+     * Get the value at the cursor.
+     *
+     * @throws IllegalStateException if the cursor isn't at a key.
+     */
+    public V value() {
+      if (this.node == null)
+        throw new IllegalStateException("cursor is not at a key");
+      return Trie.this.value(this.node);
+    } // value()
+
+    /**
+     * Move, depth first, to the next node below or after the current one that holds a key.
+     */
+    boolean advance() {
+      while (this.depth >= 0) {
+        TrieNode current = this.path[this.depth];
+        int slot = this.slots[this.depth];
+        while ((slot < current.width()) && (current.nextAt(slot) == null)) {
+          slot++;
+        } // while
+        if (slot == current.width()) {
+          this.depth--;
+        } else {
+          this.slots[this.depth] = slot + 1;
+          TrieNode child = current.nextAt(slot);
+          push(child);
+          if (child.hasKey()) {
+            this.node = child;
+            return true;
+          } // if
+        } // if/else
+      } // while
+      this.node = null;
+      return false;
+    } // advance()
+
+    /**
+     * Step down to a child of the current node.
+     */
+    void push(TrieNode child) {
+      if (++this.depth == this.path.length) {
+        this.path = Arrays.copyOf(this.path, this.depth * 2);
+        this.slots = Arrays.copyOf(this.slots, this.depth * 2);
+      } // if
+      this.path[this.depth] = child;
+      this.slots[this.depth] = 0;
+    } // push(TrieNode)
+
+    /**
+     * Go back to before the first key.
+     */
+    void reset() {
+      this.depth = 0;
+      this.path[0] = Trie.this.root;
+      this.slots[0] = 0;
+      this.node = null;
+      this.started = false;
+    } // reset()
+  } // class Cursor
+} // class Trie<V>
+
+
+/**
+ * Nodes for Tries, with any object (or null) as the value.
+ */
+class ObjectTrieNode extends TrieNode {
   /**
-   * Get the value in the node.
+   * The value of the node, if key is set.
    */
-  public String value() {
-    return this.contents.value();
-  } // value()
+  Object value;
 
   /**
-   * Convert a character into an index in the next array.
+   * Create a node with no value, reached through label.
    */
-  private int index(char ch) {
-    // Lowercase letters
-    if ((ch >= 'a') && (ch <= 'z')) {
-      return ch - 'a';
-    } // lowercase
+  ObjectTrieNode(char label, Alphabet alphabet) {
+    super(label, alphabet);
+  } // ObjectTrieNode(char, Alphabet)
 
-    // Uppercase letters
-    else if ((ch >= 'A') && (ch <= 'Z')) {
-      return ch - 'A';
-    } // uppercase
+  @Override
+  void clearValue() {
+    this.value = null;
+    super.clearValue();
+  } // clearValue()
 
-    // Everything else is unsupported and maps to 26
-    else {
-      return 26;
-    } // if/else
-  } // index(char)
-} // class TrieNode
+  @Override
+  public void setValue(String key, Object value) {
+    this.key = key;
+    this.value = value;
+  } // setValue(String, Object)
+
+  @Override
+  public Object value() {
+    return this.value;
+  } // value()
+} // class ObjectTrieNode
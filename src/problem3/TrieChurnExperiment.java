@@ -0,0 +1,60 @@
+package problem3;
+
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Keep a trie at a fixed number of keys while constantly adding new keys and removing the
+ * oldest ones, and watch its size, node count, and heap use. With removal pruning dead branches,
+ * all three should stay flat. (The size sits a little below WINDOW, since a random word
+ * sometimes repeats one that is still live.)
+ */
+public class TrieChurnExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of keys we keep live.
+   */
+  static final int WINDOW = 100000;
+
+  /**
+   * The number of keys we replace in each round.
+   */
+  static final int ROUND = 500000;
+
+  /**
+   * The number of rounds.
+   */
+  static final int ROUNDS = 10;
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    Random random = new Random(42);
+    Trie<String> trie = new Trie<String>();
+    // The live keys, oldest first, in a circular buffer.
+    String[] live = new String[WINDOW];
+    for (int i = 0; i < WINDOW; i++) {
+      live[i] = AdaptiveRadixTrieExperiment.word(random);
+      trie.set(live[i], live[i]);
+    } // for
+
+    int oldest = 0;
+    for (int round = 0; round <= ROUNDS; round++) {
+      pen.printf("round %2d: size %7d  nodes %8d  heap %7.1f MB%n", round, trie.size(),
+          trie.nodeCount(trie.root), RadixTrieExperiment.usedHeap() / 1e6);
+      for (int i = 0; i < ROUND; i++) {
+        trie.remove(live[oldest]);
+        live[oldest] = AdaptiveRadixTrieExperiment.word(random);
+        trie.set(live[oldest], live[oldest]);
+        oldest = (oldest + 1) % WINDOW;
+      } // for
+    } // for
+  } // main(String[])
+} // class TrieChurnExperiment
@@ -16,7 +16,7 @@ public class TrieExperiment {
   /**
    * Get the value for a key.
    */
-  static void get(PrintWriter pen, Trie trie, String key) {
+  static void get(PrintWriter pen, Trie<String> trie, String key) {
     pen.print("get(" + key + ") -> ");
     try {
       pen.println(trie.get(key));
@@ -28,7 +28,7 @@ public class TrieExperiment {
   /**
    * Remove a key, reporting on the action
    */
-  static void remove(PrintWriter pen, Trie trie, String key) {
+  static void remove(PrintWriter pen, Trie<String> trie, String key) {
     pen.println("Removing " + key);
     trie.remove(key);
     trie.dump(pen);
@@ -38,14 +38,14 @@ public class TrieExperiment {
   /**
    * Set a key (with a generated value), reporting the step.
    */
-  static void set(PrintWriter pen, Trie trie, String key) {
+  static void set(PrintWriter pen, Trie<String> trie, String key) {
     set(pen, trie, key, key);
   } // set(PrintWriter, Trie, String)
 
   /**
    * Set a key/value pair, reporting the step.
    */
-  static void set(PrintWriter pen, Trie trie, String key, String value) {
+  static void set(PrintWriter pen, Trie<String> trie, String key, String value) {
     pen.println("Setting " + key + " to " + value);
     trie.set(key, value);
     trie.dump(pen);
@@ -63,7 +63,7 @@ public class TrieExperiment {
 
     PrintWriter pen = new PrintWriter(System.out, true);
 
-    Trie trie = new Trie();
+    Trie<String> trie = new Trie<String>();
 
     // Basic setup
     for (int i = 0; i < words.length; i++) {
@@ -0,0 +1,213 @@
+package problem3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Nodes for our trie. A node that ends a key holds the key exactly as it was last set, which is
+ * what iteration, cursors, and topK return. (Since characters may fold, the labels on the path
+ * to a node can spell a different string, e.g., "CAb" after setting "CAT" and then "cab".)
+ * Nodes that end no key hold no string, and no node points to its parent.
+ *
+ * How a node stores its value is up to the subclass, so that an IntTrie's nodes hold an int
+ * and no reference: ObjectTrieNode (for Trie) holds any object, IntTrieNode an int.
+ */
+abstract class TrieNode {
+  /**
+   * The number of best keys each node remembers.
+   */
+  static final int TOP_SIZE = 10;
+
+  /**
+   * The best keys of a node whose subtrie has none.
+   */
+  static final TrieNode[] NO_NODES = new TrieNode[0];
+
+  /**
+   * The character on the edge from the parent (as it was first set; other characters that
+   * share its slot lead here too). Gives the node's slot, and is used for display, but isn't
+   * part of any key we return.
+   */
+  char label;
+
+  /**
+   * The key that ends here, as last set, or null if none does. (We can't use value == null to
+   * mark a missing key, since null is a legal value.)
+   */
+  String key;
+
+  /**
+   * All of the next nodes, one slot per character of the alphabet.
+   */
+  private TrieNode[] next;
+
+  /**
+   * The number of keys in the subtrie rooted at this node, including this node's own.
+   */
+  int count;
+
+  /**
+   * The weight of this node's key, for ranking.
+   */
+  long weight;
+
+  /**
+   * The nodes holding the (up to) TOP_SIZE best keys in this subtrie, best first.
+   */
+  TrieNode[] top = NO_NODES;
+
+  /**
+   * Create a trie node with no value, reached through label, with a slot for each character of
+   * alphabet. (The node doesn't keep the alphabet; the trie passes it in when needed.)
+   */
+  public TrieNode(char label, Alphabet alphabet) {
+    this.label = label;
+    this.next = new TrieNode[alphabet.size()];
+  } // TrieNode(char, Alphabet)
+
+  /**
+   * Remove the key from the node, along with its weight. Subclasses also clear their values.
+   */
+  void clearValue() {
+    this.key = null;
+    this.weight = 0;
+  } // clearValue()
+
+  /**
+   * Compare the keys of two nodes that hold keys, in the order a trie over alphabet keeps them.
+   */
+  static int compareKeys(Alphabet alphabet, TrieNode a, TrieNode b) {
+    return Trie.compare(alphabet, a.key, b.key);
+  } // compareKeys(Alphabet, TrieNode, TrieNode)
+
+  /**
+   * Determine if this node has a key.
+   */
+  public boolean hasKey() {
+    return this.key != null;
+  } // hasKey()
+
+  /**
+   * Get the key that ends at the node, or null if none does.
+   */
+  public String key() {
+    return this.key;
+  } // key()
+
+  /**
+   * Offer a node from this subtrie, which is new or whose weight rose, as one of our best keys.
+   * Ties go by the order of alphabet. Returns true if our best keys changed.
+   */
+  boolean offerTop(Alphabet alphabet, TrieNode node) {
+    int n = this.top.length;
+    if (!ranks(node) && (n == TOP_SIZE) && (rank(alphabet, node, this.top[n - 1]) >= 0)) {
+      return false;
+    } // if
+    ArrayList<TrieNode> best = new ArrayList<TrieNode>(n + 1);
+    for (TrieNode other : this.top) {
+      if (other != node) {
+        best.add(other);
+      } // if
+    } // for
+    int i = 0;
+    while ((i < best.size()) && (rank(alphabet, best.get(i), node) < 0)) {
+      i++;
+    } // while
+    best.add(i, node);
+    setTop(best);
+    return true;
+  } // offerTop(Alphabet, TrieNode)
+
+  /**
+   * Compare two nodes that hold keys: the heavier comes first, and, for equal weights, the
+   * earlier key in the order of alphabet.
+   */
+  static int rank(Alphabet alphabet, TrieNode a, TrieNode b) {
+    int result = Long.compare(b.weight, a.weight);
+    return (result != 0) ? result : compareKeys(alphabet, a, b);
+  } // rank(Alphabet, TrieNode, TrieNode)
+
+  /**
+   * Determine if node is one of our best keys.
+   */
+  boolean ranks(TrieNode node) {
+    for (TrieNode other : this.top) {
+      if (other == node) {
+        return true;
+      } // if
+    } // for
+    return false;
+  } // ranks(TrieNode)
+
+  /**
+   * Recompute our best keys from our own key and our children's best keys, breaking ties by the
+   * order of alphabet.
+   */
+  void refreshTop(Alphabet alphabet) {
+    ArrayList<TrieNode> best = new ArrayList<TrieNode>();
+    if (hasKey()) {
+      best.add(this);
+    } // if
+    for (TrieNode child : this.next) {
+      if (child != null) {
+        best.addAll(Arrays.asList(child.top));
+      } // if
+    } // for
+    best.sort((a, b) -> rank(alphabet, a, b));
+    setTop(best);
+  } // refreshTop(Alphabet)
+
+  /**
+   * Remember the first TOP_SIZE nodes of best.
+   */
+  void setTop(ArrayList<TrieNode> best) {
+    int n = Math.min(TOP_SIZE, best.size());
+    this.top = best.subList(0, n).toArray(new TrieNode[n]);
+  } // setTop(ArrayList)
+
+  /**
+   * Get the next node for a particular character of alphabet, or null if there is none (or the
+   * character isn't in the alphabet).
+   */
+  public TrieNode next(Alphabet alphabet, char ch) {
+    int slot = alphabet.index(ch);
+    return (slot < 0) ? null : this.next[slot];
+  } // next(Alphabet, char)
+
+  /**
+   * Get the next node in a particular slot of the next array.
+   */
+  TrieNode nextAt(int index) {
+    return this.next[index];
+  } // nextAt(int)
+
+  /**
+   * Set the next node for a particular character of alphabet.
+   *
+   * @throws IllegalArgumentException if the character isn't in the alphabet.
+   */
+  public void setNext(Alphabet alphabet, char ch, TrieNode next) {
+    int slot = alphabet.index(ch);
+    if (slot < 0)
+      throw new IllegalArgumentException("character not in alphabet: " + ch);
+    this.next[slot] = next;
+  } // setNext(Alphabet, char, TrieNode)
+
+  /**
+   * Set the key and value in the node, which makes the key part of the trie. The trie has
+   * already checked that the node can hold the value.
+   */
+  public abstract void setValue(String key, Object value);
+
+  /**
+   * Get the value in the node.
+   */
+  public abstract Object value();
+
+  /**
+   * Get the number of slots in the next array.
+   */
+  int width() {
+    return this.next.length;
+  } // width()
+} // class TrieNode
@@ -1,7 +1,16 @@
 package problem3;
 
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import utils.Pair;
 import utils.SimpleMapTests;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
 /**
  * Tests of chained hash tables.
@@ -12,7 +21,446 @@ public class TrieTests extends SimpleMapTests {
    */
   @BeforeEach
   public void setupTrieTests() {
-    stringMap = new Trie();
-    runIteratorTests = false;
+    stringMap = new Trie<String>();
+    runIteratorRemoveTests = false;
   } // setupTrieTests()
+
+  /**
+   * Prefix queries see exactly the keys below the prefix.
+   */
+  @Test
+  public void prefixTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    for (String word : new String[] { "a", "an", "ant", "anteater", "antelope", "ark", "tea",
+        "tent", "red fox" }) {
+      trie.set(word, word);
+    } // for
+    ArrayList<String> keys = new ArrayList<String>();
+    for (Iterator<String> it = trie.keysWithPrefix("ant"); it.hasNext(); ) {
+      keys.add(it.next());
+    } // for
+    assertEquals(List.of("ant", "anteater", "antelope"), keys);
+    assertFalse(trie.keysWithPrefix("b").hasNext());
+
+    assertEquals(9, trie.countWithPrefix(""));
+    assertEquals(6, trie.countWithPrefix("a"));
+    assertEquals(3, trie.countWithPrefix("ant"));
+    assertEquals(1, trie.countWithPrefix("red "));
+    assertEquals(0, trie.countWithPrefix("antz"));
+
+    // Replacing a value doesn't change the counts; removing a key does.
+    trie.set("ant", "ANT");
+    assertEquals(3, trie.countWithPrefix("ant"));
+    trie.remove("antelope");
+    assertEquals(2, trie.countWithPrefix("ant"));
+    assertEquals(5, trie.countWithPrefix("a"));
+  } // prefixTest()
+
+  /**
+   * Keys come back exactly as they were last set, even where keys that differ in case share
+   * nodes.
+   */
+  @Test
+  public void exactKeysTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    trie.set("CAT", "1");
+    trie.set("cab", "2");
+    trie.set("Red fox", "3");
+    trie.set("red", "4");
+    // "cab" branches from the nodes "CAT" made, but isn't spelled with their labels.
+    assertEquals(List.of("cab", "CAT", "red", "Red fox"), keys(trie.keys()));
+    assertEquals(List.of("cab", "CAT"), trie.topK("ca", 5));
+    assertEquals(List.of("cab", "CAT"), trie.fuzzyMatch("CAX", 1));
+    assertEquals(List.of("CAT"), keys(trie.range("cat", "d")));
+    Trie<String>.Cursor cursor = trie.cursor();
+    assertTrue(cursor.seek("CA"));
+    assertEquals("cab", cursor.key());
+
+    // Setting a key that folds onto an existing one replaces both key and value.
+    assertEquals("2", trie.set("CAB", "5"));
+    assertEquals(List.of("CAB", "CAT", "red", "Red fox"), keys(trie.keys()));
+    assertEquals(4, trie.size());
+
+    StringWriter out = new StringWriter();
+    trie.dump(new PrintWriter(out, true));
+    assertTrue(out.toString().contains("<CAB:5>"), out::toString);
+    assertTrue(out.toString().contains("<Red fox:3>"), out::toString);
+  } // exactKeysTest()
+
+  /**
+   * Removing a key leaves the keys around it, prunes the nodes that only led to it, and keeps
+   * the size right.
+   */
+  @Test
+  public void removePruneTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    for (String word : new String[] { "a", "an", "ant", "anteater", "tea", "" }) {
+      trie.set(word, word);
+    } // for
+    assertEquals(6, trie.size());
+    int nodes = trie.nodeCount(trie.root);
+
+    // An inner key: nothing is pruned.
+    assertEquals("an", trie.remove("an"));
+    assertEquals(5, trie.size());
+    assertEquals(nodes, trie.nodeCount(trie.root));
+    assertEquals("anteater", trie.get("anteater"));
+    assertFalse(trie.containsKey("an"));
+
+    // A leaf: its branch goes, back to "ant".
+    trie.remove("anteater");
+    assertEquals(nodes - 5, trie.nodeCount(trie.root));
+    assertEquals("ant", trie.get("ant"));
+    assertNull(trie.remove("anteater"));
+    assertNull(trie.remove("te"));
+    assertEquals(4, trie.size());
+
+    for (String word : new String[] { "a", "ant", "tea", "" }) {
+      trie.remove(word);
+    } // for
+    assertEquals(0, trie.size());
+    assertEquals(1, trie.nodeCount(trie.root));
+  } // removePruneTest()
+
+  /**
+   * Top-k queries find the heaviest keys, and keep up as weights change.
+   */
+  @Test
+  public void topKTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    trie.set("car", "car", 50);
+    trie.set("cart", "cart", 20);
+    trie.set("care", "care", 70);
+    trie.set("cat", "cat", 90);
+    trie.set("dog", "dog", 100);
+    trie.set("ca", "ca");
+    assertEquals(List.of("cat", "care", "car"), trie.topK("ca", 3));
+    assertEquals(List.of("care", "car", "cart"), trie.topK("car", 5));
+    assertEquals(List.of(), trie.topK("x", 3));
+
+    trie.set("cart", "cart", 95);
+    assertEquals(List.of("cart", "cat"), trie.topK("c", 2));
+    trie.set("cat", "cat", 10);
+    assertEquals(List.of("cart", "care", "car", "cat", "ca"), trie.topK("ca", 10));
+    trie.remove("care");
+    assertEquals(List.of("cart", "car"), trie.topK("car", 10));
+    assertEquals(95, trie.weight("cart"));
+  } // topKTest()
+
+  /**
+   * Top-k queries agree with sorting the whole subtrie, through many random changes, including
+   * for more keys than the nodes remember.
+   */
+  @Test
+  public void randomTopKTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    Random random = new Random(1);
+    ArrayList<String> keys = new ArrayList<String>();
+    for (int i = 0; i < 2000; i++) {
+      String key = Integer.toString(random.nextInt(5000), 5).replace('0', 'a').replace('1', 'b')
+          .replace('2', 'c').replace('3', 'd').replace('4', 'e');
+      keys.add(key);
+      trie.set(key, key, random.nextInt(100));
+    } // for
+    for (int i = 0; i < 500; i++) {
+      String key = keys.get(random.nextInt(keys.size()));
+      if (random.nextInt(10) == 0) {
+        trie.remove(key);
+      } else {
+        trie.set(key, key, random.nextInt(100));
+      } // if/else
+      String prefix = key.substring(0, random.nextInt(key.length()));
+      ArrayList<String> expected = new ArrayList<String>();
+      for (Iterator<String> it = trie.keysWithPrefix(prefix); it.hasNext(); ) {
+        expected.add(it.next());
+      } // for
+      expected.sort((a, b) -> (trie.weight(a) != trie.weight(b))
+          ? Long.compare(trie.weight(b), trie.weight(a)) : a.compareTo(b));
+      int k = 1 + random.nextInt(15);
+      assertEquals(expected.subList(0, Math.min(k, expected.size())), trie.topK(prefix, k));
+    } // for
+  } // randomTopKTest()
+
+  /**
+   * Fuzzy matches are exactly the keys within the edit distance.
+   */
+  @Test
+  public void fuzzyMatchTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    for (String word : new String[] { "cat", "cart", "care", "cast", "coat", "dog", "at", "act",
+        "scat", "caterpillar" }) {
+      trie.set(word, word);
+    } // for
+    assertEquals(List.of("cat"), trie.fuzzyMatch("cat", 0));
+    // A transposition ("act") counts as two edits.
+    assertEquals(List.of("at", "cart", "cast", "cat", "coat", "scat"), trie.fuzzyMatch("cat", 1));
+    assertEquals(List.of("act", "at", "care", "cart", "cast", "cat", "coat", "scat"),
+        trie.fuzzyMatch("CAST", 2));
+    assertEquals(List.of("caterpillar"), trie.fuzzyMatch("katerpilar", 2));
+    assertEquals(List.of(), trie.fuzzyMatch("zebra", 2));
+    assertThrows(IllegalArgumentException.class, () -> trie.fuzzyMatch("cat", -1));
+  } // fuzzyMatchTest()
+
+  /**
+   * Cursors and ranges visit the keys in order, starting where they should.
+   */
+  @Test
+  public void cursorTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    Random random = new Random(42);
+    ArrayList<String> keys = new ArrayList<String>();
+    for (int i = 0; i < 300; i++) {
+      String key = Integer.toString(random.nextInt(3000), 4).replace('0', 'a').replace('1', 'b')
+          .replace('2', '_').replace('3', 'D');
+      if (!trie.containsKey(key)) {
+        keys.add(key);
+      } // if
+      trie.set(key, key.toUpperCase());
+    } // for
+    trie.set("", "empty");
+    keys.add("");
+    keys.sort(Trie::compare);
+
+    Trie<String>.Cursor cursor = trie.cursor();
+    for (String key : keys) {
+      assertTrue(cursor.next());
+      assertEquals(key, cursor.key());
+    } // for
+    assertFalse(cursor.next());
+    assertThrows(IllegalStateException.class, () -> cursor.key());
+
+    for (int i = 0; i < 200; i++) {
+      String from = keys.get(random.nextInt(keys.size()));
+      String to = keys.get(random.nextInt(keys.size()));
+      // Sometimes look for keys that aren't there.
+      if (random.nextBoolean()) {
+        from = from.substring(0, random.nextInt(from.length() + 1)) + "c";
+      } // if
+      ArrayList<String> expected = new ArrayList<String>();
+      for (String key : keys) {
+        if ((Trie.compare(key, from) >= 0) && (Trie.compare(key, to) < 0)) {
+          expected.add(key);
+        } // if
+      } // for
+      ArrayList<String> actual = new ArrayList<String>();
+      for (Iterator<Pair<String, String>> it = trie.range(from, to); it.hasNext(); ) {
+        actual.add(it.next().key());
+      } // for
+      assertEquals(expected, actual);
+      if (expected.isEmpty()) {
+        continue;
+      } // if
+      assertTrue(cursor.seek(from));
+      assertEquals(expected.get(0), cursor.key());
+      assertEquals(expected.get(0).toUpperCase(), cursor.value());
+    } // for
+    // Non-letters follow letters, and this is longer than any key.
+    assertFalse(cursor.seek("________"));
+  } // cursorTest()
+
+  /**
+   * Building from sorted pairs gives the same trie as setting them one by one.
+   */
+  @Test
+  public void buildFromSortedTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    Random random = new Random(7);
+    for (int i = 0; i < 2000; i++) {
+      String key = Integer.toString(random.nextInt(20000), 5).replace('0', 'a').replace('1', 'B')
+          .replace('2', 'c').replace('3', '-').replace('4', 'E');
+      trie.set(key, Integer.toString(i));
+    } // for
+    trie.set("", "empty");
+    ArrayList<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+    for (Pair<String, String> pair : trie) {
+      pairs.add(pair);
+      // Repeat some keys in another case.
+      if (random.nextInt(10) == 0) {
+        pairs.add(new Pair<String, String>(pair.key().toUpperCase(), pair.value()));
+      } // if
+    } // for
+    Trie<String> built = Trie.buildFromSorted(pairs.iterator());
+    // The same pairs, set one by one, so repeated keys replace earlier ones the same way.
+    Trie<String> reference = new Trie<String>();
+    for (Pair<String, String> pair : pairs) {
+      reference.set(pair.key(), pair.value());
+    } // for
+
+    assertEquals(reference.size(), built.size());
+    assertEquals(reference.nodeCount(reference.root), built.nodeCount(built.root));
+    Iterator<Pair<String, String>> expected = reference.iterator();
+    for (Pair<String, String> pair : built) {
+      assertEquals(expected.next().toString(), pair.toString());
+    } // for
+    for (String prefix : new String[] { "", "a", "bc", "-e", "Ea-", "ccc" }) {
+      assertEquals(reference.countWithPrefix(prefix), built.countWithPrefix(prefix), prefix);
+      assertEquals(reference.topK(prefix, 5), built.topK(prefix, 5), prefix);
+    } // for
+    // The result is an ordinary trie.
+    built.set("bbb", "new");
+    assertEquals("new", built.get("BBB"));
+
+    pairs.add(new Pair<String, String>("a", "late"));
+    assertThrows(IllegalArgumentException.class, () -> Trie.buildFromSorted(pairs.iterator()));
+  } // buildFromSortedTest()
+
+  /**
+   * Loading in parallel gives the same trie as setting the pairs one by one.
+   */
+  @Test
+  public void parallelLoadTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    Random random = new Random(11);
+    ArrayList<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+    for (int i = 0; i < 5000; i++) {
+      String key = Integer.toString(random.nextInt(20000), 7).replace('0', 'a').replace('1', 'B')
+          .replace('2', 'c').replace('3', '-').replace('4', 'E').replace('5', 'f')
+          .replace('6', '9');
+      pairs.add(new Pair<String, String>(key, Integer.toString(i)));
+    } // for
+    pairs.add(new Pair<String, String>("", "empty"));
+
+    // Load half into a trie that already has the other half.
+    Trie<String> loaded = new Trie<String>();
+    for (Pair<String, String> pair : pairs.subList(0, 2500)) {
+      trie.set(pair.key(), pair.value());
+      loaded.set(pair.key(), pair.value());
+    } // for
+    for (Pair<String, String> pair : pairs.subList(2500, pairs.size())) {
+      trie.set(pair.key(), pair.value());
+    } // for
+    loaded.parallelLoad(pairs.subList(2500, pairs.size()));
+    Trie<String> fresh = new Trie<String>();
+    fresh.parallelLoad(pairs);
+
+    for (Trie<String> other : List.of(loaded, fresh)) {
+      assertEquals(trie.size(), other.size());
+      assertEquals(trie.nodeCount(trie.root), other.nodeCount(other.root));
+      Iterator<Pair<String, String>> expected = trie.iterator();
+      for (Pair<String, String> pair : other) {
+        assertEquals(expected.next().toString(), pair.toString());
+      } // for
+      for (String prefix : new String[] { "", "a", "Bc", "-e", "9", "fff" }) {
+        assertEquals(trie.countWithPrefix(prefix), other.countWithPrefix(prefix), prefix);
+        assertEquals(trie.topK(prefix, 5), other.topK(prefix, 5), prefix);
+      } // for
+    } // for
+  } // parallelLoadTest()
+
+  /**
+   * If building any part of a parallel load fails, the trie is unchanged; otherwise new keys
+   * merge into the subtries already there.
+   */
+  @Test
+  public void parallelLoadFailureTest() {
+    // A trie that can't make nodes for 'q'.
+    Trie<String> trie = new Trie<String>() {
+      @Override
+      TrieNode node(char label) {
+        if (label == 'q')
+          throw new IllegalStateException("no q");
+        return super.node(label);
+      } // node(char)
+    };
+    trie.set("apple", "1", 7);
+    int nodes = trie.nodeCount(trie.root);
+    assertThrows(IllegalStateException.class, () -> trie.parallelLoad(List.of(
+        new Pair<String, String>("avocado", "2"), new Pair<String, String>("banana", "3"),
+        new Pair<String, String>("cheque", "4"))));
+    assertEquals(1, trie.size());
+    assertEquals(nodes, trie.nodeCount(trie.root));
+    assertEquals(1, trie.countWithPrefix("a"));
+    assertEquals(List.of("apple"), trie.topK("", 5));
+
+    trie.parallelLoad(List.of(new Pair<String, String>("avocado", "2"),
+        new Pair<String, String>("APPLE", "5"), new Pair<String, String>("banana", "3")));
+    assertEquals(3, trie.size());
+    assertEquals(2, trie.countWithPrefix("a"));
+    assertEquals("5", trie.get("apple"));
+    // The replaced key keeps its weight.
+    assertEquals(7, trie.weight("apple"));
+    assertEquals(List.of("APPLE", "avocado", "banana"), trie.topK("", 5));
+  } // parallelLoadFailureTest()
+
+  /**
+   * Prefix matches find the keys that start the input, longest or all.
+   */
+  @Test
+  public void longestPrefixTest() {
+    Trie<String> trie = (Trie<String>) stringMap;
+    for (String route : new String[] { "/api", "/api/users", "/api/users/admin", "/static" }) {
+      trie.set(route, route.toUpperCase());
+    } // for
+    assertEquals(10, trie.longestPrefixOf("/api/users/42"));
+    assertEquals("/API/USERS", trie.longestPrefixValue(new StringBuilder("/api/users/42")));
+    assertEquals(4, trie.longestPrefixOf("/API/groups"));
+    assertEquals(16, trie.longestPrefixOf("/api/users/admin"));
+    assertEquals(-1, trie.longestPrefixOf("/ap"));
+    assertEquals(-1, trie.longestPrefixOf(""));
+    assertThrows(IndexOutOfBoundsException.class, () -> trie.longestPrefixValue("/index"));
+    assertArrayEquals(new int[] { 4, 10, 16 }, trie.allPrefixesOf("/api/users/admins"));
+    assertArrayEquals(new int[] {}, trie.allPrefixesOf("/sta"));
+
+    trie.set("", "root");
+    assertEquals(0, trie.longestPrefixOf("/ap"));
+    assertArrayEquals(new int[] { 0, 7 }, trie.allPrefixesOf("/static/x.css"));
+  } // longestPrefixTest()
+
+  /**
+   * Tries over other alphabets size their nodes to the alphabet, keep keys in its order, and
+   * refuse characters outside it.
+   */
+  @Test
+  public void alphabetTest() {
+    Trie<String> dna = new Trie<String>(Alphabet.DNA);
+    for (String key : new String[] { "GATTACA", "gat", "CAT", "TAG" }) {
+      dna.set(key, key);
+    } // for
+    assertEquals(4, dna.root.width());
+    assertEquals("GATTACA", dna.get("gattaca"));
+    assertEquals(List.of("CAT", "gat", "GATTACA", "TAG"), keys(dna.keys()));
+    assertThrows(IllegalArgumentException.class, () -> dna.set("GAUC", "rna"));
+    assertFalse(dna.containsKey("GAU"));
+    assertEquals(4, dna.size());
+    assertEquals(2, dna.countWithPrefix("GA"));
+    assertEquals(0, dna.countWithPrefix("GAU"));
+
+    // Case-sensitive keys with digits no longer collide.
+    Trie<String> ids = new Trie<String>(Alphabet.ALPHANUMERIC);
+    for (String key : new String[] { "a1", "a2", "A1", "b", "B" }) {
+      ids.set(key, key);
+    } // for
+    assertEquals(5, ids.size());
+    assertEquals("A1", ids.get("A1"));
+    assertEquals(List.of("A1", "B", "a1", "a2", "b"), keys(ids.keys()));
+    assertEquals(List.of("A1", "B"), keys(ids.range("0", "Z")));
+    assertEquals(List.of("a1", "a2"), ids.fuzzyMatch("a3", 1));
+    assertEquals("a2", ids.compile().get("a2"));
+    assertThrows(IndexOutOfBoundsException.class, () -> ids.compile().get("a_"));
+
+    // A custom alphabet, bulk loaded.
+    Alphabet binary = Alphabet.of("01");
+    Trie<String> bits = Trie.buildFromSorted(binary,
+        List.of(new Pair<String, String>("0", "zero"), new Pair<String, String>("1", "one"),
+            new Pair<String, String>("10", "two")).iterator());
+    assertEquals(2, bits.root.width());
+    assertEquals(4, bits.nodeCount(bits.root));
+    assertEquals("two", bits.get("10"));
+    assertThrows(IllegalArgumentException.class, () -> bits.parallelLoad(
+        List.of(new Pair<String, String>("11", "three"), new Pair<String, String>("2", "?"))));
+    assertEquals(3, bits.size());
+    assertThrows(IllegalArgumentException.class, () -> Alphabet.of("aba"));
+  } // alphabetTest()
+
+  /**
+   * Gather keys, or the keys of pairs, into a list.
+   */
+  static List<String> keys(Iterator<?> it) {
+    ArrayList<String> result = new ArrayList<String>();
+    while (it.hasNext()) {
+      Object next = it.next();
+      result.add((next instanceof Pair) ? ((Pair<?, ?>) next).key().toString() : next.toString());
+    } // while
+    return result;
+  } // keys(Iterator)
 } // class TrieTests
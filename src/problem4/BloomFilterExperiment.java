@@ -0,0 +1,95 @@
+package problem4;
+
+import java.io.PrintWriter;
+import utils.BloomFilteredHashTable;
+import utils.HashTable;
+
+/**
+ * Measure how quickly chained hash tables answer lookups of missing keys, with and without a
+ * Bloom filter in front of them.
+ */
+public class BloomFilterExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of keys we store.
+   */
+  static final int KEYS = 1000000;
+
+  /**
+   * The number of missing keys we look up in each round.
+   */
+  static final int MISSES = 2000000;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Fill a table with KEYS keys.
+   */
+  static void fill(HashTable<String, String> table) {
+    for (int i = 0; i < KEYS; i++) {
+      table.set("key" + i, "value" + i);
+    } // for
+  } // fill(HashTable)
+
+  /**
+   * Look up MISSES missing keys, returning the elapsed time in nanoseconds.
+   */
+  static long misses(HashTable<String, String> table, String[] missing) {
+    int found = 0;
+    long start = System.nanoTime();
+    for (String key : missing) {
+      if (table.containsKey(key)) {
+        found++;
+      } // if
+    } // for
+    long elapsed = System.nanoTime() - start;
+    if (found != 0) {
+      throw new IllegalStateException("found " + found + " missing keys");
+    } // if
+    return elapsed;
+  } // misses(HashTable, String[])
+
+  /**
+   * Report the throughput of a round of lookups.
+   */
+  static void report(PrintWriter pen, String label, long nanos) {
+    pen.printf("%-20s %8.1f ms  %8.2f M lookups/s%n", label, nanos / 1e6,
+        MISSES / (nanos / 1e3));
+  } // report(PrintWriter, String, long)
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    PrintWriter pen = new PrintWriter(System.out, true);
+
+    String[] missing = new String[MISSES];
+    for (int i = 0; i < MISSES; i++) {
+      missing[i] = "missing" + i;
+    } // for
+
+    ChainedHashTable<String, String> plain = new ChainedHashTable<String, String>();
+    fill(plain);
+    BloomFilteredHashTable<String, String> guarded =
+        new BloomFilteredHashTable<String, String>(new ChainedHashTable<String, String>());
+    fill(guarded);
+
+    // A few rounds, so that the JIT has a chance to warm up.
+    for (int round = 1; round <= 3; round++) {
+      pen.println("Round " + round);
+      report(pen, "ChainedHashTable", misses(plain, missing));
+      guarded.resetCounters();
+      report(pen, "with Bloom filter", misses(guarded, missing));
+      pen.printf("false-positive rate: %.4f%n",
+          guarded.falsePositives() / (double) MISSES);
+      pen.println();
+    } // for
+  } // main(String[])
+} // class BloomFilterExperiment
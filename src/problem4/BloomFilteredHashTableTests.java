@@ -0,0 +1,43 @@
+package problem4;
+
+import static org.junit.jupiter.api.Assertions.*;
+import utils.BloomFilteredHashTable;
+import utils.SimpleMapTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of chained hash tables guarded by Bloom filters.
+ */
+public class BloomFilteredHashTableTests extends SimpleMapTests {
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupBloomFilteredHashTableTests() {
+    stringMap = new BloomFilteredHashTable<String, String>(new ChainedHashTable<String, String>());
+  } // setupBloomFilteredHashTableTests()
+
+  /**
+   * Once the filter is rebuilt, most lookups of missing or removed keys never reach the table.
+   */
+  @Test
+  public void filteredMissTest() {
+    BloomFilteredHashTable<String, String> table =
+        (BloomFilteredHashTable<String, String>) stringMap;
+    for (int i = 0; i < 2000; i++) {
+      table.set("key" + i, "value" + i);
+    } // for
+    for (int i = 0; i < 2000; i += 2) {
+      table.remove("key" + i);
+    } // for
+    table.rebuild();
+    table.resetCounters();
+    for (int i = 0; i < 2000; i++) {
+      assertEquals((i % 2) == 1, table.containsKey("key" + i));
+      assertFalse(table.containsKey("missing" + i));
+    } // for
+    assertTrue(table.falsePositives() < 100);
+    assertTrue(table.filtered() > 2800);
+  } // filteredMissTest()
+} // class BloomFilteredHashTableTests
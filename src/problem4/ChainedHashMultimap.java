@@ -0,0 +1,527 @@
+package problem4;
+
+import utils.MiscUtils;
+import utils.Pair;
+import utils.Reporter;
+import java.io.PrintWriter;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A chained hash table that associates each key with any number of values.
+ *
+ * @author Chris Won
+ */
+public class ChainedHashMultimap<K, V> implements Iterable<Pair<K, V>> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * Rather than storing a separate ArrayList for each key (as we would with a
+   * ChainedHashTable<K, ArrayList<V>>), each bucket holds a singly-linked chain of MultiEntry
+   * nodes, and each MultiEntry keeps its values in a small array that grows as needed. Adding a
+   * value to an existing key therefore costs one lookup and, most of the time, one array store.
+   *
+   * We expand the table when the number of distinct keys is greater than LOAD_FACTOR times the
+   * number of buckets. Expansion relinks the existing entries, so the value arrays are never
+   * copied.
+   *
+   * getAll returns an iterator that walks the entry's value array directly. Like the iterator in
+   * ChainedHashTable, it throws a ConcurrentModificationException if the multimap changes while
+   * it is in use.
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The load factor for expanding the table.
+   */
+  static final double LOAD_FACTOR = 0.5;
+
+  /**
+   * The initial capacity of the value array in a new entry.
+   */
+  static final int INITIAL_VALUES = 2;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The number of key/value pairs stored in the multimap.
+   */
+  int size = 0;
+
+  /**
+   * The number of distinct keys stored in the multimap. We use this to determine when to expand
+   * the table.
+   */
+  int keyCount = 0;
+
+  /**
+   * The chains of entries. Each element is either null or the first MultiEntry in the chain.
+   */
+  Object[] buckets;
+
+  /**
+   * An optional reporter to let us observe what the multimap is doing.
+   */
+  Reporter reporter;
+
+  /**
+   * Do we report basic calls?
+   */
+  boolean REPORT_BASIC_CALLS = false;
+
+  /**
+   * Our helpful random number generator, used when expanding the size of the table.
+   */
+  Random rand;
+
+  // for keeping track of concurrent modification
+  int mutation = 0;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new multimap.
+   */
+  public ChainedHashMultimap() {
+    this.rand = new Random();
+    this.clear();
+    this.reporter = null;
+  } // ChainedHashMultimap()
+
+  /**
+   * Create a new multimap that reports activities using a reporter.
+   */
+  public ChainedHashMultimap(Reporter reporter) {
+    this();
+    this.reporter = reporter;
+  } // ChainedHashMultimap(Reporter)
+
+  // +-----------------------------+-------------------------------------
+  // | ChainedHashMultimap methods |
+  // +-----------------------------+
+
+  /**
+   * Clear the whole multimap.
+   */
+  public void clear() {
+    this.buckets = new Object[41];
+    this.size = 0;
+    this.keyCount = 0;
+    this.mutation++;
+  } // clear()
+
+  /**
+   * Determine if the multimap contains at least one value for a particular key.
+   */
+  public boolean containsKey(K key) {
+    return entry(key) != null;
+  } // containsKey(K)
+
+  /**
+   * Dump the multimap.
+   */
+  public void dump(PrintWriter pen) {
+    pen.println("Capacity: " + this.buckets.length + ", Keys: " + this.keyCount + ", Size: "
+        + this.size);
+    for (int i = 0; i < this.buckets.length; i++) {
+      for (MultiEntry<K, V> entry = bucket(i); entry != null; entry = entry.next) {
+        pen.print("  " + i + ": <" + entry.key + "(" + entry.hash + "):");
+        for (int j = 0; j < entry.count; j++) {
+          pen.print((j == 0 ? "" : ",") + entry.values[j]);
+        } // for each value
+        pen.println(">");
+      } // for each entry in the bucket
+    } // for each bucket
+  } // dump(PrintWriter)
+
+  /**
+   * Iterate the values associated with a key, without copying them. The iterator is empty if
+   * the key is not in the multimap.
+   */
+  public Iterator<V> getAll(K key) {
+    MultiEntry<K, V> entry = entry(key);
+    return new Iterator<V>() {
+      int i = 0;
+
+      int initialMutation = mutation;
+
+      public boolean hasNext() {
+        if (initialMutation != mutation)
+          throw new ConcurrentModificationException();
+
+        return (entry != null) && (i < entry.count);
+      } // hasNext()
+
+      @SuppressWarnings("unchecked")
+      public V next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        return (V) entry.values[i++];
+      } // next()
+    }; // new Iterator
+  } // getAll(K)
+
+  /**
+   * Get the number of distinct keys in the multimap.
+   */
+  public int keyCount() {
+    return this.keyCount;
+  } // keyCount()
+
+  /**
+   * Iterate the distinct keys in some order.
+   */
+  public Iterator<K> keys() {
+    return MiscUtils.transform(this.entries(), (entry) -> entry.key);
+  } // keys()
+
+  /**
+   * Add a value to those associated with a key. Duplicate values are permitted.
+   *
+   * @throws NullPointerException if the key is null.
+   */
+  public void put(K key, V value) {
+    this.mutation++;
+
+    // If there are too many keys, expand the table.
+    if (this.keyCount > (this.buckets.length * LOAD_FACTOR)) {
+      expand();
+    } // if there are too many keys
+
+    int hash = hash(key);
+    int index = index(hash);
+    MultiEntry<K, V> entry = bucket(index);
+    while ((entry != null) && !entry.matches(key, hash)) {
+      entry = entry.next;
+    } // while
+
+    // Special case: A new key
+    if (entry == null) {
+      entry = new MultiEntry<K, V>(key, hash, bucket(index));
+      this.buckets[index] = entry;
+      ++this.keyCount;
+    } // if
+
+    entry.add(value);
+    ++this.size;
+
+    // Report activity, if appropriate
+    if (REPORT_BASIC_CALLS && (reporter != null)) {
+      reporter.report("adding '" + key + ":" + value + "' to bucket " + index);
+    } // if reporter != null
+  } // put(K,V)
+
+  /**
+   * Remove all of the values associated with a key.
+   *
+   * @return the number of values removed.
+   */
+  public int removeAll(K key) {
+    int hash = hash(key);
+    int index = index(hash);
+    MultiEntry<K, V> prev = null;
+    for (MultiEntry<K, V> entry = bucket(index); entry != null; entry = entry.next) {
+      if (entry.matches(key, hash)) {
+        unlink(index, prev, entry);
+        this.size -= entry.count;
+        return entry.count;
+      } // if
+      prev = entry;
+    } // for
+    return 0;
+  } // removeAll(K)
+
+  /**
+   * Remove one occurrence of a value from those associated with a key.
+   *
+   * @return true if the value was found and removed; false otherwise.
+   */
+  public boolean removeValue(K key, V value) {
+    int hash = hash(key);
+    int index = index(hash);
+    MultiEntry<K, V> prev = null;
+    for (MultiEntry<K, V> entry = bucket(index); entry != null; entry = entry.next) {
+      if (entry.matches(key, hash)) {
+        if (!entry.remove(value)) {
+          return false;
+        } // if
+        this.mutation++;
+        --this.size;
+        if (entry.count == 0) {
+          unlink(index, prev, entry);
+        } // if
+        return true;
+      } // if
+      prev = entry;
+    } // for
+    return false;
+  } // removeValue(K,V)
+
+  /**
+   * Should we report basic calls? Intended mostly for tracing.
+   */
+  public void reportBasicCalls(boolean report) {
+    REPORT_BASIC_CALLS = report;
+  } // reportBasicCalls
+
+  /**
+   * Get the number of key/value pairs in the multimap.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Get the number of values associated with a key.
+   */
+  public int valueCount(K key) {
+    MultiEntry<K, V> entry = entry(key);
+    return (entry == null) ? 0 : entry.count;
+  } // valueCount(K)
+
+  // +------------------+--------------------------------------------
+  // | Iterator methods |
+  // +------------------+
+
+  /**
+   * Iterate all the key/value pairs in some order.
+   */
+  public Iterator<Pair<K, V>> iterator() {
+    Iterator<MultiEntry<K, V>> entries = this.entries();
+    return new Iterator<Pair<K, V>>() {
+      MultiEntry<K, V> entry = null;
+      int i = 0;
+
+      public boolean hasNext() {
+        return ((entry != null) && (i < entry.count)) || entries.hasNext();
+      } // hasNext()
+
+      @SuppressWarnings("unchecked")
+      public Pair<K, V> next() {
+        if ((entry == null) || (i >= entry.count)) {
+          entry = entries.next();
+          i = 0;
+        } // if
+        return new Pair<K, V>(entry.key, (V) entry.values[i++]);
+      } // next()
+    }; // new Iterator
+  } // iterator()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get the first entry in a bucket.
+   */
+  @SuppressWarnings("unchecked")
+  MultiEntry<K, V> bucket(int index) {
+    return (MultiEntry<K, V>) this.buckets[index];
+  } // bucket(int)
+
+  /**
+   * Iterate all of the entries in the table.
+   */
+  Iterator<MultiEntry<K, V>> entries() {
+    return new Iterator<MultiEntry<K, V>>() {
+      int index = -1;
+      MultiEntry<K, V> nextEntry = advance(null);
+
+      int initialMutation = mutation;
+
+      public boolean hasNext() {
+        if (initialMutation != mutation)
+          throw new ConcurrentModificationException();
+
+        return nextEntry != null;
+      } // hasNext()
+
+      public MultiEntry<K, V> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        MultiEntry<K, V> result = nextEntry;
+        nextEntry = advance(nextEntry);
+        return result;
+      } // next()
+
+      /**
+       * Find the entry after current, moving on to later buckets as necessary.
+       */
+      MultiEntry<K, V> advance(MultiEntry<K, V> current) {
+        if ((current != null) && (current.next != null)) {
+          return current.next;
+        } // if
+        while (++index < buckets.length) {
+          if (buckets[index] != null) {
+            return bucket(index);
+          } // if
+        } // while
+        return null;
+      } // advance(MultiEntry)
+    }; // new Iterator
+  } // entries()
+
+  /**
+   * Find the entry for a key. Returns null if there is no such entry.
+   */
+  MultiEntry<K, V> entry(K key) {
+    int hash = hash(key);
+    for (MultiEntry<K, V> entry = bucket(index(hash)); entry != null; entry = entry.next) {
+      if (entry.matches(key, hash)) {
+        return entry;
+      } // if
+    } // for
+    return null;
+  } // entry(K)
+
+  /**
+   * Expand the size of the table.
+   */
+  void expand() {
+    // Figure out the size of the new table
+    int newSize = 2 * this.buckets.length + rand.nextInt(10);
+    if (REPORT_BASIC_CALLS && (reporter != null)) {
+      reporter.report("Expanding to " + newSize + " elements.");
+    } // if reporter != null
+    // Remember the old table
+    Object[] oldBuckets = this.buckets;
+    // Create a new table of that size.
+    this.buckets = new Object[newSize];
+    // Relink every entry into its new bucket.
+    for (int i = 0; i < oldBuckets.length; i++) {
+      @SuppressWarnings("unchecked")
+      MultiEntry<K, V> entry = (MultiEntry<K, V>) oldBuckets[i];
+      while (entry != null) {
+        MultiEntry<K, V> next = entry.next;
+        int index = index(entry.hash);
+        entry.next = bucket(index);
+        this.buckets[index] = entry;
+        entry = next;
+      } // while
+    } // for
+  } // expand()
+
+  /**
+   * Compute the hash code of a key.
+   */
+  int hash(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    return key.hashCode();
+  } // hash(K)
+
+  /**
+   * Convert a hash code into a bucket index.
+   */
+  int index(int hash) {
+    return (hash & 0x7FFFFFFF) % this.buckets.length;
+  } // index(int)
+
+  /**
+   * Remove an entry from its chain.
+   */
+  void unlink(int index, MultiEntry<K, V> prev, MultiEntry<K, V> entry) {
+    if (prev == null) {
+      this.buckets[index] = entry.next;
+    } else {
+      prev.next = entry.next;
+    } // if/else
+    --this.keyCount;
+    this.mutation++;
+  } // unlink(int, MultiEntry, MultiEntry)
+
+} // class ChainedHashMultimap<K,V>
+
+
+/**
+ * A key, its cached hash code, and all of its values.
+ */
+class MultiEntry<K, V> {
+  /**
+   * The key.
+   */
+  K key;
+
+  /**
+   * The hash code of the key, cached so that we can expand without rehashing.
+   */
+  int hash;
+
+  /**
+   * The values. Only the first count elements are meaningful.
+   */
+  Object[] values;
+
+  /**
+   * The number of values.
+   */
+  int count;
+
+  /**
+   * The next entry in the chain.
+   */
+  MultiEntry<K, V> next;
+
+  /**
+   * Create a new entry with no values.
+   */
+  MultiEntry(K key, int hash, MultiEntry<K, V> next) {
+    this.key = key;
+    this.hash = hash;
+    this.values = new Object[ChainedHashMultimap.INITIAL_VALUES];
+    this.count = 0;
+    this.next = next;
+  } // MultiEntry(K, int, MultiEntry)
+
+  /**
+   * Add a value, growing the array if necessary.
+   */
+  void add(V value) {
+    if (this.count == this.values.length) {
+      Object[] newValues = new Object[this.count + (this.count >> 1) + 1];
+      System.arraycopy(this.values, 0, newValues, 0, this.count);
+      this.values = newValues;
+    } // if
+    this.values[this.count++] = value;
+  } // add(V)
+
+  /**
+   * Determine if this entry holds a particular key.
+   */
+  boolean matches(K key, int hash) {
+    return (this.hash == hash) && key.equals(this.key);
+  } // matches(K, int)
+
+  /**
+   * Remove the first occurrence of a value, preserving the order of the others.
+   *
+   * @return true if the value was found; false otherwise.
+   */
+  boolean remove(V value) {
+    for (int i = 0; i < this.count; i++) {
+      Object current = this.values[i];
+      if ((current == null) ? (value == null) : current.equals(value)) {
+        System.arraycopy(this.values, i + 1, this.values, i, this.count - i - 1);
+        this.values[--this.count] = null;
+        return true;
+      } // if
+    } // for
+    return false;
+  } // remove(V)
+} // class MultiEntry<K,V>
@@ -0,0 +1,136 @@
+package problem4;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.Pair;
+
+/**
+ * Tests of chained hash multimaps.
+ */
+public class ChainedHashMultimapTests {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The multimap we're testing.
+   */
+  ChainedHashMultimap<String, Integer> multimap;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupChainedHashMultimapTests() {
+    multimap = new ChainedHashMultimap<String, Integer>();
+  } // setupChainedHashMultimapTests()
+
+  /**
+   * Collect the values for a key into a list.
+   */
+  ArrayList<Integer> all(String key) {
+    ArrayList<Integer> result = new ArrayList<Integer>();
+    Iterator<Integer> it = multimap.getAll(key);
+    while (it.hasNext()) {
+      result.add(it.next());
+    } // while
+    return result;
+  } // all(String)
+
+  // +-------+-----------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Values for a key come back in the order they were added.
+   */
+  @Test
+  public void putAndGetAllTest() {
+    multimap.put("a", 1);
+    multimap.put("b", 2);
+    multimap.put("a", 3);
+    multimap.put("a", 1);
+    assertEquals(List.of(1, 3, 1), all("a"));
+    assertEquals(List.of(2), all("b"));
+    assertEquals(List.of(), all("c"));
+    assertEquals(3, multimap.valueCount("a"));
+    assertEquals(0, multimap.valueCount("c"));
+    assertEquals(2, multimap.keyCount());
+    assertEquals(4, multimap.size());
+  } // putAndGetAllTest()
+
+  /**
+   * Removing values one at a time eventually removes the key.
+   */
+  @Test
+  public void removeValueTest() {
+    multimap.put("a", 1);
+    multimap.put("a", 2);
+    multimap.put("a", 1);
+    assertFalse(multimap.removeValue("a", 5));
+    assertFalse(multimap.removeValue("z", 1));
+    assertTrue(multimap.removeValue("a", 1));
+    assertEquals(List.of(2, 1), all("a"));
+    assertTrue(multimap.removeValue("a", 2));
+    assertTrue(multimap.removeValue("a", 1));
+    assertFalse(multimap.containsKey("a"));
+    assertEquals(0, multimap.keyCount());
+    assertEquals(0, multimap.size());
+  } // removeValueTest()
+
+  /**
+   * Lots of keys survive expansion with all their values.
+   */
+  @Test
+  public void manyKeysTest() {
+    for (int i = 0; i < 1000; i++) {
+      for (int j = 0; j <= i % 5; j++) {
+        multimap.put("key" + i, j);
+      } // for j
+    } // for i
+    assertEquals(1000, multimap.keyCount());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i % 5 + 1, multimap.valueCount("key" + i));
+    } // for i
+    assertEquals(3, multimap.removeAll("key2"));
+    assertFalse(multimap.containsKey("key2"));
+
+    int pairs = 0;
+    for (Pair<String, Integer> pair : multimap) {
+      assertTrue(pair.value() < 5);
+      pairs++;
+    } // for
+    assertEquals(multimap.size(), pairs);
+  } // manyKeysTest()
+
+  /**
+   * Modifying the multimap invalidates outstanding value iterators.
+   */
+  @Test
+  public void concurrentModificationTest() {
+    multimap.put("a", 1);
+    multimap.put("a", 2);
+    Iterator<Integer> it = multimap.getAll("a");
+    it.next();
+    multimap.put("b", 3);
+    assertThrows(ConcurrentModificationException.class, () -> it.hasNext());
+  } // concurrentModificationTest()
+
+  /**
+   * Null keys are not permitted.
+   */
+  @Test
+  public void nullKeyTest() {
+    assertThrows(NullPointerException.class, () -> multimap.put(null, 1));
+  } // nullKeyTest()
+} // class ChainedHashMultimapTests
@@ -1,6 +1,7 @@
 package problem4;
 
 import utils.HashTable;
+import utils.HashTableStats;
 import utils.MiscUtils;
 import utils.Pair;
 import utils.Reporter;
@@ -43,6 +44,12 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
    * For experimentation and such, we allow the client to supply a Reporter that is used to report
    * behind-the-scenes work, such as calls to expand the table.
    * 
+   * snapshot() hands the current bucket array to a new table rather than copying it. From then
+   * on, both tables treat the array and every list in it as shared: before the first change, a
+   * table clones the array (references only), and before changing a bucket it copies that one
+   * list. The version stamps in bucketVersions tell us which lists a table has already copied.
+   * Tables that have never been part of a snapshot skip all of this.
+   * 
    * Other features to add.
    * 
    * [ ] A real implementation of containsKey.
@@ -59,6 +66,15 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
    */
   static final double LOAD_FACTOR = 0.5;
 
+  /**
+   * Approximate sizes of the objects that make up the table, for stats(). These assume a 64-bit
+   * JVM with compressed references.
+   */
+  static final int ARRAY_BYTES = 16;
+  static final int REFERENCE_BYTES = 4;
+  static final int LIST_BYTES = 24;
+  static final int PAIR_BYTES = 24;
+
   // +--------+----------------------------------------------------------
   // | Fields |
   // +--------+
@@ -94,6 +110,27 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
   // for keeping track of concurrent modification
   int mutation = 0;
 
+  /**
+   * Have we ever shared buckets with a snapshot? If not, every bucket is ours to modify.
+   */
+  boolean copyOnWrite = false;
+
+  /**
+   * Is the bucket array itself shared with a snapshot (or the table it was taken from)?
+   */
+  boolean sharedArray = false;
+
+  /**
+   * The version of this table's buckets. Incremented by each snapshot.
+   */
+  int version = 1;
+
+  /**
+   * The version at which we last copied each bucket. A bucket whose version differs from the
+   * table's version may be shared. Only used when copyOnWrite is set.
+   */
+  int[] bucketVersions;
+
   // +--------------+----------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -195,6 +232,7 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
       for (int i = 0; i < bucket.size(); i++) {
         Pair<K, V> pair = bucket.get(i);
         if (key.equals(pair.key())) {
+          bucket = own(index);
           bucket.remove(i);
           --this.size;
 
@@ -224,9 +262,15 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
     ArrayList<Pair<K, V>> alist = (ArrayList<Pair<K, V>>) this.buckets[index];
     // Special case: Nothing there yet
     if (alist == null) {
+      own(index);
       alist = new ArrayList<Pair<K, V>>();
       this.buckets[index] = alist;
-    }
+      if (this.copyOnWrite) {
+        this.bucketVersions[index] = this.version;
+      } // if
+    } else {
+      alist = own(index);
+    } // if/else
     // Look for something with a matching key.
     for (int i = 0; i < alist.size(); i++) {
       Pair<K, V> pair = alist.get(i);
@@ -334,12 +378,16 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
         if (updateIndex == -1 || updateSub == -1)
           throw new IllegalStateException();
 
-        @SuppressWarnings("unchecked")
-        ArrayList<Pair<K, V>> alist = (ArrayList<Pair<K, V>>) buckets[updateIndex];
+        ArrayList<Pair<K, V>> alist = own(updateIndex);
 
         alist.remove(updateSub);
         buckets[updateIndex] = alist;
 
+        // The rest of the bucket shifted down, so the next pair is now at updateSub.
+        if (index == updateIndex) {
+          subIndex = updateSub;
+        } // if
+
         if (alist.isEmpty()) {
           buckets[updateIndex] = null;
         } // if
@@ -355,7 +403,7 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
           @SuppressWarnings("unchecked")
           ArrayList<Pair<K, V>> alist = (ArrayList<Pair<K, V>>) buckets[i];
 
-          if (alist != null)
+          if (alist != null && !alist.isEmpty())
             return i;
         } // for
 
@@ -367,7 +415,7 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
           @SuppressWarnings("unchecked")
           ArrayList<Pair<K, V>> alist = (ArrayList<Pair<K, V>>) buckets[i];
 
-          if (alist != null)
+          if (alist != null && !alist.isEmpty())
             return i;
         } // for
 
@@ -388,6 +436,9 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
   public void clear() {
     this.buckets = new Object[41];
     this.size = 0;
+    this.copyOnWrite = false;
+    this.sharedArray = false;
+    this.bucketVersions = null;
   } // clear()
 
   /**
@@ -408,6 +459,35 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
     } // for each bucket
   } // dump(PrintWriter)
 
+  /**
+   * Summarize the structure of the table, examining every bucket.
+   */
+  @Override
+  public HashTableStats stats() {
+    HashTableStats stats = new HashTableStats(this.buckets.length, this.size, false);
+    stats.addFixedBytes(ARRAY_BYTES + REFERENCE_BYTES * (long) this.buckets.length);
+    for (int i = 0; i < this.buckets.length; i++) {
+      bucketStats(stats, i);
+    } // for
+    return stats;
+  } // stats()
+
+  /**
+   * Estimate the structure of the table from a random sample of buckets.
+   */
+  @Override
+  public HashTableStats stats(int samples) {
+    if (samples >= this.buckets.length) {
+      return stats();
+    } // if
+    HashTableStats stats = new HashTableStats(this.buckets.length, this.size, true);
+    stats.addFixedBytes(ARRAY_BYTES + REFERENCE_BYTES * (long) this.buckets.length);
+    for (int i = 0; i < samples; i++) {
+      bucketStats(stats, rand.nextInt(this.buckets.length));
+    } // for
+    return stats;
+  } // stats(int)
+
   // +------+------------------------------------------------------------
   // | Misc |
   // +------+
@@ -419,10 +499,76 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
     REPORT_BASIC_CALLS = report;
   } // reportBasicCalls
 
+  /**
+   * Take a point-in-time snapshot of the table. The snapshot is itself a ChainedHashTable; it can
+   * be iterated while this table keeps changing, and changes to either table are invisible to the
+   * other. Taking a snapshot is constant time; afterwards, each table pays for one copy of the
+   * bucket array and one copy of each bucket it changes.
+   *
+   * The snapshot may be read from another thread, provided it is handed over safely, but
+   * snapshot() itself must be called by the thread that modifies this table.
+   */
+  public ChainedHashTable<K, V> snapshot() {
+    ChainedHashTable<K, V> result = new ChainedHashTable<K, V>(this.reporter);
+    result.buckets = this.buckets;
+    result.size = this.size;
+    result.copyOnWrite = true;
+    result.sharedArray = true;
+    result.bucketVersions = null;
+    this.copyOnWrite = true;
+    this.sharedArray = true;
+    this.version++;
+    return result;
+  } // snapshot()
+
   // +---------+---------------------------------------------------------
   // | Helpers |
   // +---------+
 
+  /**
+   * Record the chain length, hash codes, and memory use of one bucket. Walks the list by index so
+   * that we don't allocate an iterator.
+   */
+  void bucketStats(HashTableStats stats, int index) {
+    @SuppressWarnings("unchecked")
+    ArrayList<Pair<K, V>> alist = (ArrayList<Pair<K, V>>) this.buckets[index];
+    if (alist == null) {
+      stats.recordBucket(0, 0);
+      return;
+    } // if
+    int length = alist.size();
+    for (int i = 0; i < length; i++) {
+      stats.recordHash(alist.get(i).key().hashCode());
+    } // for
+    // We can't see the list's internal capacity; ArrayLists start at ten and grow by half.
+    int listCapacity = Math.max(10, length + (length >> 1));
+    stats.recordBucket(length, LIST_BYTES + ARRAY_BYTES + REFERENCE_BYTES * (long) listCapacity
+        + PAIR_BYTES * (long) length);
+  } // bucketStats(HashTableStats, int)
+
+  /**
+   * Make sure that we may modify the bucket at index (and the array that holds it), copying
+   * anything we share with a snapshot. Returns the (possibly new) list in that bucket.
+   */
+  @SuppressWarnings("unchecked")
+  ArrayList<Pair<K, V>> own(int index) {
+    if (this.copyOnWrite) {
+      if (this.sharedArray) {
+        this.buckets = this.buckets.clone();
+        if ((this.bucketVersions == null) || (this.bucketVersions.length != this.buckets.length)) {
+          this.bucketVersions = new int[this.buckets.length];
+        } // if
+        this.sharedArray = false;
+      } // if
+      if ((this.buckets[index] != null) && (this.bucketVersions[index] != this.version)) {
+        ArrayList<Pair<K, V>> shared = (ArrayList<Pair<K, V>>) this.buckets[index];
+        this.buckets[index] = new ArrayList<Pair<K, V>>(shared);
+        this.bucketVersions[index] = this.version;
+      } // if
+    } // if
+    return (ArrayList<Pair<K, V>>) this.buckets[index];
+  } // own(int)
+
   /**
    * Expand the size of the table.
    */
@@ -434,8 +580,12 @@ public class ChainedHashTable<K, V> implements HashTable<K, V> {
     } // if reporter != null
     // Remember the old table
     Object[] oldBuckets = this.buckets;
-    // Create a new table of that size.
+    // Create a new table of that size. Nobody else can see it yet.
     this.buckets = new Object[newSize];
+    this.sharedArray = false;
+    if (this.copyOnWrite) {
+      this.bucketVersions = new int[newSize];
+    } // if
     // Reset the size because we're about to call set too many times.
     this.size = 0;
     // Move all values from the old table to their appropriate
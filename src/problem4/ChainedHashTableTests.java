@@ -1,8 +1,12 @@
 package problem4;
 
+import static org.junit.jupiter.api.Assertions.*;
+import utils.HashTableStats;
+import utils.Pair;
 import utils.SimpleMapTests;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
 /**
  * Tests of chained hash tables.
@@ -15,4 +19,67 @@ public class ChainedHashTableTests extends SimpleMapTests {
   public void setupChainedHashTableTests() {
     stringMap = new ChainedHashTable<String,String>();
   } // setupChainedHashTableTests()
+
+  /**
+   * The exact statistics should agree with the table, and a sample should come close.
+   */
+  @Test
+  public void statsTest() {
+    ChainedHashTable<String, String> table = (ChainedHashTable<String, String>) stringMap;
+    for (int i = 0; i < 10000; i++) {
+      table.set("key" + i, "value" + i);
+    } // for
+    HashTableStats stats = table.stats();
+    assertEquals(10000, stats.size());
+    assertEquals(table.buckets.length, stats.capacity());
+    long buckets = 0;
+    long entries = 0;
+    for (int length = 0; length < HashTableStats.HISTOGRAM_SIZE; length++) {
+      buckets += stats.chainCount(length);
+      entries += length * stats.chainCount(length);
+    } // for
+    assertEquals(stats.capacity(), buckets);
+    assertTrue(entries <= 10000);
+    assertTrue(stats.maxChain() >= 1);
+    assertTrue(Math.abs(stats.hashBitFraction(0) - 0.5) < 0.1);
+
+    HashTableStats sample = table.stats(stats.capacity() / 4);
+    assertTrue(sample.sampled());
+    assertTrue(Math.abs(sample.emptyBuckets() - stats.emptyBuckets()) < stats.capacity() / 10);
+  } // statsTest()
+
+  /**
+   * A snapshot keeps its contents while the original table changes, and vice versa.
+   */
+  @Test
+  public void snapshotTest() {
+    ChainedHashTable<String, String> table = (ChainedHashTable<String, String>) stringMap;
+    for (int i = 0; i < 1000; i++) {
+      table.set("key" + i, "value" + i);
+    } // for
+    ChainedHashTable<String, String> snapshot = table.snapshot();
+
+    // Change the original while iterating the snapshot.
+    int count = 0;
+    for (Pair<String, String> pair : snapshot) {
+      assertEquals(pair.key().replace("key", "value"), pair.value());
+      table.set(pair.key(), "changed");
+      table.remove(pair.key());
+      table.set("new" + count, "new");
+      count++;
+    } // for
+    assertEquals(1000, count);
+    assertEquals(1000, snapshot.size());
+    assertEquals(1000, table.size());
+    assertEquals("value7", snapshot.get("key7"));
+    assertFalse(snapshot.containsKey("new7"));
+    assertFalse(table.containsKey("key7"));
+
+    // Changing the snapshot leaves the original alone.
+    snapshot.set("key7", "snapshot");
+    snapshot.remove("key8");
+    assertFalse(table.containsKey("key7"));
+    assertEquals("new", table.get("new8"));
+    assertEquals("snapshot", snapshot.get("key7"));
+  } // snapshotTest()
 } // class ChainedHashTableTests
@@ -0,0 +1,458 @@
+package problem4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * A hash table split into shards, each of which is a ChainedHashTable owned by a single worker
+ * thread. Clients send batches of requests to the workers and get futures back.
+ *
+ * @author Chris Won
+ */
+public class PartitionedHashTable<K, V> implements AutoCloseable {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * Each key belongs to exactly one shard, chosen from its hash code. Only the shard's worker
+   * thread ever touches the shard's ChainedHashTable, so the table itself needs no locks.
+   *
+   * Clients collect requests in a Batch. When the batch is submitted, the requests for each shard
+   * are handed to that shard's queue as a single message, so the cost of crossing between threads
+   * is paid once per shard per batch rather than once per request. Workers drain everything
+   * waiting in their queue before blocking again.
+   *
+   * Each request is an action on the shard's table and the future that receives its result.
+   * If the action throws, the worker completes that request's future exceptionally and goes on
+   * to the next request. The futures complete on the worker threads, so clients should avoid
+   * attaching slow callbacks to them.
+   *
+   * Once the table is closed, submit and size throw IllegalStateException. Clients check that
+   * the table is open and enqueue while holding the read half of a lock, and close sets the flag
+   * and enqueues the shutdown messages while holding the write half, so every message a client
+   * manages to send lands ahead of the shutdown message and gets run. Anything a worker still
+   * finds behind the shutdown message (and anything left when a worker is interrupted) has its
+   * future completed exceptionally, so no future is left waiting forever.
+   *
+   * A Batch is not thread-safe; each client thread should use its own.
+   */
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The shards.
+   */
+  ArrayList<Shard<K, V>> shards;
+
+  /**
+   * Has the table been closed?
+   */
+  volatile boolean closed;
+
+  /**
+   * Held for reading to check closed and enqueue, and for writing to close.
+   */
+  ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a table with one shard per available processor.
+   */
+  public PartitionedHashTable() {
+    this(Runtime.getRuntime().availableProcessors());
+  } // PartitionedHashTable()
+
+  /**
+   * Create a table with a particular number of shards.
+   */
+  public PartitionedHashTable(int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("Need at least one shard");
+    } // if
+    this.shards = new ArrayList<Shard<K, V>>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      this.shards.add(new Shard<K, V>("PartitionedHashTable-shard-" + i));
+    } // for
+  } // PartitionedHashTable(int)
+
+  // +---------+---------------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Start a new batch of requests.
+   */
+  public Batch batch() {
+    return new Batch();
+  } // batch()
+
+  /**
+   * Stop all of the workers, after they finish the requests already submitted. If we're
+   * interrupted while waiting for them, we restore the interrupt and return early.
+   */
+  @Override
+  public void close() {
+    this.lock.writeLock().lock();
+    try {
+      if (!this.closed) {
+        this.closed = true;
+        for (Shard<K, V> shard : this.shards) {
+          shard.queue.add(Shard.shutdown());
+        } // for
+      } // if
+    } finally {
+      this.lock.writeLock().unlock();
+    } // try/finally
+    try {
+      for (Shard<K, V> shard : this.shards) {
+        shard.worker.join();
+      } // for
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } // try/catch
+    // Fail anything left by a worker that was interrupted.
+    for (Shard<K, V> shard : this.shards) {
+      shard.failQueued();
+    } // for
+  } // close()
+
+  /**
+   * Determine if the table contains a key, as a batch of one.
+   */
+  public CompletableFuture<Boolean> containsKey(K key) {
+    Batch batch = this.batch();
+    CompletableFuture<Boolean> result = batch.containsKey(key);
+    batch.submit();
+    return result;
+  } // containsKey(K)
+
+  /**
+   * Get the value for a key, as a batch of one.
+   */
+  public CompletableFuture<V> get(K key) {
+    Batch batch = this.batch();
+    CompletableFuture<V> result = batch.get(key);
+    batch.submit();
+    return result;
+  } // get(K)
+
+  /**
+   * Remove a key, as a batch of one.
+   */
+  public CompletableFuture<V> remove(K key) {
+    Batch batch = this.batch();
+    CompletableFuture<V> result = batch.remove(key);
+    batch.submit();
+    return result;
+  } // remove(K)
+
+  /**
+   * Set the value for a key, as a batch of one.
+   */
+  public CompletableFuture<V> set(K key, V value) {
+    Batch batch = this.batch();
+    CompletableFuture<V> result = batch.set(key, value);
+    batch.submit();
+    return result;
+  } // set(K,V)
+
+  /**
+   * Get the number of shards.
+   */
+  public int shardCount() {
+    return this.shards.size();
+  } // shardCount()
+
+  /**
+   * Get the total number of pairs, as seen by each shard once it has finished the requests ahead
+   * of this one.
+   */
+  public int size() {
+    ArrayList<CompletableFuture<Integer>> sizes = new ArrayList<CompletableFuture<Integer>>();
+    this.lock.readLock().lock();
+    try {
+      checkOpen();
+      for (Shard<K, V> shard : this.shards) {
+        Request<K, V, Integer> request = new Request<K, V, Integer>((table) -> table.size());
+        ArrayList<Request<K, V, ?>> message = new ArrayList<Request<K, V, ?>>(1);
+        message.add(request);
+        shard.queue.add(message);
+        sizes.add(request.result);
+      } // for
+    } finally {
+      this.lock.readLock().unlock();
+    } // try/finally
+    int total = 0;
+    for (CompletableFuture<Integer> size : sizes) {
+      total += size.join();
+    } // for
+    return total;
+  } // size()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make sure the table hasn't been closed.
+   */
+  void checkOpen() {
+    if (this.closed) {
+      throw new IllegalStateException("table is closed");
+    } // if
+  } // checkOpen()
+
+  /**
+   * Find the shard responsible for a key.
+   */
+  int shardFor(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+    int hash = key.hashCode();
+    // Mix the high bits in, since ChainedHashTable uses the low bits within the shard.
+    hash ^= (hash >>> 16);
+    hash *= 0x85EBCA6B;
+    hash ^= (hash >>> 13);
+    return (hash & 0x7FFFFFFF) % this.shards.size();
+  } // shardFor(K)
+
+  // +---------------+---------------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A group of requests that are sent to the shards together.
+   */
+  public class Batch {
+    /**
+     * The requests for each shard, indexed by shard number. Null until the shard gets a request.
+     */
+    ArrayList<ArrayList<Request<K, V, ?>>> pending;
+
+    /**
+     * Create an empty batch.
+     */
+    Batch() {
+      int n = PartitionedHashTable.this.shards.size();
+      this.pending = new ArrayList<ArrayList<Request<K, V, ?>>>(n);
+      for (int i = 0; i < n; i++) {
+        this.pending.add(null);
+      } // for
+    } // Batch()
+
+    /**
+     * Add a request to determine if the table contains a key.
+     */
+    public CompletableFuture<Boolean> containsKey(K key) {
+      return add(key, (table) -> table.containsKey(key));
+    } // containsKey(K)
+
+    /**
+     * Add a request to get the value for a key. The future completes exceptionally with an
+     * IndexOutOfBoundsException if the key is missing.
+     */
+    public CompletableFuture<V> get(K key) {
+      return add(key, (table) -> table.get(key));
+    } // get(K)
+
+    /**
+     * Add a request to remove a key. The future completes with the old value (or null).
+     */
+    public CompletableFuture<V> remove(K key) {
+      return add(key, (table) -> table.remove(key));
+    } // remove(K)
+
+    /**
+     * Add a request to set the value for a key. The future completes with the old value (or
+     * null).
+     */
+    public CompletableFuture<V> set(K key, V value) {
+      return add(key, (table) -> table.set(key, value));
+    } // set(K,V)
+
+    /**
+     * Send the requests to their shards and empty the batch so that it can be reused.
+     *
+     * @throws IllegalStateException if the table has been closed.
+     */
+    public void submit() {
+      PartitionedHashTable.this.lock.readLock().lock();
+      try {
+        checkOpen();
+        for (int i = 0; i < this.pending.size(); i++) {
+          ArrayList<Request<K, V, ?>> requests = this.pending.get(i);
+          if (requests != null) {
+            PartitionedHashTable.this.shards.get(i).queue.add(requests);
+            this.pending.set(i, null);
+          } // if
+        } // for
+      } finally {
+        PartitionedHashTable.this.lock.readLock().unlock();
+      } // try/finally
+    } // submit()
+
+    /**
+     * Add a request for the shard that owns key, returning the future for its result.
+     */
+    <T> CompletableFuture<T> add(K key, Function<ChainedHashTable<K, V>, T> action) {
+      int shard = shardFor(key);
+      ArrayList<Request<K, V, ?>> requests = this.pending.get(shard);
+      if (requests == null) {
+        requests = new ArrayList<Request<K, V, ?>>();
+        this.pending.set(shard, requests);
+      } // if
+      Request<K, V, T> request = new Request<K, V, T>(action);
+      requests.add(request);
+      return request.result;
+    } // add(K, Function)
+  } // class Batch
+} // class PartitionedHashTable<K,V>
+
+
+/**
+ * One shard of a partitioned hash table: a table, the queue of messages for it, and the thread
+ * that owns it.
+ */
+class Shard<K, V> {
+  /**
+   * The message that tells a worker to stop. Compared by identity.
+   */
+  static final ArrayList<?> SHUTDOWN = new ArrayList<Object>();
+
+  /**
+   * The table. Only touched by the worker.
+   */
+  ChainedHashTable<K, V> table;
+
+  /**
+   * Batches of requests waiting for the worker.
+   */
+  LinkedBlockingQueue<ArrayList<Request<K, V, ?>>> queue;
+
+  /**
+   * The worker.
+   */
+  Thread worker;
+
+  /**
+   * Create a shard and start its worker.
+   */
+  Shard(String name) {
+    this.table = new ChainedHashTable<K, V>();
+    this.queue = new LinkedBlockingQueue<ArrayList<Request<K, V, ?>>>();
+    this.worker = new Thread(this::run, name);
+    this.worker.setDaemon(true);
+    this.worker.start();
+  } // Shard(String)
+
+  /**
+   * Get the shutdown message with the right type.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> ArrayList<Request<K, V, ?>> shutdown() {
+    return (ArrayList<Request<K, V, ?>>) SHUTDOWN;
+  } // shutdown()
+
+  /**
+   * Process messages until we're told to stop. A request that throws fails its own future and
+   * nothing else. Requests behind the shutdown message fail.
+   */
+  void run() {
+    ArrayList<ArrayList<Request<K, V, ?>>> messages = new ArrayList<ArrayList<Request<K, V, ?>>>();
+    try {
+      while (true) {
+        messages.add(this.queue.take());
+        this.queue.drainTo(messages);
+        for (int i = 0; i < messages.size(); i++) {
+          ArrayList<Request<K, V, ?>> message = messages.get(i);
+          if (message == SHUTDOWN) {
+            fail(messages.subList(i + 1, messages.size()));
+            failQueued();
+            return;
+          } // if
+          for (Request<K, V, ?> request : message) {
+            try {
+              request.run(this.table);
+            } catch (Exception e) {
+              request.fail(e);
+            } // try/catch
+          } // for
+        } // for
+        messages.clear();
+      } // while
+    } catch (InterruptedException e) {
+      // Interrupted workers simply stop; close fails what they leave queued.
+    } // try/catch
+  } // run()
+
+  /**
+   * Fail every request still in the queue.
+   */
+  void failQueued() {
+    ArrayList<ArrayList<Request<K, V, ?>>> stranded = new ArrayList<ArrayList<Request<K, V, ?>>>();
+    this.queue.drainTo(stranded);
+    fail(stranded);
+  } // failQueued()
+
+  /**
+   * Fail every request in some messages.
+   */
+  static <K, V> void fail(List<ArrayList<Request<K, V, ?>>> messages) {
+    for (ArrayList<Request<K, V, ?>> message : messages) {
+      for (Request<K, V, ?> request : message) {
+        request.fail(new IllegalStateException("table is closed"));
+      } // for
+    } // for
+  } // fail(List)
+} // class Shard<K,V>
+
+
+/**
+ * One request to a shard: an action on its table, and the future for the action's result.
+ */
+class Request<K, V, T> {
+  /**
+   * The action.
+   */
+  Function<ChainedHashTable<K, V>, T> action;
+
+  /**
+   * The future for the result.
+   */
+  CompletableFuture<T> result;
+
+  /**
+   * Create a request for an action.
+   */
+  Request(Function<ChainedHashTable<K, V>, T> action) {
+    this.action = action;
+    this.result = new CompletableFuture<T>();
+  } // Request(Function)
+
+  /**
+   * Run the action on a table and complete the future with its result.
+   */
+  void run(ChainedHashTable<K, V> table) {
+    this.result.complete(this.action.apply(table));
+  } // run(ChainedHashTable)
+
+  /**
+   * Complete the future exceptionally.
+   */
+  void fail(Throwable failure) {
+    this.result.completeExceptionally(failure);
+  } // fail(Throwable)
+} // class Request<K,V,T>
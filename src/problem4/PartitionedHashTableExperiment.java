@@ -0,0 +1,188 @@
+package problem4;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compare the throughput of a PartitionedHashTable with that of a lock-striped collection of
+ * ChainedHashTables as we add client threads.
+ */
+public class PartitionedHashTableExperiment {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of distinct keys.
+   */
+  static final int KEYS = 1 << 20;
+
+  /**
+   * The number of operations each client performs.
+   */
+  static final int OPERATIONS = 1 << 20;
+
+  /**
+   * The number of requests a client puts in each batch.
+   */
+  static final int BATCH_SIZE = 256;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Run clients threads at once, returning the throughput in millions of operations per second.
+   */
+  static double run(int clients, Runnable client) throws InterruptedException {
+    ArrayList<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < clients; i++) {
+      threads.add(new Thread(client));
+    } // for
+    long start = System.nanoTime();
+    for (Thread thread : threads) {
+      thread.start();
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+    long elapsed = System.nanoTime() - start;
+    return (clients * (double) OPERATIONS) / (elapsed / 1e3);
+  } // run(int, Runnable)
+
+  /**
+   * A client of a partitioned table: three gets for every set, in batches.
+   */
+  static void partitionedClient(PartitionedHashTable<Integer, Integer> table) {
+    PartitionedHashTable<Integer, Integer>.Batch batch = table.batch();
+    ArrayList<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>(BATCH_SIZE);
+    int seed = (int) Thread.currentThread().getId();
+    for (int i = 0; i < OPERATIONS; i++) {
+      seed = seed * 1103515245 + 12345;
+      Integer key = (seed >>> 8) & (KEYS - 1);
+      if ((i & 3) == 0) {
+        futures.add(batch.set(key, i));
+      } else {
+        futures.add(batch.containsKey(key));
+      } // if/else
+      if (futures.size() == BATCH_SIZE) {
+        batch.submit();
+        for (CompletableFuture<?> future : futures) {
+          future.join();
+        } // for
+        futures.clear();
+      } // if
+    } // for
+    batch.submit();
+    for (CompletableFuture<?> future : futures) {
+      future.join();
+    } // for
+  } // partitionedClient(PartitionedHashTable)
+
+  /**
+   * A client of a striped table: three gets for every set.
+   */
+  static void stripedClient(StripedHashTable<Integer, Integer> table) {
+    int seed = (int) Thread.currentThread().getId();
+    for (int i = 0; i < OPERATIONS; i++) {
+      seed = seed * 1103515245 + 12345;
+      Integer key = (seed >>> 8) & (KEYS - 1);
+      if ((i & 3) == 0) {
+        table.set(key, i);
+      } else {
+        table.containsKey(key);
+      } // if/else
+    } // for
+  } // stripedClient(StripedHashTable)
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws Exception {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int cores = Runtime.getRuntime().availableProcessors();
+    pen.println("Processors: " + cores);
+    pen.printf("%8s %18s %18s%n", "clients", "partitioned M/s", "striped M/s");
+    for (int clients = 1; clients <= cores; clients *= 2) {
+      PartitionedHashTable<Integer, Integer> partitioned =
+          new PartitionedHashTable<Integer, Integer>(cores);
+      StripedHashTable<Integer, Integer> striped = new StripedHashTable<Integer, Integer>(cores);
+      double p = run(clients, () -> partitionedClient(partitioned));
+      double s = run(clients, () -> stripedClient(striped));
+      pen.printf("%8d %18.2f %18.2f%n", clients, p, s);
+      partitioned.close();
+    } // for
+  } // main(String[])
+} // class PartitionedHashTableExperiment
+
+
+/**
+ * The alternative we compare against: a fixed number of ChainedHashTables, each guarded by its
+ * own lock.
+ */
+class StripedHashTable<K, V> {
+  /**
+   * The stripes.
+   */
+  ArrayList<ChainedHashTable<K, V>> tables;
+
+  /**
+   * The lock for each stripe.
+   */
+  ArrayList<ReentrantLock> locks;
+
+  /**
+   * Create a table with a particular number of stripes.
+   */
+  StripedHashTable(int stripes) {
+    this.tables = new ArrayList<ChainedHashTable<K, V>>(stripes);
+    this.locks = new ArrayList<ReentrantLock>(stripes);
+    for (int i = 0; i < stripes; i++) {
+      this.tables.add(new ChainedHashTable<K, V>());
+      this.locks.add(new ReentrantLock());
+    } // for
+  } // StripedHashTable(int)
+
+  /**
+   * Determine if the table contains a key.
+   */
+  boolean containsKey(K key) {
+    int stripe = stripe(key);
+    ReentrantLock lock = this.locks.get(stripe);
+    lock.lock();
+    try {
+      return this.tables.get(stripe).containsKey(key);
+    } finally {
+      lock.unlock();
+    } // try/finally
+  } // containsKey(K)
+
+  /**
+   * Set the value for a key.
+   */
+  V set(K key, V value) {
+    int stripe = stripe(key);
+    ReentrantLock lock = this.locks.get(stripe);
+    lock.lock();
+    try {
+      return this.tables.get(stripe).set(key, value);
+    } finally {
+      lock.unlock();
+    } // try/finally
+  } // set(K,V)
+
+  /**
+   * Find the stripe for a key.
+   */
+  int stripe(K key) {
+    int hash = key.hashCode();
+    hash ^= (hash >>> 16);
+    hash *= 0x85EBCA6B;
+    hash ^= (hash >>> 13);
+    return (hash & 0x7FFFFFFF) % this.tables.size();
+  } // stripe(K)
+} // class StripedHashTable<K,V>
@@ -0,0 +1,172 @@
+package problem4;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of partitioned hash tables.
+ */
+public class PartitionedHashTableTests {
+
+  /**
+   * The table we're testing.
+   */
+  PartitionedHashTable<String, String> table;
+
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupPartitionedHashTableTests() {
+    table = new PartitionedHashTable<String, String>(4);
+  } // setupPartitionedHashTableTests()
+
+  /**
+   * Requests in one batch see each other's effects, in order.
+   */
+  @Test
+  public void batchTest() throws Exception {
+    PartitionedHashTable<String, String>.Batch batch = table.batch();
+    CompletableFuture<String> first = batch.set("a", "alpha");
+    CompletableFuture<String> second = batch.set("a", "aleph");
+    CompletableFuture<String> value = batch.get("a");
+    CompletableFuture<Boolean> missing = batch.containsKey("b");
+    CompletableFuture<String> removed = batch.remove("a");
+    batch.submit();
+    assertNull(first.join());
+    assertEquals("alpha", second.join());
+    assertEquals("aleph", value.join());
+    assertFalse(missing.join());
+    assertEquals("aleph", removed.join());
+    assertThrows(CompletionException.class, () -> table.get("a").join());
+    table.close();
+  } // batchTest()
+
+  /**
+   * Several client threads can fill the table at once.
+   */
+  @Test
+  public void concurrentClientsTest() throws Exception {
+    ArrayList<Thread> clients = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      final int client = t;
+      clients.add(new Thread(() -> {
+        PartitionedHashTable<String, String>.Batch batch = table.batch();
+        for (int i = 0; i < 1000; i++) {
+          batch.set(client + ":" + i, Integer.toString(i));
+        } // for
+        batch.submit();
+      }));
+    } // for
+    for (Thread client : clients) {
+      client.start();
+    } // for
+    for (Thread client : clients) {
+      client.join();
+    } // for
+    assertEquals(4000, table.size());
+    assertEquals("999", table.get("3:999").join());
+    table.close();
+  } // concurrentClientsTest()
+
+  /**
+   * A request that throws fails only its own future, and the shard keeps working.
+   */
+  @Test
+  public void failingRequestTest() {
+    PartitionedHashTable<Object, String> picky = new PartitionedHashTable<Object, String>(1);
+    // Keys that collide, and that refuse to be compared.
+    Object first = new Unequal();
+    PartitionedHashTable<Object, String>.Batch batch = picky.batch();
+    CompletableFuture<String> set = batch.set(first, "one");
+    CompletableFuture<String> again = batch.set(new Unequal(), "two");
+    CompletableFuture<String> after = batch.set("plain", "three");
+    batch.submit();
+    assertNull(set.join());
+    CompletionException failure = assertThrows(CompletionException.class, () -> again.join());
+    assertTrue(failure.getCause() instanceof UnsupportedOperationException);
+    assertNull(after.join());
+    assertEquals("three", picky.get("plain").join());
+    picky.close();
+  } // failingRequestTest()
+
+  /**
+   * Once the table is closed, new requests are refused rather than left hanging.
+   */
+  @Test
+  public void closeTest() {
+    table.set("a", "alpha").join();
+    PartitionedHashTable<String, String>.Batch batch = table.batch();
+    batch.set("b", "beta");
+    table.close();
+    assertThrows(IllegalStateException.class, () -> batch.submit());
+    assertThrows(IllegalStateException.class, () -> table.get("a"));
+    assertThrows(IllegalStateException.class, () -> table.size());
+    // Closing twice is harmless.
+    table.close();
+  } // closeTest()
+
+  /**
+   * Closing while other threads are still submitting leaves no future waiting and no thread
+   * blocked: each request either runs or fails.
+   */
+  @Test
+  public void closeWhileSubmittingTest() throws Exception {
+    for (int trial = 0; trial < 100; trial++) {
+      PartitionedHashTable<String, String> racing = new PartitionedHashTable<String, String>(4);
+      ArrayList<ArrayList<CompletableFuture<String>>> futures =
+          new ArrayList<ArrayList<CompletableFuture<String>>>();
+      ArrayList<Thread> writers = new ArrayList<Thread>();
+      for (int w = 0; w < 4; w++) {
+        ArrayList<CompletableFuture<String>> mine = new ArrayList<CompletableFuture<String>>();
+        futures.add(mine);
+        int id = w;
+        writers.add(new Thread(() -> {
+          try {
+            for (int i = 0; true; i++) {
+              mine.add(racing.set(id + ":" + i, "x"));
+              if ((i % 16) == 0) {
+                racing.size();
+              } // if
+            } // for
+          } catch (IllegalStateException e) {
+            // The table closed under us, which is what we want.
+          } // try/catch
+        }));
+      } // for
+      for (Thread writer : writers) {
+        writer.start();
+      } // for
+      Thread.sleep(trial % 5);
+      racing.close();
+      for (Thread writer : writers) {
+        writer.join(10000);
+        assertFalse(writer.isAlive(), "a writer is stuck");
+      } // for
+      for (ArrayList<CompletableFuture<String>> mine : futures) {
+        for (CompletableFuture<String> future : mine) {
+          assertTrue(future.isDone(), "a future was never completed");
+        } // for
+      } // for
+    } // for
+  } // closeWhileSubmittingTest()
+
+  /**
+   * Keys that all hash alike and throw when compared.
+   */
+  static class Unequal {
+    @Override
+    public int hashCode() {
+      return 1;
+    } // hashCode()
+
+    @Override
+    public boolean equals(Object other) {
+      throw new UnsupportedOperationException("no comparisons");
+    } // equals(Object)
+  } // class Unequal
+} // class PartitionedHashTableTests
@@ -0,0 +1,680 @@
+package problem4;
+
+import utils.HashTable;
+import utils.HashTableStats;
+import utils.MiscUtils;
+import utils.Pair;
+import utils.Reporter;
+import java.io.PrintWriter;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A chained hash table that holds either its keys weakly or its values softly, so that the
+ * garbage collector may reclaim entries that nobody else is using.
+ *
+ * @author Chris Won
+ */
+public class ReferenceHashTable<K, V> implements HashTable<K, V> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * Each entry is itself a reference object. In a weak-key table, an entry is a WeakReference to
+   * its key, so the entry disappears once the key is otherwise unreachable; that's what we want for
+   * attaching metadata to short-lived objects. In a soft-value table, an entry is a SoftReference
+   * to its value, so the collector may clear values when memory runs low; that's what we want for
+   * caches.
+   *
+   * When the collector clears an entry's referent, it puts the entry on our ReferenceQueue. We
+   * don't run a cleanup thread. Instead, set and get each remove up to DRAIN_LIMIT cleared
+   * entries, so the cost of cleanup is spread across ordinary calls. size, expansion, and
+   * iteration drain the queue completely so that they see an accurate table.
+   *
+   * Entries whose referents have been cleared but that are still in the queue are invisible to
+   * get, containsKey, and iteration.
+   *
+   * Because an entry may vanish at any time, we keep the hash code in the entry, and we find
+   * entries to unlink by identity rather than by key.
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The load factor for expanding the table.
+   */
+  static final double LOAD_FACTOR = 0.5;
+
+  /**
+   * The maximum number of cleared entries we remove during one call to set or get.
+   */
+  static final int DRAIN_LIMIT = 16;
+
+  /**
+   * Approximate sizes of the objects that make up the table, for stats(). These assume a 64-bit
+   * JVM with compressed references; an entry is a reference object with three fields of our own.
+   */
+  static final int ARRAY_BYTES = 16;
+  static final int REFERENCE_BYTES = 4;
+  static final int ENTRY_BYTES = 48;
+
+  /**
+   * What we store in place of null values in a soft-value table, since a cleared SoftReference
+   * also reports null.
+   */
+  static final Object NULL_VALUE = new Object();
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Do we hold keys weakly (true) or values softly (false)?
+   */
+  boolean weakKeys;
+
+  /**
+   * The number of entries in the table, including any cleared entries we haven't yet removed.
+   */
+  int size = 0;
+
+  /**
+   * The chains of entries. Each element is either null or the first entry in the chain.
+   */
+  Object[] buckets;
+
+  /**
+   * Where the collector puts entries whose referents it has cleared.
+   */
+  ReferenceQueue<Object> queue;
+
+  /**
+   * An optional reporter to let us observe what the hash table is doing.
+   */
+  Reporter reporter;
+
+  /**
+   * Do we report basic calls?
+   */
+  boolean REPORT_BASIC_CALLS = false;
+
+  // for keeping track of concurrent modification
+  int mutation = 0;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new table that holds either its keys weakly or its values softly.
+   */
+  ReferenceHashTable(boolean weakKeys) {
+    this.weakKeys = weakKeys;
+    this.clear();
+    this.reporter = null;
+  } // ReferenceHashTable(boolean)
+
+  /**
+   * Create a new table whose entries disappear once their keys are otherwise unreachable.
+   */
+  public static <K, V> ReferenceHashTable<K, V> weakKeys() {
+    return new ReferenceHashTable<K, V>(true);
+  } // weakKeys()
+
+  /**
+   * Create a new table whose values the collector may reclaim when memory runs low.
+   */
+  public static <K, V> ReferenceHashTable<K, V> softValues() {
+    return new ReferenceHashTable<K, V>(false);
+  } // softValues()
+
+  /**
+   * Set the reporter used to report activities.
+   */
+  public void setReporter(Reporter reporter) {
+    this.reporter = reporter;
+  } // setReporter(Reporter)
+
+  // +-------------------+-----------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public boolean containsKey(K key) {
+    drain(DRAIN_LIMIT);
+    return entry(key) != null;
+  } // containsKey(K)
+
+  @Override
+  public V get(K key) {
+    drain(DRAIN_LIMIT);
+    ReferenceEntry<K, V> entry = entry(key);
+    if (entry == null) {
+      if (REPORT_BASIC_CALLS && (reporter != null)) {
+        reporter.report("get(" + key + ") failed");
+      } // if reporter != null
+      throw new IndexOutOfBoundsException("Invalid key: " + key);
+    } // if
+    return unmask(entry.value());
+  } // get(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public V remove(K key) {
+    int hash = hash(key);
+    int index = index(hash);
+    ReferenceEntry<K, V> prev = null;
+    for (ReferenceEntry<K, V> entry = bucket(index); entry != null; entry = entry.next()) {
+      if (matches(entry, key, hash)) {
+        V value = entry.value();
+        unlink(index, prev, entry);
+        return unmask(value);
+      } // if
+      prev = entry;
+    } // for
+    return null;
+  } // remove(K)
+
+  @Override
+  public V set(K key, V value) {
+    this.mutation++;
+    drain(DRAIN_LIMIT);
+
+    // If there are too many entries, expand the table.
+    if (this.size > (this.buckets.length * LOAD_FACTOR)) {
+      expand();
+    } // if there are too many entries
+
+    int hash = hash(key);
+    int index = index(hash);
+    ReferenceEntry<K, V> prev = null;
+    for (ReferenceEntry<K, V> entry = bucket(index); entry != null; entry = entry.next()) {
+      if (matches(entry, key, hash)) {
+        V old = entry.value();
+        if (this.weakKeys) {
+          // Only weak-key entries hold their values strongly, so only they can change them.
+          ((WeakKeyEntry<K, V>) entry).setValue(value);
+        } else {
+          // A SoftReference can't change its referent, so we replace the entry.
+          unlink(index, prev, entry);
+          link(index, newEntry(key, hash, value));
+        } // if/else
+        return unmask(old);
+      } // if
+      prev = entry;
+    } // for
+
+    link(index, newEntry(key, hash, value));
+
+    // Report activity, if appropriate
+    if (REPORT_BASIC_CALLS && (reporter != null)) {
+      reporter.report("adding '" + key + ":" + value + "' to bucket " + index);
+    } // if reporter != null
+
+    return null;
+  } // set(K,V)
+
+  /**
+   * Get the number of entries, after removing all those the collector has cleared.
+   */
+  @Override
+  public int size() {
+    drain(Integer.MAX_VALUE);
+    return this.size;
+  } // size()
+
+  @Override
+  public Iterator<V> values() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
+  } // values()
+
+  // +------------------+--------------------------------------------
+  // | Iterator methods |
+  // +------------------+
+
+  /**
+   * Iterate the key/value pairs in some order. Each pair holds its key and value strongly, so
+   * entries we've returned won't disappear while the client holds the pair.
+   */
+  @Override
+  public Iterator<Pair<K, V>> iterator() {
+    drain(Integer.MAX_VALUE);
+    return new Iterator<Pair<K, V>>() {
+      int index = -1;
+      ReferenceEntry<K, V> entry = null;
+      Pair<K, V> upcoming = advance();
+      ReferenceEntry<K, V> last = null;
+
+      int initialMutation = mutation;
+
+      public boolean hasNext() {
+        if (initialMutation != mutation)
+          throw new ConcurrentModificationException();
+
+        return upcoming != null;
+      } // hasNext()
+
+      public Pair<K, V> next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        Pair<K, V> result = upcoming;
+        last = entry;
+        upcoming = advance();
+        return result;
+      } // next()
+
+      public void remove() {
+        if (initialMutation != mutation)
+          throw new ConcurrentModificationException();
+
+        if (last == null)
+          throw new IllegalStateException();
+
+        removeEntry(last);
+        last = null;
+        initialMutation = mutation;
+      } // remove()
+
+      /**
+       * Move to the next live entry, returning its contents (or null at the end).
+       */
+      Pair<K, V> advance() {
+        while (true) {
+          entry = (entry == null) ? null : entry.next();
+          while (entry == null) {
+            if (++index >= buckets.length) {
+              return null;
+            } // if
+            entry = bucket(index);
+          } // while
+          K key = entry.key();
+          Object value = entry.value();
+          if ((key != null) && (value != null)) {
+            return new Pair<K, V>(key, unmask(value));
+          } // if
+        } // while
+      } // advance()
+    }; // new Iterator
+  } // iterator()
+
+  // +-------------------+-------------------------------------------
+  // | HashTable methods |
+  // +-------------------+
+
+  @Override
+  public void clear() {
+    this.buckets = new Object[41];
+    this.size = 0;
+    // Entries from the old table may still be queued; a fresh queue means we never see them.
+    this.queue = new ReferenceQueue<Object>();
+    this.mutation++;
+  } // clear()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    pen.println("Capacity: " + this.buckets.length + ", Size: " + this.size + " ("
+        + (this.weakKeys ? "weak keys" : "soft values") + ")");
+    for (int i = 0; i < this.buckets.length; i++) {
+      for (ReferenceEntry<K, V> entry = bucket(i); entry != null; entry = entry.next()) {
+        pen.println("  " + i + ": <" + entry.key() + "(" + entry.hash() + "):"
+            + unmask(entry.value()) + ">");
+      } // for each entry in the bucket
+    } // for each bucket
+  } // dump(PrintWriter)
+
+  @Override
+  public void reportBasicCalls(boolean report) {
+    REPORT_BASIC_CALLS = report;
+  } // reportBasicCalls
+
+  @Override
+  public HashTableStats stats() {
+    HashTableStats stats = new HashTableStats(this.buckets.length, this.size, false);
+    stats.addFixedBytes(ARRAY_BYTES + REFERENCE_BYTES * (long) this.buckets.length);
+    for (int i = 0; i < this.buckets.length; i++) {
+      bucketStats(stats, i);
+    } // for
+    return stats;
+  } // stats()
+
+  @Override
+  public HashTableStats stats(int samples) {
+    if (samples >= this.buckets.length) {
+      return stats();
+    } // if
+    HashTableStats stats = new HashTableStats(this.buckets.length, this.size, true);
+    stats.addFixedBytes(ARRAY_BYTES + REFERENCE_BYTES * (long) this.buckets.length);
+    for (int i = 0; i < samples; i++) {
+      bucketStats(stats, MiscUtils.rand.nextInt(this.buckets.length));
+    } // for
+    return stats;
+  } // stats(int)
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get the first entry in a bucket.
+   */
+  @SuppressWarnings("unchecked")
+  ReferenceEntry<K, V> bucket(int index) {
+    return (ReferenceEntry<K, V>) this.buckets[index];
+  } // bucket(int)
+
+  /**
+   * Record the chain length, hash codes, and memory use of one bucket.
+   */
+  void bucketStats(HashTableStats stats, int index) {
+    int length = 0;
+    for (ReferenceEntry<K, V> entry = bucket(index); entry != null; entry = entry.next()) {
+      stats.recordHash(entry.hash());
+      length++;
+    } // for
+    stats.recordBucket(length, ENTRY_BYTES * (long) length);
+  } // bucketStats(HashTableStats, int)
+
+  /**
+   * Remove up to limit cleared entries from the table.
+   */
+  @SuppressWarnings("unchecked")
+  void drain(int limit) {
+    Reference<?> ref;
+    for (int i = 0; (i < limit) && ((ref = this.queue.poll()) != null); i++) {
+      if (removeEntry((ReferenceEntry<K, V>) ref) && REPORT_BASIC_CALLS && (reporter != null)) {
+        reporter.report("purged entry in bucket " + index(((ReferenceEntry<K, V>) ref).hash()));
+      } // if
+    } // for
+  } // drain(int)
+
+  /**
+   * Find the live entry for a key. Returns null if there is no such entry.
+   */
+  ReferenceEntry<K, V> entry(K key) {
+    int hash = hash(key);
+    for (ReferenceEntry<K, V> entry = bucket(index(hash)); entry != null; entry = entry.next()) {
+      if (matches(entry, key, hash)) {
+        return entry;
+      } // if
+    } // for
+    return null;
+  } // entry(K)
+
+  /**
+   * Expand the size of the table.
+   */
+  void expand() {
+    drain(Integer.MAX_VALUE);
+    if (this.size <= (this.buckets.length * LOAD_FACTOR)) {
+      // Removing the cleared entries made enough room.
+      return;
+    } // if
+    int newSize = 2 * this.buckets.length + MiscUtils.rand.nextInt(10);
+    if (REPORT_BASIC_CALLS && (reporter != null)) {
+      reporter.report("Expanding to " + newSize + " elements.");
+    } // if reporter != null
+    Object[] oldBuckets = this.buckets;
+    this.buckets = new Object[newSize];
+    for (int i = 0; i < oldBuckets.length; i++) {
+      @SuppressWarnings("unchecked")
+      ReferenceEntry<K, V> entry = (ReferenceEntry<K, V>) oldBuckets[i];
+      while (entry != null) {
+        ReferenceEntry<K, V> next = entry.next();
+        int index = index(entry.hash());
+        entry.setNext(bucket(index));
+        this.buckets[index] = entry;
+        entry = next;
+      } // while
+    } // for
+  } // expand()
+
+  /**
+   * Compute the hash code of a key.
+   */
+  int hash(K key) {
+    if (key == null) {
+      throw new NullPointerException("null key");
+    } // if
+
+    return key.hashCode();
+  } // hash(K)
+
+  /**
+   * Convert a hash code into a bucket index.
+   */
+  int index(int hash) {
+    return (hash & 0x7FFFFFFF) % this.buckets.length;
+  } // index(int)
+
+  /**
+   * Add an entry to the front of a bucket.
+   */
+  void link(int index, ReferenceEntry<K, V> entry) {
+    entry.setNext(bucket(index));
+    this.buckets[index] = entry;
+    ++this.size;
+    this.mutation++;
+  } // link(int, ReferenceEntry)
+
+  /**
+   * Determine if a live entry holds a particular key.
+   */
+  boolean matches(ReferenceEntry<K, V> entry, K key, int hash) {
+    if (entry.hash() != hash) {
+      return false;
+    } // if
+    K entryKey = entry.key();
+    return (entryKey != null) && key.equals(entryKey) && (entry.value() != null);
+  } // matches(ReferenceEntry, K, int)
+
+  /**
+   * Create an entry of the appropriate kind.
+   */
+  ReferenceEntry<K, V> newEntry(K key, int hash, V value) {
+    if (this.weakKeys) {
+      return new WeakKeyEntry<K, V>(key, hash, value, this.queue);
+    } else {
+      return new SoftValueEntry<K, V>(key, hash, mask(value), this.queue);
+    } // if/else
+  } // newEntry(K, int, V)
+
+  /**
+   * Remove a particular entry, found by identity. Returns true if it was still in the table.
+   */
+  boolean removeEntry(ReferenceEntry<K, V> target) {
+    int index = index(target.hash());
+    ReferenceEntry<K, V> prev = null;
+    for (ReferenceEntry<K, V> entry = bucket(index); entry != null; entry = entry.next()) {
+      if (entry == target) {
+        unlink(index, prev, entry);
+        return true;
+      } // if
+      prev = entry;
+    } // for
+    return false;
+  } // removeEntry(ReferenceEntry)
+
+  /**
+   * Remove an entry from its chain.
+   */
+  void unlink(int index, ReferenceEntry<K, V> prev, ReferenceEntry<K, V> entry) {
+    if (prev == null) {
+      this.buckets[index] = entry.next();
+    } else {
+      prev.setNext(entry.next());
+    } // if/else
+    entry.setNext(null);
+    --this.size;
+    this.mutation++;
+  } // unlink(int, ReferenceEntry, ReferenceEntry)
+
+  /**
+   * Replace a null value with NULL_VALUE.
+   */
+  @SuppressWarnings("unchecked")
+  static <V> V mask(V value) {
+    return (value == null) ? (V) NULL_VALUE : value;
+  } // mask(V)
+
+  /**
+   * Replace NULL_VALUE with null.
+   */
+  @SuppressWarnings("unchecked")
+  static <V> V unmask(Object value) {
+    return (value == NULL_VALUE) ? null : (V) value;
+  } // unmask(Object)
+} // class ReferenceHashTable<K,V>
+
+
+/**
+ * The common behavior of the entries in a ReferenceHashTable. An entry's key or value returns
+ * null once the collector has cleared it.
+ */
+interface ReferenceEntry<K, V> {
+  /**
+   * Get the key (or null, if it has been cleared).
+   */
+  K key();
+
+  /**
+   * Get the value (or null, if it has been cleared).
+   */
+  V value();
+
+  /**
+   * Get the hash code of the key.
+   */
+  int hash();
+
+  /**
+   * Get the next entry in the chain.
+   */
+  ReferenceEntry<K, V> next();
+
+  /**
+   * Set the next entry in the chain.
+   */
+  void setNext(ReferenceEntry<K, V> next);
+} // interface ReferenceEntry<K,V>
+
+
+/**
+ * An entry that holds its key weakly and its value strongly.
+ */
+class WeakKeyEntry<K, V> extends WeakReference<K> implements ReferenceEntry<K, V> {
+  /**
+   * The hash code of the key, kept so that we can find the entry after the key is gone.
+   */
+  int hash;
+
+  /**
+   * The value.
+   */
+  V value;
+
+  /**
+   * The next entry in the chain.
+   */
+  ReferenceEntry<K, V> next;
+
+  /**
+   * Create an entry that is queued on queue once its key is otherwise unreachable.
+   */
+  WeakKeyEntry(K key, int hash, V value, ReferenceQueue<Object> queue) {
+    super(key, queue);
+    this.hash = hash;
+    this.value = value;
+  } // WeakKeyEntry(K, int, V, ReferenceQueue)
+
+  public K key() {
+    return this.get();
+  } // key()
+
+  public V value() {
+    // The table reads a null value as a cleared entry, so we mask null values.
+    return (this.get() == null) ? null : ReferenceHashTable.mask(this.value);
+  } // value()
+
+  /**
+   * Change the value.
+   */
+  public void setValue(V value) {
+    this.value = value;
+  } // setValue(V)
+
+  public int hash() {
+    return this.hash;
+  } // hash()
+
+  public ReferenceEntry<K, V> next() {
+    return this.next;
+  } // next()
+
+  public void setNext(ReferenceEntry<K, V> next) {
+    this.next = next;
+  } // setNext(ReferenceEntry)
+} // class WeakKeyEntry<K,V>
+
+
+/**
+ * An entry that holds its key strongly and its value softly.
+ */
+class SoftValueEntry<K, V> extends SoftReference<V> implements ReferenceEntry<K, V> {
+  /**
+   * The key.
+   */
+  K key;
+
+  /**
+   * The hash code of the key.
+   */
+  int hash;
+
+  /**
+   * The next entry in the chain.
+   */
+  ReferenceEntry<K, V> next;
+
+  /**
+   * Create an entry that is queued on queue once the collector reclaims its value.
+   */
+  SoftValueEntry(K key, int hash, V value, ReferenceQueue<Object> queue) {
+    super(value, queue);
+    this.key = key;
+    this.hash = hash;
+  } // SoftValueEntry(K, int, V, ReferenceQueue)
+
+  public K key() {
+    return this.key;
+  } // key()
+
+  public V value() {
+    return this.get();
+  } // value()
+
+  public int hash() {
+    return this.hash;
+  } // hash()
+
+  public ReferenceEntry<K, V> next() {
+    return this.next;
+  } // next()
+
+  public void setNext(ReferenceEntry<K, V> next) {
+    this.next = next;
+  } // setNext(ReferenceEntry)
+} // class SoftValueEntry<K,V>
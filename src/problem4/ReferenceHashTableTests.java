@@ -0,0 +1,59 @@
+package problem4;
+
+import static org.junit.jupiter.api.Assertions.*;
+import utils.SimpleMapTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of reference hash tables. The shared tests use a weak-key table; the keys they use stay
+ * strongly reachable, so nothing should disappear.
+ */
+public class ReferenceHashTableTests extends SimpleMapTests {
+  /**
+   * Prepare for each test.
+   */
+  @BeforeEach
+  public void setupReferenceHashTableTests() {
+    stringMap = ReferenceHashTable.weakKeys();
+  } // setupReferenceHashTableTests()
+
+  /**
+   * Entries whose keys are no longer reachable get purged.
+   */
+  @Test
+  public void weakKeysPurgedTest() throws Exception {
+    ReferenceHashTable<Object, String> table = ReferenceHashTable.weakKeys();
+    Object keep = new Object();
+    table.set(keep, "keep");
+    for (int i = 0; i < 1000; i++) {
+      table.set(new Object(), "garbage");
+    } // for
+    // The collector isn't obliged to clear anything, so we give it a few chances.
+    for (int i = 0; (i < 10) && (table.size() > 1); i++) {
+      System.gc();
+      Thread.sleep(10);
+    } // for
+    assertEquals(1, table.size());
+    assertEquals("keep", table.get(keep));
+  } // weakKeysPurgedTest()
+
+  /**
+   * Soft-value tables behave like ordinary maps while memory is plentiful.
+   */
+  @Test
+  public void softValuesTest() {
+    ReferenceHashTable<String, String> table = ReferenceHashTable.softValues();
+    for (int i = 0; i < 1000; i++) {
+      table.set("key" + i, "value" + i);
+    } // for
+    assertEquals("value7", table.set("key7", "seven"));
+    assertEquals("seven", table.get("key7"));
+    assertNull(table.set("null", null));
+    assertTrue(table.containsKey("null"));
+    assertNull(table.get("null"));
+    assertEquals(1001, table.size());
+    assertEquals("value8", table.remove("key8"));
+    assertFalse(table.containsKey("key8"));
+  } // softValuesTest()
+} // class ReferenceHashTableTests
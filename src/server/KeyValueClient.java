@@ -0,0 +1,193 @@
+package server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A blocking client for KeyValueServer. Requests are buffered by the send methods and go out
+ * together on flush(), so callers can pipeline many requests before calling receive(). (The
+ * server stops reading from clients that aren't reading its responses, so a single flush of
+ * megabytes of requests can stall; send very large loads in batches.)
+ *
+ * @author Chris Won
+ */
+public class KeyValueClient implements AutoCloseable {
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The channel to the server.
+   */
+  SocketChannel channel;
+
+  /**
+   * Requests we haven't yet sent. In write mode.
+   */
+  ByteBuffer out;
+
+  /**
+   * Bytes we've received but not yet returned. In read mode.
+   */
+  ByteBuffer in;
+
+  /**
+   * The status of the last response we received.
+   */
+  byte status;
+
+  /**
+   * The body of the last response we received.
+   */
+  String body;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Connect to a server on the given loopback port.
+   */
+  public KeyValueClient(int port) throws IOException {
+    this.channel =
+        SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    this.channel.socket().setTcpNoDelay(true);
+    this.out = ByteBuffer.allocate(KeyValueServer.BUFFER_SIZE);
+    this.in = ByteBuffer.allocate(KeyValueServer.BUFFER_SIZE);
+    this.in.flip();
+  } // KeyValueClient(int)
+
+  // +-----------------+-------------------------------------------------
+  // | Sending methods |
+  // +-----------------+
+
+  /**
+   * Queue a request to determine if the table contains a key.
+   */
+  public void sendContainsKey(String key) {
+    this.out = KeyValueProtocol.putRequest(this.out, KeyValueProtocol.OP_CONTAINS, key, null);
+  } // sendContainsKey(String)
+
+  /**
+   * Queue a request for the value associated with a key.
+   */
+  public void sendGet(String key) {
+    this.out = KeyValueProtocol.putRequest(this.out, KeyValueProtocol.OP_GET, key, null);
+  } // sendGet(String)
+
+  /**
+   * Queue a request to remove a key.
+   */
+  public void sendRemove(String key) {
+    this.out = KeyValueProtocol.putRequest(this.out, KeyValueProtocol.OP_REMOVE, key, null);
+  } // sendRemove(String)
+
+  /**
+   * Queue a request to set the value associated with a key.
+   */
+  public void sendSet(String key, String value) {
+    this.out = KeyValueProtocol.putRequest(this.out, KeyValueProtocol.OP_SET, key, value);
+  } // sendSet(String, String)
+
+  /**
+   * Queue a request for the size of the table.
+   */
+  public void sendSize() {
+    this.out = KeyValueProtocol.putRequest(this.out, KeyValueProtocol.OP_SIZE, null, null);
+  } // sendSize()
+
+  /**
+   * Send all of the queued requests.
+   */
+  public void flush() throws IOException {
+    this.out.flip();
+    while (this.out.hasRemaining()) {
+      this.channel.write(this.out);
+    } // while
+    this.out.clear();
+  } // flush()
+
+  // +-------------------+-----------------------------------------------
+  // | Receiving methods |
+  // +-------------------+
+
+  /**
+   * Wait for the next response. Returns its status; the body is available from body().
+   */
+  public byte receive() throws IOException {
+    while (!KeyValueProtocol.hasResponse(this.in)) {
+      this.in.compact();
+      if (!this.in.hasRemaining()) {
+        this.in = KeyValueProtocol.ensure(this.in, this.in.capacity());
+      } // if
+      int count = this.channel.read(this.in);
+      this.in.flip();
+      if (count < 0) {
+        throw new EOFException("server closed the connection");
+      } // if
+    } // while
+    this.status = this.in.get();
+    this.body = KeyValueProtocol.getString(this.in);
+    return this.status;
+  } // receive()
+
+  /**
+   * Get the body of the last response.
+   */
+  public String body() {
+    return this.body;
+  } // body()
+
+  // +-------------------+-----------------------------------------------
+  // | Blocking versions |
+  // +-------------------+
+
+  /**
+   * Get the value associated with a key.
+   *
+   * @throws IndexOutOfBoundsException if the key is not in the table.
+   */
+  public String get(String key) throws IOException {
+    sendGet(key);
+    flush();
+    return check(receive(), key);
+  } // get(String)
+
+  /**
+   * Set the value associated with a key, returning the old value.
+   */
+  public String set(String key, String value) throws IOException {
+    sendSet(key, value);
+    flush();
+    return check(receive(), key);
+  } // set(String, String)
+
+  /**
+   * Close the connection.
+   */
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  } // close()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Turn a response into a value or an exception, in the manner of SimpleMap.
+   */
+  String check(byte status, String key) throws IOException {
+    if (status == KeyValueProtocol.STATUS_MISSING) {
+      throw new IndexOutOfBoundsException("Invalid key: " + key);
+    } else if (status == KeyValueProtocol.STATUS_ERROR) {
+      throw new IOException("server error: " + this.body);
+    } // if/else
+    return this.body;
+  } // check(byte, String)
+} // class KeyValueClient
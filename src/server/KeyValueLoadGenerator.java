@@ -0,0 +1,147 @@
+package server;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import problem4.ChainedHashTable;
+
+/**
+ * Generate load against a KeyValueServer on this host and report throughput and latency
+ * percentiles.
+ *
+ * Usage: java server.KeyValueLoadGenerator [port [connections [depth [requests]]]]
+ *
+ * With no port (or a port of 0), we start a server over a ChainedHashTable in this process.
+ * Each connection sends batches of depth pipelined requests (one set for every three gets) and
+ * waits for all of the responses before sending the next batch. The latency of a request is the
+ * time from sending its batch to receiving its response.
+ *
+ * If any connection fails, its latencies and the run's throughput mean nothing, so we report
+ * no numbers and exit with status 1.
+ */
+public class KeyValueLoadGenerator {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of distinct keys.
+   */
+  static final int KEYS = 100000;
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Run one connection's worth of requests, recording each latency in nanoseconds.
+   */
+  static void client(int port, int depth, long[] latencies, int seed) throws Exception {
+    try (KeyValueClient client = new KeyValueClient(port)) {
+      int done = 0;
+      while (done < latencies.length) {
+        int batch = Math.min(depth, latencies.length - done);
+        for (int i = 0; i < batch; i++) {
+          seed = seed * 1103515245 + 12345;
+          String key = "key" + ((seed >>> 8) % KEYS);
+          if (((done + i) & 3) == 0) {
+            client.sendSet(key, key);
+          } else {
+            client.sendGet(key);
+          } // if/else
+        } // for
+        long start = System.nanoTime();
+        client.flush();
+        for (int i = 0; i < batch; i++) {
+          client.receive();
+          latencies[done++] = System.nanoTime() - start;
+        } // for
+      } // while
+    } // try
+  } // client(int, int, long[], int)
+
+  /**
+   * Find a percentile of some sorted latencies, in microseconds.
+   */
+  static double percentile(long[] sorted, double p) {
+    int index = (int) Math.min(sorted.length - 1, Math.floor(p / 100 * sorted.length));
+    return sorted[index] / 1e3;
+  } // percentile(long[], double)
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) throws Exception {
+    PrintWriter pen = new PrintWriter(System.out, true);
+    int port = (args.length > 0) ? Integer.parseInt(args[0]) : 0;
+    int connections = (args.length > 1) ? Integer.parseInt(args[1]) : 16;
+    int depth = (args.length > 2) ? Integer.parseInt(args[2]) : 32;
+    int requests = (args.length > 3) ? Integer.parseInt(args[3]) : 100000;
+
+    KeyValueServer server = null;
+    if (port == 0) {
+      server = new KeyValueServer(new ChainedHashTable<String, String>(), 0);
+      server.start();
+      port = server.port();
+    } // if
+
+    long[][] latencies = new long[connections][requests];
+    boolean[] failed = new boolean[connections];
+    ArrayList<Thread> threads = new ArrayList<Thread>();
+    int serverPort = port;
+    for (int c = 0; c < connections; c++) {
+      long[] mine = latencies[c];
+      int index = c;
+      int seed = c + 1;
+      threads.add(new Thread(() -> {
+        try {
+          client(serverPort, depth, mine, seed);
+        } catch (Exception e) {
+          failed[index] = true;
+          e.printStackTrace();
+        } // try/catch
+      }));
+    } // for
+
+    long start = System.nanoTime();
+    for (Thread thread : threads) {
+      thread.start();
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+    long elapsed = System.nanoTime() - start;
+
+    // Joining the threads makes their writes to failed visible here.
+    int failures = 0;
+    for (boolean failure : failed) {
+      failures += failure ? 1 : 0;
+    } // for
+    if (failures > 0) {
+      System.err.println(failures + " of " + connections + " connections failed; no results");
+      if (server != null) {
+        server.close();
+      } // if
+      System.exit(1);
+    } // if
+
+    long[] all = new long[connections * requests];
+    for (int c = 0; c < connections; c++) {
+      System.arraycopy(latencies[c], 0, all, c * requests, requests);
+    } // for
+    Arrays.sort(all);
+
+    pen.println(connections + " connections, pipeline depth " + depth + ", " + all.length
+        + " requests");
+    pen.printf("throughput: %.0f requests/s%n", all.length / (elapsed / 1e9));
+    pen.printf("latency (us): p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+        percentile(all, 50), percentile(all, 90), percentile(all, 99), percentile(all, 99.9),
+        all[all.length - 1] / 1e3);
+
+    if (server != null) {
+      server.close();
+    } // if
+  } // main(String[])
+} // class KeyValueLoadGenerator
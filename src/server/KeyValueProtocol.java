@@ -0,0 +1,219 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary protocol spoken by KeyValueServer and KeyValueClient.
+ *
+ * <pre>
+ * request  = op:byte [key:string [value:string]]
+ * response = status:byte body:string
+ * string   = length:int bytes     (UTF-8; a length of -1 means null)
+ * </pre>
+ *
+ * GET, REMOVE, and CONTAINS take a key; SET takes a key and a value; SIZE takes nothing. Clients
+ * may send any number of requests before reading the responses, which arrive in the same order.
+ *
+ * @author Chris Won
+ */
+public class KeyValueProtocol {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Get the value for a key. The body is the value.
+   */
+  public static final byte OP_GET = 1;
+
+  /**
+   * Set the value for a key. The body is the old value (or null).
+   */
+  public static final byte OP_SET = 2;
+
+  /**
+   * Remove a key. The body is the old value (or null).
+   */
+  public static final byte OP_REMOVE = 3;
+
+  /**
+   * Determine if the table contains a key. The body is "true" or "false".
+   */
+  public static final byte OP_CONTAINS = 4;
+
+  /**
+   * Get the size of the table. The body is the size in decimal.
+   */
+  public static final byte OP_SIZE = 5;
+
+  /**
+   * The request succeeded.
+   */
+  public static final byte STATUS_OK = 0;
+
+  /**
+   * The key was not in the table.
+   */
+  public static final byte STATUS_MISSING = 1;
+
+  /**
+   * The request failed. The body is a message.
+   */
+  public static final byte STATUS_ERROR = 2;
+
+  /**
+   * The longest string, in bytes, that we accept.
+   */
+  public static final int MAX_STRING = 1 << 24;
+
+  // +---------+---------------------------------------------------------
+  // | Writing |
+  // +---------+
+
+  /**
+   * Append a request to buf, growing it if necessary. Returns the (possibly new) buffer, which is
+   * in write mode.
+   */
+  public static ByteBuffer putRequest(ByteBuffer buf, byte op, String key, String value) {
+    byte[] keyBytes = bytes(key);
+    byte[] valueBytes = bytes(value);
+    buf = ensure(buf, 1 + stringLength(keyBytes) + stringLength(valueBytes));
+    buf.put(op);
+    if (op != OP_SIZE) {
+      putString(buf, keyBytes);
+    } // if
+    if (op == OP_SET) {
+      putString(buf, valueBytes);
+    } // if
+    return buf;
+  } // putRequest(ByteBuffer, byte, String, String)
+
+  /**
+   * Append a response to buf, growing it if necessary. Returns the (possibly new) buffer, which is
+   * in write mode.
+   */
+  public static ByteBuffer putResponse(ByteBuffer buf, byte status, String body) {
+    byte[] bodyBytes = bytes(body);
+    buf = ensure(buf, 1 + stringLength(bodyBytes));
+    buf.put(status);
+    putString(buf, bodyBytes);
+    return buf;
+  } // putResponse(ByteBuffer, byte, String)
+
+  // +---------+---------------------------------------------------------
+  // | Reading |
+  // +---------+
+
+  /**
+   * Determine if buf (in read mode) holds a complete request starting at its position, without
+   * consuming anything.
+   *
+   * @throws IllegalArgumentException if the request is malformed.
+   */
+  public static boolean hasRequest(ByteBuffer buf) {
+    int pos = buf.position();
+    if (buf.remaining() < 1) {
+      return false;
+    } // if
+    byte op = buf.get(pos++);
+    if ((op < OP_GET) || (op > OP_SIZE)) {
+      throw new IllegalArgumentException("Unknown operation " + op);
+    } // if
+    int strings = (op == OP_SIZE) ? 0 : (op == OP_SET) ? 2 : 1;
+    for (int i = 0; i < strings; i++) {
+      pos = skipString(buf, pos);
+      if (pos < 0) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // hasRequest(ByteBuffer)
+
+  /**
+   * Determine if buf (in read mode) holds a complete response starting at its position, without
+   * consuming anything.
+   */
+  public static boolean hasResponse(ByteBuffer buf) {
+    if (buf.remaining() < 1) {
+      return false;
+    } // if
+    return skipString(buf, buf.position() + 1) >= 0;
+  } // hasResponse(ByteBuffer)
+
+  /**
+   * Read a string from buf (in read mode).
+   */
+  public static String getString(ByteBuffer buf) {
+    int length = buf.getInt();
+    if (length < 0) {
+      return null;
+    } // if
+    String result = new String(buf.array(), buf.arrayOffset() + buf.position(), length,
+        StandardCharsets.UTF_8);
+    buf.position(buf.position() + length);
+    return result;
+  } // getString(ByteBuffer)
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Convert a string to UTF-8, keeping null as null.
+   */
+  static byte[] bytes(String str) {
+    return (str == null) ? null : str.getBytes(StandardCharsets.UTF_8);
+  } // bytes(String)
+
+  /**
+   * Make sure that buf (in write mode) has room for extra more bytes.
+   */
+  static ByteBuffer ensure(ByteBuffer buf, int extra) {
+    if (buf.remaining() >= extra) {
+      return buf;
+    } // if
+    int capacity = Math.max(buf.capacity() * 2, buf.position() + extra);
+    ByteBuffer bigger = ByteBuffer.allocate(capacity);
+    buf.flip();
+    bigger.put(buf);
+    return bigger;
+  } // ensure(ByteBuffer, int)
+
+  /**
+   * Write a string that has already been converted to bytes.
+   */
+  static void putString(ByteBuffer buf, byte[] bytes) {
+    if (bytes == null) {
+      buf.putInt(-1);
+    } else {
+      buf.putInt(bytes.length);
+      buf.put(bytes);
+    } // if/else
+  } // putString(ByteBuffer, byte[])
+
+  /**
+   * Find the position just past a string that starts at pos, or -1 if the string isn't complete.
+   *
+   * @throws IllegalArgumentException if the string is too long.
+   */
+  static int skipString(ByteBuffer buf, int pos) {
+    if (buf.limit() - pos < 4) {
+      return -1;
+    } // if
+    int length = buf.getInt(pos);
+    if (length > MAX_STRING) {
+      throw new IllegalArgumentException("String of " + length + " bytes is too long");
+    } // if
+    pos += 4 + Math.max(0, length);
+    return (pos <= buf.limit()) ? pos : -1;
+  } // skipString(ByteBuffer, int)
+
+  /**
+   * Determine how many bytes a string takes on the wire.
+   */
+  static int stringLength(byte[] bytes) {
+    return 4 + ((bytes == null) ? 0 : bytes.length);
+  } // stringLength(byte[])
+} // class KeyValueProtocol
@@ -0,0 +1,320 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import utils.HashTable;
+import utils.Reporter;
+
+/**
+ * A server that makes a hash table available to other processes on this host, using the
+ * protocol in KeyValueProtocol.
+ *
+ * @author Chris Won
+ */
+public class KeyValueServer implements Runnable, AutoCloseable {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * One thread runs a Selector loop over every connection, so we need no thread per client, and
+   * the hash table is only ever touched by that thread (which is good, since none of our tables
+   * are thread-safe).
+   *
+   * Clients may pipeline requests. Whenever a connection becomes readable, we read everything
+   * available, handle every complete request in the buffer, and append each response to the
+   * connection's output buffer. We then write all of those responses at once. If the socket
+   * can't take them all, we wait for it to become writable before reading more from that client,
+   * so a slow reader can't make us buffer without bound.
+   *
+   * We only listen on the loopback address.
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The initial size of each connection's buffers.
+   */
+  static final int BUFFER_SIZE = 16 * 1024;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The table we serve.
+   */
+  HashTable<String, String> table;
+
+  /**
+   * The channel on which we accept connections.
+   */
+  ServerSocketChannel serverChannel;
+
+  /**
+   * The selector that tells us which channels are ready.
+   */
+  Selector selector;
+
+  /**
+   * Should we keep running?
+   */
+  volatile boolean running;
+
+  /**
+   * An optional reporter for connections and errors.
+   */
+  Reporter reporter;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a server for table on the given loopback port. A port of 0 picks any free port.
+   */
+  public KeyValueServer(HashTable<String, String> table, int port) throws IOException {
+    this.table = table;
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+    this.serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    this.serverChannel.configureBlocking(false);
+    this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+    this.running = true;
+    this.reporter = null;
+  } // KeyValueServer(HashTable, int)
+
+  /**
+   * Create a server that reports connections and errors using a reporter.
+   */
+  public KeyValueServer(HashTable<String, String> table, int port, Reporter reporter)
+      throws IOException {
+    this(table, port);
+    this.reporter = reporter;
+  } // KeyValueServer(HashTable, int, Reporter)
+
+  // +---------+---------------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Stop the server. The run loop closes the channels on its way out.
+   */
+  @Override
+  public void close() {
+    this.running = false;
+    this.selector.wakeup();
+  } // close()
+
+  /**
+   * Get the port we're listening on.
+   */
+  public int port() throws IOException {
+    return ((InetSocketAddress) this.serverChannel.getLocalAddress()).getPort();
+  } // port()
+
+  /**
+   * Serve requests until closed.
+   */
+  @Override
+  public void run() {
+    try {
+      while (this.running) {
+        this.selector.select();
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            if (key.isAcceptable()) {
+              accept();
+            } else {
+              Connection connection = (Connection) key.attachment();
+              if (key.isReadable()) {
+                connection.read();
+              } // if
+              if (key.isValid() && key.isWritable()) {
+                connection.write();
+              } // if
+            } // if/else
+          } catch (IOException | IllegalArgumentException e) {
+            report("closing connection: " + e.getMessage());
+            key.cancel();
+            key.channel().close();
+          } // try/catch
+        } // while
+      } // while
+    } catch (IOException e) {
+      report("server failed: " + e);
+    } finally {
+      for (SelectionKey key : this.selector.keys()) {
+        try {
+          key.channel().close();
+        } catch (IOException e) {
+          // We're shutting down anyway.
+        } // try/catch
+      } // for
+      try {
+        this.selector.close();
+      } catch (IOException e) {
+        // We're shutting down anyway.
+      } // try/catch
+    } // try/catch/finally
+  } // run()
+
+  /**
+   * Start the server in a new thread.
+   */
+  public Thread start() {
+    Thread thread = new Thread(this, "KeyValueServer");
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  } // start()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Accept a new connection.
+   */
+  void accept() throws IOException {
+    SocketChannel channel = this.serverChannel.accept();
+    if (channel == null) {
+      return;
+    } // if
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+    key.attach(new Connection(channel, key));
+    report("accepted " + channel.getRemoteAddress());
+  } // accept()
+
+  /**
+   * Handle one request from in, appending the response to out. Returns the (possibly new) output
+   * buffer.
+   */
+  ByteBuffer handle(ByteBuffer in, ByteBuffer out) {
+    byte op = in.get();
+    String key = (op == KeyValueProtocol.OP_SIZE) ? null : KeyValueProtocol.getString(in);
+    String value = (op == KeyValueProtocol.OP_SET) ? KeyValueProtocol.getString(in) : null;
+    if ((key == null) && (op != KeyValueProtocol.OP_SIZE)) {
+      return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_ERROR, "null key");
+    } // if
+    try {
+      switch (op) {
+        case KeyValueProtocol.OP_GET:
+          return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_OK,
+              this.table.get(key));
+        case KeyValueProtocol.OP_SET:
+          return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_OK,
+              this.table.set(key, value));
+        case KeyValueProtocol.OP_REMOVE:
+          return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_OK,
+              this.table.remove(key));
+        case KeyValueProtocol.OP_CONTAINS:
+          return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_OK,
+              Boolean.toString(this.table.containsKey(key)));
+        default:
+          return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_OK,
+              Integer.toString(this.table.size()));
+      } // switch
+    } catch (IndexOutOfBoundsException e) {
+      return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_MISSING, null);
+    } catch (RuntimeException e) {
+      return KeyValueProtocol.putResponse(out, KeyValueProtocol.STATUS_ERROR, e.toString());
+    } // try/catch
+  } // handle(ByteBuffer, ByteBuffer)
+
+  /**
+   * Report something, if we have a reporter.
+   */
+  void report(String str) {
+    if (this.reporter != null) {
+      this.reporter.report(str);
+    } // if
+  } // report(String)
+
+  // +---------------+---------------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * The state of one client connection.
+   */
+  class Connection {
+    /**
+     * The channel to the client.
+     */
+    SocketChannel channel;
+
+    /**
+     * Our registration with the selector.
+     */
+    SelectionKey key;
+
+    /**
+     * Bytes we've read but not yet handled. Always in write mode between calls.
+     */
+    ByteBuffer in;
+
+    /**
+     * Responses we haven't yet written. Always in write mode between calls.
+     */
+    ByteBuffer out;
+
+    /**
+     * Set up a new connection.
+     */
+    Connection(SocketChannel channel, SelectionKey key) {
+      this.channel = channel;
+      this.key = key;
+      this.in = ByteBuffer.allocate(BUFFER_SIZE);
+      this.out = ByteBuffer.allocate(BUFFER_SIZE);
+    } // Connection(SocketChannel, SelectionKey)
+
+    /**
+     * Read what's available, handle every complete request, and try to send the responses.
+     */
+    void read() throws IOException {
+      if (!this.in.hasRemaining()) {
+        this.in = KeyValueProtocol.ensure(this.in, this.in.capacity());
+      } // if
+      int count = this.channel.read(this.in);
+      if (count < 0) {
+        this.key.cancel();
+        this.channel.close();
+        return;
+      } // if
+      this.in.flip();
+      while (KeyValueProtocol.hasRequest(this.in)) {
+        this.out = handle(this.in, this.out);
+      } // while
+      this.in.compact();
+      write();
+    } // read()
+
+    /**
+     * Write as many pending responses as the socket will take.
+     */
+    void write() throws IOException {
+      this.out.flip();
+      this.channel.write(this.out);
+      boolean done = !this.out.hasRemaining();
+      this.out.compact();
+      // Stop reading from a client that isn't keeping up with our responses.
+      this.key.interestOps(done ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+    } // write()
+  } // class Connection
+} // class KeyValueServer
@@ -0,0 +1,72 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import problem4.ChainedHashTable;
+
+/**
+ * Tests of the key/value server and client.
+ */
+public class KeyValueServerTests {
+
+  /**
+   * The server we're testing.
+   */
+  KeyValueServer server;
+
+  /**
+   * Start a server over an empty table for each test.
+   */
+  @BeforeEach
+  public void setupKeyValueServerTests() throws Exception {
+    server = new KeyValueServer(new ChainedHashTable<String, String>(), 0);
+    server.start();
+  } // setupKeyValueServerTests()
+
+  /**
+   * Simple blocking requests.
+   */
+  @Test
+  public void simpleTest() throws Exception {
+    try (KeyValueClient client = new KeyValueClient(server.port())) {
+      assertNull(client.set("hello", "world"));
+      assertEquals("world", client.set("hello", "there"));
+      assertEquals("there", client.get("hello"));
+      assertThrows(IndexOutOfBoundsException.class, () -> client.get("goodbye"));
+    } finally {
+      server.close();
+    } // try/finally
+  } // simpleTest()
+
+  /**
+   * Lots of pipelined requests come back in order.
+   */
+  @Test
+  public void pipelineTest() throws Exception {
+    try (KeyValueClient client = new KeyValueClient(server.port())) {
+      for (int i = 0; i < 5000; i++) {
+        client.sendSet("key" + i, "value \u00e9 " + i);
+        client.sendGet("key" + i);
+      } // for
+      client.sendRemove("key7");
+      client.sendContainsKey("key7");
+      client.sendSize();
+      client.flush();
+      for (int i = 0; i < 5000; i++) {
+        assertEquals(KeyValueProtocol.STATUS_OK, client.receive());
+        assertNull(client.body());
+        assertEquals(KeyValueProtocol.STATUS_OK, client.receive());
+        assertEquals("value \u00e9 " + i, client.body());
+      } // for
+      client.receive();
+      assertEquals("value \u00e9 7", client.body());
+      client.receive();
+      assertEquals("false", client.body());
+      client.receive();
+      assertEquals("4999", client.body());
+    } finally {
+      server.close();
+    } // try/finally
+  } // pipelineTest()
+} // class KeyValueServerTests
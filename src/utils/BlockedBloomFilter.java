@@ -0,0 +1,146 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A blocked Bloom filter. Every key maps to a single 512-bit block (one 64-byte cache line), and
+ * all of the key's bits are set within that block, so a membership check touches one line of
+ * memory.
+ *
+ * @author Chris Won
+ */
+public class BlockedBloomFilter {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of longs in a block.
+   */
+  static final int BLOCK_WORDS = 8;
+
+  /**
+   * The number of bits in a block.
+   */
+  static final int BLOCK_BITS = BLOCK_WORDS * 64;
+
+  /**
+   * The number of bits we set for each key.
+   */
+  static final int HASHES = 6;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The bits, grouped into blocks of BLOCK_WORDS longs.
+   */
+  long[] words;
+
+  /**
+   * The number of blocks.
+   */
+  int blocks;
+
+  /**
+   * The number of keys added since the filter was last cleared.
+   */
+  int count;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a filter sized for capacity keys at roughly bitsPerKey bits per key.
+   */
+  public BlockedBloomFilter(int capacity, int bitsPerKey) {
+    long bits = Math.max(1L, (long) capacity) * Math.max(1, bitsPerKey);
+    this.blocks = (int) Math.max(1, (bits + BLOCK_BITS - 1) / BLOCK_BITS);
+    this.words = new long[this.blocks * BLOCK_WORDS];
+    this.count = 0;
+  } // BlockedBloomFilter(int, int)
+
+  // +---------+---------------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Add a key to the filter.
+   */
+  public void add(Object key) {
+    long hash = mix(key.hashCode());
+    int base = block(hash) * BLOCK_WORDS;
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+      this.words[base + (bit >>> 6)] |= 1L << bit;
+    } // for
+    this.count++;
+  } // add(Object)
+
+  /**
+   * Remove all the keys from the filter.
+   */
+  public void clear() {
+    Arrays.fill(this.words, 0L);
+    this.count = 0;
+  } // clear()
+
+  /**
+   * Get the number of keys added since the filter was last cleared.
+   */
+  public int count() {
+    return this.count;
+  } // count()
+
+  /**
+   * Determine if a key might have been added. A false result is definitive; a true result may be
+   * a false positive.
+   */
+  public boolean mightContain(Object key) {
+    long hash = mix(key.hashCode());
+    int base = block(hash) * BLOCK_WORDS;
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+      if ((this.words[base + (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // mightContain(Object)
+
+  /**
+   * Get the size of the filter in bits.
+   */
+  public long bits() {
+    return (long) this.words.length * 64;
+  } // bits()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Pick the block for a mixed hash.
+   */
+  int block(long hash) {
+    return (int) (((hash >>> 40) * this.blocks) >>> 24);
+  } // block(long)
+
+  /**
+   * Spread the bits of a hash code across a long (the SplitMix64 finalizer), so that poor
+   * hashCode methods still fill the filter evenly.
+   */
+  static long mix(int hashCode) {
+    long z = hashCode + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  } // mix(int)
+} // class BlockedBloomFilter
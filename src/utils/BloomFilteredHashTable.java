@@ -0,0 +1,281 @@
+package utils;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
+
+/**
+ * A hash table that answers most lookups of missing keys from a Bloom filter before consulting
+ * an underlying hash table.
+ *
+ * @author Chris Won
+ */
+public class BloomFilteredHashTable<K, V> implements HashTable<K, V> {
+
+  // +-------+-----------------------------------------------------------
+  // | Notes |
+  // +-------+
+
+  /*
+   * Every key we set is added to a BlockedBloomFilter. get and containsKey check the filter
+   * first; if the filter says the key is absent, we never touch the underlying table.
+   *
+   * Bloom filters can't forget keys, so removals leave stale bits behind and the false-positive
+   * rate creeps up. We rebuild the filter from the table's keys whenever the table outgrows the
+   * capacity the filter was sized for (doubling that capacity), whenever removals exceed half the
+   * number of keys still in the table, and whenever the client calls rebuild().
+   */
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of filter bits per key.
+   */
+  static final int BITS_PER_KEY = 10;
+
+  /**
+   * The smallest capacity we size a filter for.
+   */
+  static final int MIN_CAPACITY = 64;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The table that actually stores the key/value pairs.
+   */
+  HashTable<K, V> table;
+
+  /**
+   * The filter.
+   */
+  BlockedBloomFilter filter;
+
+  /**
+   * The number of keys the filter is currently sized for.
+   */
+  int capacity;
+
+  /**
+   * The number of removals since the filter was last rebuilt.
+   */
+  int removals;
+
+  /**
+   * The number of lookups answered by the filter alone.
+   */
+  long filtered;
+
+  /**
+   * The number of lookups that passed the filter but missed in the table.
+   */
+  long falsePositives;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Guard a hash table with a Bloom filter. The table may already contain keys.
+   */
+  public BloomFilteredHashTable(HashTable<K, V> table) {
+    this.table = table;
+    this.capacity = MIN_CAPACITY;
+    this.rebuild();
+  } // BloomFilteredHashTable(HashTable)
+
+  // +-------------------+-----------------------------------------------
+  // | SimpleMap methods |
+  // +-------------------+
+
+  @Override
+  public boolean containsKey(K key) {
+    if (key == null) {
+      throw new NullPointerException("Null key");
+    } // if
+    if (!this.filter.mightContain(key)) {
+      this.filtered++;
+      return false;
+    } // if
+    boolean result = this.table.containsKey(key);
+    if (!result) {
+      this.falsePositives++;
+    } // if
+    return result;
+  } // containsKey(K)
+
+  @Override
+  public V get(K key) {
+    if (key == null) {
+      throw new NullPointerException("Null key");
+    } // if
+    if (!this.filter.mightContain(key)) {
+      this.filtered++;
+      throw new IndexOutOfBoundsException("Invalid key: " + key);
+    } // if
+    try {
+      return this.table.get(key);
+    } catch (IndexOutOfBoundsException e) {
+      this.falsePositives++;
+      throw e;
+    } // try/catch
+  } // get(K)
+
+  @Override
+  public Iterator<K> keys() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.key());
+  } // keys()
+
+  @Override
+  public V remove(K key) {
+    int oldSize = this.table.size();
+    V result = this.table.remove(key);
+    if (this.table.size() < oldSize) {
+      removed();
+    } // if
+    return result;
+  } // remove(K)
+
+  @Override
+  public V set(K key, V value) {
+    int oldSize = this.table.size();
+    V result = this.table.set(key, value);
+    if (this.table.size() > oldSize) {
+      if (this.table.size() > this.capacity) {
+        this.capacity *= 2;
+        this.rebuild();
+      } else {
+        this.filter.add(key);
+      } // if/else
+    } // if
+    return result;
+  } // set(K,V)
+
+  @Override
+  public int size() {
+    return this.table.size();
+  } // size()
+
+  @Override
+  public Iterator<V> values() {
+    return MiscUtils.transform(this.iterator(), (pair) -> pair.value());
+  } // values()
+
+  // +------------------+--------------------------------------------
+  // | Iterator methods |
+  // +------------------+
+
+  @Override
+  public Iterator<Pair<K, V>> iterator() {
+    Iterator<Pair<K, V>> it = this.table.iterator();
+    return new Iterator<Pair<K, V>>() {
+      public boolean hasNext() {
+        return it.hasNext();
+      } // hasNext()
+
+      public Pair<K, V> next() {
+        return it.next();
+      } // next()
+
+      public void remove() {
+        it.remove();
+        removed();
+      } // remove()
+    }; // new Iterator
+  } // iterator()
+
+  // +-------------------+-------------------------------------------
+  // | HashTable methods |
+  // +-------------------+
+
+  @Override
+  public void clear() {
+    this.table.clear();
+    this.capacity = MIN_CAPACITY;
+    this.rebuild();
+  } // clear()
+
+  @Override
+  public void dump(PrintWriter pen) {
+    pen.println("Filter: " + this.filter.bits() + " bits for " + this.capacity + " keys, "
+        + this.removals + " removals since rebuild, " + this.filtered + " filtered, "
+        + this.falsePositives + " false positives");
+    this.table.dump(pen);
+  } // dump(PrintWriter)
+
+  @Override
+  public void reportBasicCalls(boolean report) {
+    this.table.reportBasicCalls(report);
+  } // reportBasicCalls(boolean)
+
+  @Override
+  public HashTableStats stats() {
+    HashTableStats stats = this.table.stats();
+    stats.addFixedBytes(this.filter.bits() / 8);
+    return stats;
+  } // stats()
+
+  @Override
+  public HashTableStats stats(int samples) {
+    HashTableStats stats = this.table.stats(samples);
+    stats.addFixedBytes(this.filter.bits() / 8);
+    return stats;
+  } // stats(int)
+
+  // +------+------------------------------------------------------------
+  // | Misc |
+  // +------+
+
+  /**
+   * Get the number of lookups that passed the filter but missed in the table.
+   */
+  public long falsePositives() {
+    return this.falsePositives;
+  } // falsePositives()
+
+  /**
+   * Get the number of lookups answered by the filter alone.
+   */
+  public long filtered() {
+    return this.filtered;
+  } // filtered()
+
+  /**
+   * Rebuild the filter from the keys currently in the table, discarding the bits left behind by
+   * removed keys.
+   */
+  public void rebuild() {
+    while (this.capacity < this.table.size()) {
+      this.capacity *= 2;
+    } // while
+    this.filter = new BlockedBloomFilter(this.capacity, BITS_PER_KEY);
+    for (Pair<K, V> pair : this.table) {
+      this.filter.add(pair.key());
+    } // for
+    this.removals = 0;
+  } // rebuild()
+
+  /**
+   * Reset the lookup counters.
+   */
+  public void resetCounters() {
+    this.filtered = 0;
+    this.falsePositives = 0;
+  } // resetCounters()
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Note that a key has been removed, rebuilding the filter if too many removals have
+   * accumulated.
+   */
+  void removed() {
+    if (++this.removals > Math.max(MIN_CAPACITY, this.table.size()) / 2) {
+      this.rebuild();
+    } // if
+  } // removed()
+} // class BloomFilteredHashTable<K,V>
@@ -22,4 +22,15 @@ public interface HashTable<K, V> extends SimpleMap<K, V>, Iterable<Pair<K, V>> {
    */
   public void reportBasicCalls(boolean report);
 
+  /**
+   * Summarize the structure of the table in a single pass over its buckets.
+   */
+  public HashTableStats stats();
+
+  /**
+   * Estimate the same summary as stats() from a random sample of the buckets. Intended for
+   * tables too large to examine in full.
+   */
+  public HashTableStats stats(int samples);
+
 } // interface HashTable<K,V>
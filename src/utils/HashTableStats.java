@@ -0,0 +1,239 @@
+package utils;
+
+import java.io.PrintWriter;
+
+/**
+ * A summary of the structure of a hash table: how long its chains are, how many buckets are
+ * empty, how evenly the hash codes use their bits, and roughly how much memory it uses. The
+ * summary is either exact or estimated from a sample of the buckets.
+ *
+ * @author Chris Won
+ */
+public class HashTableStats {
+
+  // +-----------+-------------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of slots in the chain-length histogram. The last slot counts all chains of at
+   * least HISTOGRAM_SIZE - 1 entries.
+   */
+  public static final int HISTOGRAM_SIZE = 16;
+
+  // +--------+----------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The number of buckets in the table.
+   */
+  int capacity;
+
+  /**
+   * The number of entries in the table.
+   */
+  int size;
+
+  /**
+   * Is this an estimate based on a sample of the buckets?
+   */
+  boolean sampled;
+
+  /**
+   * The number of buckets we examined.
+   */
+  long bucketsExamined;
+
+  /**
+   * The number of entries in the buckets we examined.
+   */
+  long entriesExamined;
+
+  /**
+   * The number of examined buckets with each chain length.
+   */
+  long[] histogram;
+
+  /**
+   * The longest chain we examined.
+   */
+  int maxChain;
+
+  /**
+   * For each bit of the hash code, the number of examined entries with that bit set.
+   */
+  long[] hashBits;
+
+  /**
+   * The bytes used by structures whose size doesn't depend on the buckets we examine, such as the
+   * bucket array itself.
+   */
+  long fixedBytes;
+
+  /**
+   * The bytes used by the buckets we examined.
+   */
+  long bucketBytes;
+
+  // +--------------+----------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an empty summary of a table with the given capacity and size.
+   */
+  public HashTableStats(int capacity, int size, boolean sampled) {
+    this.capacity = capacity;
+    this.size = size;
+    this.sampled = sampled;
+    this.histogram = new long[HISTOGRAM_SIZE];
+    this.hashBits = new long[32];
+  } // HashTableStats(int, int, boolean)
+
+  // +-----------+-------------------------------------------------------
+  // | Recording |
+  // +-----------+
+
+  /**
+   * Record the bytes used by structures that don't belong to any one bucket.
+   */
+  public void addFixedBytes(long bytes) {
+    this.fixedBytes += bytes;
+  } // addFixedBytes(long)
+
+  /**
+   * Record one examined bucket, its chain length, and the bytes its chain uses.
+   */
+  public void recordBucket(int chainLength, long bytes) {
+    this.bucketsExamined++;
+    this.entriesExamined += chainLength;
+    this.histogram[Math.min(chainLength, HISTOGRAM_SIZE - 1)]++;
+    this.maxChain = Math.max(this.maxChain, chainLength);
+    this.bucketBytes += bytes;
+  } // recordBucket(int, long)
+
+  /**
+   * Record the hash code of one entry in an examined bucket.
+   */
+  public void recordHash(int hash) {
+    for (int bit = 0; bit < 32; bit++) {
+      this.hashBits[bit] += (hash >>> bit) & 1;
+    } // for
+  } // recordHash(int)
+
+  // +---------+---------------------------------------------------------
+  // | Results |
+  // +---------+
+
+  /**
+   * Get the number of buckets in the table.
+   */
+  public int capacity() {
+    return this.capacity;
+  } // capacity()
+
+  /**
+   * Get the (estimated) number of buckets with a particular chain length. The last slot of the
+   * histogram also counts all longer chains.
+   */
+  public long chainCount(int length) {
+    return scale(this.histogram[Math.min(length, HISTOGRAM_SIZE - 1)]);
+  } // chainCount(int)
+
+  /**
+   * Get the (estimated) number of empty buckets.
+   */
+  public long emptyBuckets() {
+    return chainCount(0);
+  } // emptyBuckets()
+
+  /**
+   * Get the (estimated) bytes used by the table's own structures. The keys and values themselves
+   * are not counted.
+   */
+  public long estimatedBytes() {
+    return this.fixedBytes + scale(this.bucketBytes);
+  } // estimatedBytes()
+
+  /**
+   * Get the fraction of examined entries whose hash code has a particular bit set. A good hash
+   * function puts every bit near 0.5.
+   */
+  public double hashBitFraction(int bit) {
+    return (this.entriesExamined == 0) ? 0 : this.hashBits[bit] / (double) this.entriesExamined;
+  } // hashBitFraction(int)
+
+  /**
+   * Get the largest distance of any hash bit's fraction from 0.5.
+   */
+  public double hashBitBias() {
+    double bias = 0;
+    for (int bit = 0; bit < 32; bit++) {
+      bias = Math.max(bias, Math.abs(hashBitFraction(bit) - 0.5));
+    } // for
+    return bias;
+  } // hashBitBias()
+
+  /**
+   * Get the ratio of entries to buckets.
+   */
+  public double loadFactor() {
+    return (this.capacity == 0) ? 0 : this.size / (double) this.capacity;
+  } // loadFactor()
+
+  /**
+   * Get the longest chain we saw. When sampling, the true maximum may be larger.
+   */
+  public int maxChain() {
+    return this.maxChain;
+  } // maxChain()
+
+  /**
+   * Determine if these statistics are estimated from a sample of the buckets.
+   */
+  public boolean sampled() {
+    return this.sampled;
+  } // sampled()
+
+  /**
+   * Get the number of entries in the table.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Print the statistics.
+   */
+  public void dump(PrintWriter pen) {
+    pen.println((this.sampled ? "Estimated from " + this.bucketsExamined + " buckets. " : "")
+        + "Capacity: " + this.capacity + ", Size: " + this.size + ", Load factor: "
+        + String.format("%.3f", loadFactor()));
+    pen.println("  Empty buckets: " + emptyBuckets() + ", Max chain: " + this.maxChain
+        + ", Estimated bytes: " + estimatedBytes());
+    pen.print("  Chains:");
+    for (int length = 0; length < HISTOGRAM_SIZE; length++) {
+      if (this.histogram[length] != 0) {
+        pen.print(" " + length + ((length == HISTOGRAM_SIZE - 1) ? "+" : "") + "="
+            + chainCount(length));
+      } // if
+    } // for
+    pen.println();
+    pen.println("  Hash bit bias: " + String.format("%.3f", hashBitBias()));
+  } // dump(PrintWriter)
+
+  // +---------+---------------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Scale a count over the examined buckets up to the whole table.
+   */
+  long scale(long count) {
+    if (!this.sampled || (this.bucketsExamined == 0)) {
+      return count;
+    } // if
+    return Math.round(count * (this.capacity / (double) this.bucketsExamined));
+  } // scale(long)
+} // class HashTableStats